@@ -1,4 +1,9 @@
+DROP TABLE IF EXISTS category_sales_rollups;
+DROP TABLE IF EXISTS event_sales_rollups;
+DROP TABLE IF EXISTS ticket_delivery_outbox;
+DROP TABLE IF EXISTS event_rating_summary;
 DROP TABLE IF EXISTS reviews;
+DROP TABLE IF EXISTS tickets_archive;
 DROP TABLE IF EXISTS tickets;
 DROP TABLE IF EXISTS events;
 DROP TABLE IF EXISTS users;
@@ -15,7 +20,7 @@ CREATE TABLE users (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
     email VARCHAR(255) UNIQUE NOT NULL,
     password VARCHAR(255) NOT NULL,
-    name VARCHAR(255) NOT NULL,
+    name VARCHAR(255) UNIQUE NOT NULL,
     role user_role_type DEFAULT 'user',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
@@ -53,7 +58,8 @@ CREATE TABLE tickets (
     price_per_ticket DECIMAL(10, 2) NOT NULL CHECK (price_per_ticket >= 0),
     total_price DECIMAL(10, 2) NOT NULL CHECK (total_price >= 0),
     status ticket_status_type DEFAULT 'confirmed',
-    purchase_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    purchase_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    hold_expires_at TIMESTAMP,
     qr_code_url VARCHAR(255),
     email_sent BOOLEAN DEFAULT FALSE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -61,6 +67,34 @@ CREATE TABLE tickets (
     CONSTRAINT check_total_price CHECK (total_price = price_per_ticket * quantity)
 );
 
+-- tickets of long-finished events, moved here by the archive sweeper; no foreign keys so users and events can go
+CREATE TABLE tickets_archive (
+    id VARCHAR(50) PRIMARY KEY,
+    user_id UUID NOT NULL,
+    event_id INTEGER NOT NULL,
+    quantity INTEGER NOT NULL,
+    price_per_ticket DECIMAL(10, 2) NOT NULL,
+    total_price DECIMAL(10, 2) NOT NULL,
+    status ticket_status_type,
+    purchase_date TIMESTAMP NOT NULL,
+    hold_expires_at TIMESTAMP,
+    qr_code_url VARCHAR(255),
+    email_sent BOOLEAN,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE ticket_delivery_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    ticket_id VARCHAR(50) NOT NULL REFERENCES tickets(id) ON DELETE CASCADE,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error VARCHAR(500),
+    dead_lettered_at TIMESTAMP,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 CREATE TABLE reviews (
     id SERIAL PRIMARY KEY,
     user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
@@ -72,17 +106,62 @@ CREATE TABLE reviews (
     UNIQUE (user_id, event_id)
 );
 
+CREATE TABLE event_rating_summary (
+    event_id INTEGER PRIMARY KEY REFERENCES events(id) ON DELETE CASCADE,
+    count_1 INTEGER NOT NULL DEFAULT 0,
+    count_2 INTEGER NOT NULL DEFAULT 0,
+    count_3 INTEGER NOT NULL DEFAULT 0,
+    count_4 INTEGER NOT NULL DEFAULT 0,
+    count_5 INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE event_sales_rollups (
+    event_id INTEGER NOT NULL,
+    granularity CHAR(1) NOT NULL CHECK (granularity IN ('m', 'h', 'd')),
+    bucket_start TIMESTAMP NOT NULL,
+    orders BIGINT NOT NULL DEFAULT 0,
+    tickets BIGINT NOT NULL DEFAULT 0,
+    gross_cents BIGINT NOT NULL DEFAULT 0,
+    cancelled_tickets BIGINT NOT NULL DEFAULT 0,
+    refunded_tickets BIGINT NOT NULL DEFAULT 0,
+    refunded_cents BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (event_id, granularity, bucket_start)
+);
+
+CREATE TABLE category_sales_rollups (
+    category event_category_type NOT NULL,
+    granularity CHAR(1) NOT NULL CHECK (granularity IN ('m', 'h', 'd')),
+    bucket_start TIMESTAMP NOT NULL,
+    orders BIGINT NOT NULL DEFAULT 0,
+    tickets BIGINT NOT NULL DEFAULT 0,
+    gross_cents BIGINT NOT NULL DEFAULT 0,
+    cancelled_tickets BIGINT NOT NULL DEFAULT 0,
+    refunded_tickets BIGINT NOT NULL DEFAULT 0,
+    refunded_cents BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (category, granularity, bucket_start)
+);
+
 CREATE INDEX idx_users_email ON users(email);
 CREATE INDEX idx_users_role ON users(role);
-CREATE INDEX idx_tickets_user_id ON tickets(user_id);
+CREATE INDEX idx_users_created_at_id ON users(created_at, id);
+CREATE INDEX idx_users_role_created_at_id ON users(role, created_at, id);
+CREATE INDEX idx_tickets_user_purchase ON tickets(user_id, purchase_date DESC, id DESC)
+    INCLUDE (event_id, quantity, total_price, status);
 CREATE INDEX idx_tickets_event_id ON tickets(event_id);
 CREATE INDEX idx_tickets_status ON tickets(status);
+CREATE INDEX idx_tickets_pending_expiry ON tickets(hold_expires_at) WHERE status = 'pending';
+CREATE INDEX idx_tickets_archive_user_purchase ON tickets_archive(user_id, purchase_date DESC, id DESC);
+CREATE INDEX idx_tickets_archive_event_id ON tickets_archive(event_id);
 CREATE INDEX idx_events_category ON events(category);
 CREATE INDEX idx_events_date ON events(date);
 CREATE INDEX idx_events_is_finished ON events(is_finished);
-CREATE INDEX idx_reviews_event_id ON reviews(event_id);
+CREATE INDEX idx_events_unfinished_end ON events((date + end_time)) WHERE is_finished = FALSE;
+CREATE INDEX idx_reviews_event_id ON reviews(event_id, id);
 CREATE INDEX idx_reviews_user_id ON reviews(user_id);
 CREATE INDEX idx_reviews_rating ON reviews(rating);
+CREATE INDEX idx_ticket_delivery_outbox_due ON ticket_delivery_outbox(next_attempt_at) WHERE dead_lettered_at IS NULL;
+CREATE INDEX idx_ticket_delivery_outbox_dead ON ticket_delivery_outbox(dead_lettered_at) WHERE dead_lettered_at IS NOT NULL;
 
 CREATE OR REPLACE FUNCTION update_updated_at_column()
 RETURNS TRIGGER AS $$
@@ -104,6 +183,9 @@ CREATE TRIGGER update_tickets_updated_at BEFORE UPDATE ON tickets
 CREATE TRIGGER update_reviews_updated_at BEFORE UPDATE ON reviews
     FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
 
+CREATE TRIGGER update_event_rating_summary_updated_at BEFORE UPDATE ON event_rating_summary
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
 INSERT INTO events (title, date, location, description, long_description, price, category, image, organizer, start_time, end_time, available_tickets, total_tickets) VALUES
 ('Summer Music Festival', '2025-06-21', 'Central Park, NYC', 'A full-day event with live performances by top artists.', 'Join us for an incredible day of music and fun at Central Park! The Summer Music Festival brings together the best artists from around the world for a day you won''t forget. Enjoy food vendors, art installations, and of course, amazing musical performances across three stages. Early arrival is recommended as space is limited.', 49.99, 'Music', '/api/placeholder/800/400', 'NYC Events Co.', '11:00:00', '22:00:00', 3, 3),
 
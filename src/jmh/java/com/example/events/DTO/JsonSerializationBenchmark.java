@@ -0,0 +1,90 @@
+package com.example.events.DTO;
+
+import com.example.events.model.UserRole;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// the mapper is configured like Spring Boot's default one behind the message converters
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectWriter authResponseWriter;
+    private ObjectWriter userWriter;
+    private ObjectWriter errorWriter;
+    private AuthResponse authResponse;
+    private UserDTO user;
+    private ErrorResponse error;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        authResponseWriter = objectMapper.writerFor(AuthResponse.class);
+        userWriter = objectMapper.writerFor(UserDTO.class);
+        errorWriter = objectMapper.writerFor(ErrorResponse.class);
+
+        UUID id = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        authResponse = AuthResponse.builder()
+                .token("eyJhbGciOiJIUzI1NiJ9." + "x".repeat(220) + ".signature")
+                .type("Bearer")
+                .userId(id)
+                .name("alice")
+                .email("alice@example.com")
+                .role(UserRole.user)
+                .message("Login successful")
+                .build();
+        user = UserDTO.builder()
+                .id(id)
+                .email("alice@example.com")
+                .name("alice")
+                .role(UserRole.user)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        error = ErrorResponse.builder()
+                .timestamp(now)
+                .status(401)
+                .error("Unauthorized")
+                .message("JWT token has expired. Please login again.")
+                .path("/api/users/me")
+                .build();
+    }
+
+    @Benchmark
+    public byte[] authResponse() throws Exception {
+        return authResponseWriter.writeValueAsBytes(authResponse);
+    }
+
+    @Benchmark
+    public byte[] userDto() throws Exception {
+        return userWriter.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] errorResponse() throws Exception {
+        return errorWriter.writeValueAsBytes(error);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.events.security;
+
+import com.example.events.repository.UserRepository;
+import com.example.events.service.RedisTokenBlacklistService;
+import com.example.events.service.UserTokenRevocationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// the filter on its own: Redis lookups are mocked out, their cost is covered by TokenBlacklistBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private JwtUtil jwtUtil;
+    private JwtAuthenticationFilter filter;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = JwtUtilBenchmark.newJwtUtil();
+        RedisTokenBlacklistService blacklist = mock(RedisTokenBlacklistService.class);
+        when(blacklist.isTokenBlacklisted(anyString())).thenReturn(false);
+        UserTokenRevocationService revocation = mock(UserTokenRevocationService.class);
+        when(revocation.isRevoked(any())).thenReturn(false);
+        filter = new JwtAuthenticationFilter(new VerifiedTokenCache(jwtUtil, 10_000), mock(UserRepository.class),
+                blacklist, revocation);
+        token = jwtUtil.generateToken(UUID.randomUUID(), "alice", "user");
+    }
+
+    @Benchmark
+    public MockHttpServletResponse cachedToken() throws Exception {
+        return filter(token);
+    }
+
+    // a token the cache has not seen yet pays for signature verification; includes minting it, see generateToken
+    @Benchmark
+    public MockHttpServletResponse freshToken() throws Exception {
+        return filter(jwtUtil.generateToken(UUID.randomUUID(), "bob", "user"));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse anonymous() throws Exception {
+        return filter(null);
+    }
+
+    private MockHttpServletResponse filter(String jwt) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/me");
+        if (jwt != null) {
+            request.addHeader("Authorization", "Bearer " + jwt);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilterInternal(request, response, new MockFilterChain());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+}
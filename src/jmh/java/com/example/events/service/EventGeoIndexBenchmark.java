@@ -0,0 +1,83 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.NearbyEventDTO;
+import com.example.events.model.EventCategory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// a million events clustered around 200 cities, queried near a random city each call
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EventGeoIndexBenchmark {
+
+    private static final EventCategory[] categories = EventCategory.values();
+
+    private final Random random = new Random(7);
+    private EventGeoIndex index;
+    private double[][] cities;
+    private LocalDate today;
+
+    @Setup
+    public void setUp() {
+        cities = new double[200][];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = new double[]{random.nextDouble() * 120 - 60, random.nextDouble() * 360 - 180};
+        }
+        today = LocalDate.now();
+        List<EventDTO> events = new ArrayList<>(1_000_000);
+        for (int i = 0; i < 1_000_000; i++) {
+            double[] city = cities[random.nextInt(cities.length)];
+            double lat = Math.max(-89, Math.min(89, city[0] + random.nextGaussian() * 0.5));
+            double lon = ((city[1] + random.nextGaussian() * 0.5) + 540) % 360 - 180;
+            events.add(EventDTO.builder()
+                    .id(i + 1)
+                    .date(today.plusDays(random.nextInt(365)))
+                    .startTime(LocalTime.NOON)
+                    .category(categories[i % categories.length])
+                    .latitude(BigDecimal.valueOf(lat))
+                    .longitude(BigDecimal.valueOf(lon))
+                    .build());
+        }
+        index = new EventGeoIndex(0.25);
+        index.onCatalogueRebuilt(events);
+    }
+
+    @Benchmark
+    public List<NearbyEventDTO> radius25km() {
+        double[] city = cities[random.nextInt(cities.length)];
+        return index.findWithinRadius(city[0], city[1], 25, null, null, null, 500);
+    }
+
+    @Benchmark
+    public List<NearbyEventDTO> nearest20() {
+        double[] city = cities[random.nextInt(cities.length)];
+        return index.findNearest(city[0], city[1], 20, null, today, today.plusDays(90));
+    }
+
+    @Benchmark
+    public List<EventDTO> boundingBox() {
+        double[] city = cities[random.nextInt(cities.length)];
+        return index.findWithinBox(city[0] - 0.2, city[1] - 0.2, city[0] + 0.2, city[1] + 0.2, null, null, null, 500);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.EventSearchResult;
+import com.example.events.model.EventCategory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 200k events over a zipf-distributed vocabulary; queries are two whole words and a three letter prefix
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EventSearchIndexBenchmark {
+
+    private final Random random = new Random(11);
+    private final String[] vocabulary = new String[20_000];
+    private final String[] queries = new String[4096];
+    private EventSearchIndex index;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = "w" + Integer.toString(i * 7919, 36);
+        }
+        List<EventDTO> events = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            events.add(EventDTO.builder()
+                    .id(i)
+                    .title(words(4))
+                    .description(words(20))
+                    .date(LocalDate.now())
+                    .category(EventCategory.values()[i % EventCategory.values().length])
+                    .build());
+        }
+        index = new EventSearchIndex();
+        index.onCatalogueRebuilt(events);
+        for (int i = 0; i < queries.length; i++) {
+            String prefix = vocabulary[zipf()];
+            queries[i] = words(2) + prefix.substring(0, Math.min(3, prefix.length()));
+        }
+    }
+
+    @Benchmark
+    public List<EventSearchResult> search() {
+        return index.search(queries[next++ & (queries.length - 1)], null, 20);
+    }
+
+    private String words(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(vocabulary[zipf()]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private int zipf() {
+        return (int) Math.min(vocabulary.length - 1, Math.floor(Math.pow(vocabulary.length, random.nextDouble())) - 1);
+    }
+}
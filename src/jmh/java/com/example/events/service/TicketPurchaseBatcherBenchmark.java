@@ -0,0 +1,103 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.TicketDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 16 concurrent buyers on one event, batched against one transaction per purchase; stock never runs out
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class TicketPurchaseBatcherBenchmark {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private TicketPurchaseBatcher batcher;
+    private EventDTO event;
+    private List<UUID> users;
+
+    @Setup
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:purchase-bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE DOMAIN ticket_status_type AS VARCHAR(20)");
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE events (id INTEGER PRIMARY KEY, available_tickets INTEGER NOT NULL " +
+                "CHECK (available_tickets >= 0))");
+        jdbcTemplate.execute("CREATE TABLE tickets (id VARCHAR(50) PRIMARY KEY, user_id UUID NOT NULL REFERENCES users(id), " +
+                "event_id INTEGER NOT NULL REFERENCES events(id), quantity INTEGER NOT NULL, " +
+                "price_per_ticket DECIMAL(10, 2) NOT NULL, total_price DECIMAL(10, 2) NOT NULL, " +
+                "status ticket_status_type, purchase_date TIMESTAMP, email_sent BOOLEAN)");
+        jdbcTemplate.execute("CREATE TABLE ticket_delivery_outbox (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "ticket_id VARCHAR(50) NOT NULL REFERENCES tickets(id))");
+        jdbcTemplate.update("INSERT INTO events (id, available_tickets) VALUES (1, ?)", Integer.MAX_VALUE);
+
+        users = new ArrayList<>(1_000);
+        for (int i = 0; i < 1_000; i++) {
+            users.add(UUID.randomUUID());
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id) VALUES (?)",
+                users.stream().map(id -> new Object[]{id}).toList());
+
+        event = EventDTO.builder().id(1).price(new BigDecimal("35.00")).build();
+        batcher = new TicketPurchaseBatcher(jdbcTemplate, transactionTemplate, 64, 2000, 4, 10_000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        batcher.shutdown();
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public TicketDTO batched() {
+        return batcher.purchase(randomUser(), event, 1);
+    }
+
+    @Benchmark
+    public Boolean perRequest() {
+        UUID user = randomUser();
+        return transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update("UPDATE events SET available_tickets = available_tickets - 1 " +
+                    "WHERE id = 1 AND available_tickets >= 1") == 0) {
+                return false;
+            }
+            jdbcTemplate.update("INSERT INTO tickets (id, user_id, event_id, quantity, price_per_ticket, total_price, " +
+                    "status, purchase_date, email_sent) VALUES (?, ?, 1, 1, 35.00, 35.00, 'confirmed', NOW(), FALSE)",
+                    UUID.randomUUID().toString(), user);
+            return true;
+        });
+    }
+
+    private UUID randomUser() {
+        return users.get(ThreadLocalRandom.current().nextInt(users.size()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.events.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// cost per hold of expiring a full wheel: a million holds spread over ten minutes of one-second ticks
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerWheelBenchmark {
+
+    private static final long start = 1_700_000_000_000L;
+    private static final int holds = 1_000_000;
+
+    private TimerWheel wheel;
+
+    @Setup(Level.Invocation)
+    public void fill() {
+        wheel = new TimerWheel(1000, start);
+        for (int i = 0; i < holds; i++) {
+            wheel.schedule(Integer.toString(i), start + 600_000 + (i % 600) * 1000L);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(holds)
+    public void expireAll(Blackhole blackhole) {
+        for (long now = start; now <= start + 1_200_000; now += 1000) {
+            blackhole.consume(wheel.advance(now));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.events.service;
+
+import com.example.events.RedisConfig;
+import com.example.events.security.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBlacklistBenchmark {
+
+    private static final int port = 6392;
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisMessageListenerContainer listenerContainer;
+    private RedisTokenBlacklistService service;
+    private String activeToken;
+    private String revokedToken;
+    private String bloomFalsePositive;
+
+    @Setup
+    public void setUp() throws Exception {
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        RedisConfig config = new RedisConfig();
+        RedisTemplate<String, String> redisTemplate = config.redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        listenerContainer = config.redisMessageListenerContainer(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "0123456789abcdef0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+
+        // a filter sized for the blacklisted tokens lets through roughly one unknown token in a hundred
+        service = new RedisTokenBlacklistService(redisTemplate, jwtUtil, listenerContainer,
+                1_000, 0.01, 10_000, 60);
+        service.rebuildBloomFilter();
+        for (int i = 0; i < 1_000; i++) {
+            service.blacklistToken(jwtUtil.generateToken(UUID.randomUUID(), "revoked-" + i, "user"));
+        }
+        revokedToken = jwtUtil.generateToken(UUID.randomUUID(), "alice", "user");
+        service.blacklistToken(revokedToken);
+
+        for (int i = 0; i < 100_000 && (activeToken == null || bloomFalsePositive == null); i++) {
+            String candidate = jwtUtil.generateToken(UUID.randomUUID(), "bob", "user");
+            long negatives = service.getBloomNegativeCount();
+            long falsePositives = service.getFalsePositiveCount();
+            service.isTokenBlacklisted(candidate);
+            if (service.getBloomNegativeCount() > negatives) {
+                activeToken = activeToken != null ? activeToken : candidate;
+            } else if (service.getFalsePositiveCount() > falsePositives) {
+                bloomFalsePositive = candidate;
+            }
+        }
+
+        // a large expiry index behind the size counter, which must not scale with it
+        long expiresAt = System.currentTimeMillis() + 3_600_000L;
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < 100_000; i++) {
+                connection.zSetCommands().zAdd("blacklist:index".getBytes(), expiresAt, ("indexed-" + i).getBytes());
+            }
+            return null;
+        });
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        listenerContainer.destroy();
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    // the common case: the bloom filter rules the token out without a Redis call
+    @Benchmark
+    public boolean activeToken() {
+        return service.isTokenBlacklisted(activeToken);
+    }
+
+    @Benchmark
+    public boolean revokedToken() {
+        return service.isTokenBlacklisted(revokedToken);
+    }
+
+    // passes the bloom filter but is not blacklisted, so every call goes to Redis
+    @Benchmark
+    public boolean bloomFalsePositive() {
+        return service.isTokenBlacklisted(bloomFalsePositive != null ? bloomFalsePositive : activeToken);
+    }
+
+    @Benchmark
+    public long blacklistSize() {
+        return service.getBlacklistSize();
+    }
+}
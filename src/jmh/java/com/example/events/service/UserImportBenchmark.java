@@ -0,0 +1,90 @@
+package com.example.events.service;
+
+import com.example.events.DTO.BulkImportResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+// bulk import into H2, reported in rows/sec; bcrypt runs at cost 4 so the figure is parsing, hashing fan-out and
+// batched inserts rather than the hash itself (PasswordHashingBenchmark covers that)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserImportBenchmark {
+
+    private static final int rows = 5_000;
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    private JdbcTemplate jdbcTemplate;
+    private PasswordHashingService hashing;
+    private UserImportService service;
+    private byte[] ndjson;
+
+    @Setup
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:import-bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE DOMAIN user_role_type AS VARCHAR(20)");
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY, email VARCHAR(255) UNIQUE NOT NULL, " +
+                "password VARCHAR(255) NOT NULL, name VARCHAR(255) UNIQUE NOT NULL, role user_role_type, " +
+                "created_at TIMESTAMP, updated_at TIMESTAMP)");
+
+        hashing = new PasswordHashingService(4, 0, 1024, 60_000, 1);
+        service = new UserImportService(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                hashing, mock(UserCache.class), new ObjectMapper(), batchSize);
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            body.append("{\"email\":\"user").append(i).append("@x.io\",\"name\":\"user").append(i)
+                    .append("\",\"password\":\"secret").append(i).append("\"}\n");
+        }
+        ndjson = body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE users");
+    }
+
+    @TearDown
+    public void tearDown() {
+        hashing.shutdown();
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(rows)
+    public BulkImportResponse importNdjson() throws IOException {
+        return service.importUsers(new ByteArrayInputStream(ndjson), true);
+    }
+}
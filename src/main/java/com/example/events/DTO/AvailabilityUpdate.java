@@ -0,0 +1,14 @@
+package com.example.events.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityUpdate {
+    private Integer eventId;
+    private Long availableTickets;
+    private Long timestamp;
+}
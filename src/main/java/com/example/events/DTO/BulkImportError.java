@@ -0,0 +1,14 @@
+package com.example.events.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportError {
+    private long row;
+    private String name;
+    private String reason;
+}
@@ -0,0 +1,20 @@
+package com.example.events.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkImportResponse {
+    private long imported;
+    private long rejected;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+    private List<BulkImportError> errors;
+}
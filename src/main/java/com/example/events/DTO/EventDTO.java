@@ -0,0 +1,39 @@
+package com.example.events.DTO;
+
+import com.example.events.model.EventCategory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class EventDTO {
+    private Integer id;
+    private String title;
+    private LocalDate date;
+    private String location;
+    private String description;
+    private String longDescription;
+    private BigDecimal price;
+    private EventCategory category;
+    private String image;
+    private String organizer;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private Integer availableTickets;
+    private Integer totalTickets;
+    private BigDecimal latitude;
+    private BigDecimal longitude;
+    private boolean finished;
+    private LocalDateTime updatedAt;
+    private Double averageRating;
+    private Integer reviewCount;
+}
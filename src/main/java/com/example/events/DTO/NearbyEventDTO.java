@@ -0,0 +1,13 @@
+package com.example.events.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyEventDTO {
+    private EventDTO event;
+    private double distanceKm;
+}
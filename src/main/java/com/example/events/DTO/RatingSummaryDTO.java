@@ -0,0 +1,18 @@
+package com.example.events.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RatingSummaryDTO {
+    private Integer eventId;
+    private int count;
+    private long sum;
+    private double average;
+    private int[] histogram;
+}
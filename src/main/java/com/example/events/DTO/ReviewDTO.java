@@ -0,0 +1,23 @@
+package com.example.events.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReviewDTO {
+    private Integer id;
+    private UUID userId;
+    private Integer eventId;
+    private Integer rating;
+    private String comment;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,24 @@
+package com.example.events.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesBucketDTO {
+    private LocalDateTime bucketStart;
+    private long orders;
+    private long tickets;
+    private BigDecimal grossRevenue;
+    private long cancelledTickets;
+    private long refundedTickets;
+    private BigDecimal refundedRevenue;
+    private BigDecimal netRevenue;
+}
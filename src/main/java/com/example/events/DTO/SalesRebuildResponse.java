@@ -0,0 +1,17 @@
+package com.example.events.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesRebuildResponse {
+    private long ticketsReplayed;
+    private int bucketsWritten;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+}
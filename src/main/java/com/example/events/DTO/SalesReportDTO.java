@@ -0,0 +1,24 @@
+package com.example.events.DTO;
+
+import com.example.events.model.SalesGranularity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesReportDTO {
+    private String scope;
+    private String key;
+    private SalesGranularity granularity;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private SalesBucketDTO totals;
+    private List<SalesBucketDTO> buckets;
+}
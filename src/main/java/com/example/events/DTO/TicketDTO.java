@@ -0,0 +1,27 @@
+package com.example.events.DTO;
+
+import com.example.events.model.TicketStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TicketDTO {
+    private String id;
+    private UUID userId;
+    private Integer eventId;
+    private Integer quantity;
+    private BigDecimal pricePerTicket;
+    private BigDecimal totalPrice;
+    private TicketStatus status;
+    private LocalDateTime purchaseDate;
+    private LocalDateTime holdExpiresAt;
+}
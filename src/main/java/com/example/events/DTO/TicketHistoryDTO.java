@@ -0,0 +1,26 @@
+package com.example.events.DTO;
+
+import com.example.events.model.TicketStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TicketHistoryDTO {
+    private String id;
+    private Integer eventId;
+    private String eventTitle;
+    private LocalDate eventDate;
+    private Integer quantity;
+    private BigDecimal totalPrice;
+    private TicketStatus status;
+    private LocalDateTime purchaseDate;
+}
@@ -0,0 +1,17 @@
+package com.example.events.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TicketHistoryResponse {
+    private List<TicketHistoryDTO> tickets;
+    private String nextCursor;
+}
@@ -0,0 +1,22 @@
+package com.example.events.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WaitingRoomStatus {
+    private Integer eventId;
+    private long position;
+    private long ahead;
+    private long estimatedWaitSeconds;
+    private String queueToken;
+    private String admissionToken;
+    private LocalDateTime admissionExpiresAt;
+}
@@ -33,8 +33,16 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, "/api/users/signup").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/users/login").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/users/role/**").permitAll()
-
-                        .requestMatchers(HttpMethod.GET, "/api/users/all").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/events", "/api/events/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/tickets/availability/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/reviews/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/waiting-room/status").permitAll()
+
+                        .requestMatchers(HttpMethod.GET, "/api/users/all", "/api/users/all/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/users/import").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.PUT, "/api/waiting-room/*").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.DELETE, "/api/waiting-room/*").hasRole("ADMIN")
+                        .requestMatchers("/api/sales/**").hasRole("ADMIN")
 
                         .requestMatchers("/api/users/**").authenticated()
 
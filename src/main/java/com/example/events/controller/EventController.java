@@ -0,0 +1,102 @@
+package com.example.events.controller;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.EventSearchResult;
+import com.example.events.DTO.NearbyEventDTO;
+import com.example.events.exception.EventNotFoundException;
+import com.example.events.model.EventCategory;
+import com.example.events.service.EventCatalogueService;
+import com.example.events.service.EventGeoIndex;
+import com.example.events.service.EventSearchIndex;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/events")
+@CrossOrigin(origins = "*")
+public class EventController {
+
+    private final EventCatalogueService eventCatalogueService;
+    private final EventGeoIndex eventGeoIndex;
+    private final EventSearchIndex eventSearchIndex;
+
+    public EventController(EventCatalogueService eventCatalogueService, EventGeoIndex eventGeoIndex,
+                           EventSearchIndex eventSearchIndex) {
+        this.eventCatalogueService = eventCatalogueService;
+        this.eventGeoIndex = eventGeoIndex;
+        this.eventSearchIndex = eventSearchIndex;
+    }
+
+
+    @GetMapping
+    public ResponseEntity<List<EventDTO>> getEvents(
+            @RequestParam(required = false) EventCategory category,
+            @RequestParam(defaultValue = "false") boolean finished,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "50") int limit) {
+        List<EventDTO> events = eventCatalogueService.findEvents(category, finished, from, to, limit);
+        return ResponseEntity.ok(events);
+    }
+
+
+    @GetMapping("/search")
+    public ResponseEntity<List<EventSearchResult>> searchEvents(
+            @RequestParam String q,
+            @RequestParam(required = false) EventCategory category,
+            @RequestParam(defaultValue = "20") int limit) {
+        List<EventSearchResult> results = eventSearchIndex.search(q, category, limit);
+        return ResponseEntity.ok(results);
+    }
+
+
+    @GetMapping("/search/suggest")
+    public ResponseEntity<List<String>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<String> terms = eventSearchIndex.suggest(prefix, limit);
+        return ResponseEntity.ok(terms);
+    }
+
+
+    @GetMapping("/nearby")
+    public ResponseEntity<List<NearbyEventDTO>> getNearbyEvents(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(required = false) EventCategory category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "20") int limit) {
+        List<NearbyEventDTO> events = radiusKm == null
+                ? eventGeoIndex.findNearest(lat, lon, limit, category, from, to)
+                : eventGeoIndex.findWithinRadius(lat, lon, radiusKm, category, from, to, limit);
+        return ResponseEntity.ok(events);
+    }
+
+
+    @GetMapping("/within")
+    public ResponseEntity<List<EventDTO>> getEventsWithin(
+            @RequestParam double minLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLat,
+            @RequestParam double maxLon,
+            @RequestParam(required = false) EventCategory category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "50") int limit) {
+        List<EventDTO> events = eventGeoIndex.findWithinBox(minLat, minLon, maxLat, maxLon, category, from, to, limit);
+        return ResponseEntity.ok(events);
+    }
+
+
+    @GetMapping("/{id}")
+    public ResponseEntity<EventDTO> getEvent(@PathVariable Integer id) throws EventNotFoundException {
+        EventDTO event = eventCatalogueService.getEvent(id);
+        return ResponseEntity.ok(event);
+    }
+}
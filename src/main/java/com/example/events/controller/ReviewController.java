@@ -0,0 +1,51 @@
+package com.example.events.controller;
+
+import com.example.events.DTO.RatingSummaryDTO;
+import com.example.events.DTO.ReviewDTO;
+import com.example.events.DTO.ReviewRequest;
+import com.example.events.service.ReviewService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/reviews")
+@CrossOrigin(origins = "*")
+public class ReviewController {
+
+    private final ReviewService reviewService;
+
+    public ReviewController(ReviewService reviewService) {
+        this.reviewService = reviewService;
+    }
+
+
+    @PutMapping("/events/{eventId}")
+    public ResponseEntity<ReviewDTO> saveReview(@PathVariable Integer eventId, @RequestBody ReviewRequest request,
+                                                HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(reviewService.saveReview(eventId, request, httpRequest));
+    }
+
+
+    @DeleteMapping("/events/{eventId}")
+    public ResponseEntity<String> deleteReview(@PathVariable Integer eventId, HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(reviewService.deleteReview(eventId, httpRequest));
+    }
+
+
+    @GetMapping("/events/{eventId}")
+    public ResponseEntity<List<ReviewDTO>> getReviews(
+            @PathVariable Integer eventId,
+            @RequestParam(required = false) Integer before,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(reviewService.getReviews(eventId, before, limit));
+    }
+
+
+    @GetMapping("/events/{eventId}/summary")
+    public ResponseEntity<RatingSummaryDTO> getSummary(@PathVariable Integer eventId) {
+        return ResponseEntity.ok(reviewService.getSummary(eventId));
+    }
+}
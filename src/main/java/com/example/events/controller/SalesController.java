@@ -0,0 +1,98 @@
+package com.example.events.controller;
+
+import com.example.events.DTO.SalesRebuildResponse;
+import com.example.events.DTO.SalesReportDTO;
+import com.example.events.model.EventCategory;
+import com.example.events.model.SalesGranularity;
+import com.example.events.service.SalesExportService;
+import com.example.events.service.SalesRollupService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/sales")
+@CrossOrigin(origins = "*")
+public class SalesController {
+
+    private final SalesRollupService salesRollupService;
+    private final SalesExportService salesExportService;
+
+    public SalesController(SalesRollupService salesRollupService, SalesExportService salesExportService) {
+        this.salesRollupService = salesRollupService;
+        this.salesExportService = salesExportService;
+    }
+
+
+    @GetMapping("/events/{eventId}")
+    public ResponseEntity<SalesReportDTO> getEventSales(
+            @PathVariable Integer eventId,
+            @RequestParam(defaultValue = "hour") SalesGranularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(salesRollupService.getEventReport(eventId, granularity, from, to));
+    }
+
+
+    @GetMapping("/categories/{category}")
+    public ResponseEntity<SalesReportDTO> getCategorySales(
+            @PathVariable EventCategory category,
+            @RequestParam(defaultValue = "day") SalesGranularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(salesRollupService.getCategoryReport(category, granularity, from, to));
+    }
+
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<SalesRebuildResponse> rebuild() {
+        return ResponseEntity.ok(salesRollupService.rebuild());
+    }
+
+
+    @GetMapping("/events/{eventId}/export")
+    public ResponseEntity<StreamingResponseBody> exportEventTickets(@PathVariable Integer eventId,
+                                                                    @RequestParam(defaultValue = "csv") String format,
+                                                                    HttpServletRequest request) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        StreamingResponseBody body = salesExportService.exportEvent(eventId, ndjson);
+        return exportResponse("event-" + eventId + "-tickets", ndjson, body, request);
+    }
+
+
+    @GetMapping("/organizers/{organizer}/export")
+    public ResponseEntity<StreamingResponseBody> exportOrganizerTickets(@PathVariable String organizer,
+                                                                        @RequestParam(defaultValue = "csv") String format,
+                                                                        HttpServletRequest request) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        StreamingResponseBody body = salesExportService.exportOrganizer(organizer, ndjson);
+        return exportResponse("organizer-tickets", ndjson, body, request);
+    }
+
+    // an export outlives the default async timeout, so this response alone gets the export's own limit
+    private ResponseEntity<StreamingResponseBody> exportResponse(String name, boolean ndjson,
+                                                                 StreamingResponseBody body,
+                                                                 HttpServletRequest request) {
+        AsyncWebRequest asyncRequest = WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest();
+        if (asyncRequest != null) {
+            asyncRequest.setTimeout(salesExportService.getTimeoutMillis());
+        }
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : new MediaType("text", "csv"))
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + (ndjson ? ".ndjson" : ".csv"))
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
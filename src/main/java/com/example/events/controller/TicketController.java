@@ -0,0 +1,85 @@
+package com.example.events.controller;
+
+import com.example.events.DTO.PurchaseRequest;
+import com.example.events.DTO.TicketDTO;
+import com.example.events.DTO.TicketHistoryResponse;
+import com.example.events.service.AvailabilityStreamService;
+import com.example.events.service.TicketDeliveryService;
+import com.example.events.service.TicketHistoryService;
+import com.example.events.service.TicketHoldService;
+import com.example.events.service.TicketReservationService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/tickets")
+@CrossOrigin(origins = "*")
+public class TicketController {
+
+    private final TicketReservationService ticketReservationService;
+    private final TicketHoldService ticketHoldService;
+    private final TicketDeliveryService ticketDeliveryService;
+    private final AvailabilityStreamService availabilityStreamService;
+    private final TicketHistoryService ticketHistoryService;
+
+    public TicketController(TicketReservationService ticketReservationService, TicketHoldService ticketHoldService,
+                            TicketDeliveryService ticketDeliveryService,
+                            AvailabilityStreamService availabilityStreamService,
+                            TicketHistoryService ticketHistoryService) {
+        this.ticketReservationService = ticketReservationService;
+        this.ticketHoldService = ticketHoldService;
+        this.ticketDeliveryService = ticketDeliveryService;
+        this.availabilityStreamService = availabilityStreamService;
+        this.ticketHistoryService = ticketHistoryService;
+    }
+
+
+    @PostMapping("/purchase")
+    public ResponseEntity<TicketDTO> purchase(@RequestBody PurchaseRequest request, HttpServletRequest httpRequest) {
+        TicketDTO ticket = ticketReservationService.purchase(request, httpRequest);
+        return ResponseEntity.ok(ticket);
+    }
+
+
+    @PostMapping("/holds")
+    public ResponseEntity<TicketDTO> hold(@RequestBody PurchaseRequest request, HttpServletRequest httpRequest) {
+        TicketDTO ticket = ticketHoldService.hold(request, httpRequest);
+        return ResponseEntity.ok(ticket);
+    }
+
+
+    @PostMapping("/holds/{id}/confirm")
+    public ResponseEntity<TicketDTO> confirmHold(@PathVariable String id, HttpServletRequest httpRequest) {
+        TicketDTO ticket = ticketHoldService.confirm(id, httpRequest);
+        return ResponseEntity.ok(ticket);
+    }
+
+
+    @GetMapping("/history")
+    public ResponseEntity<TicketHistoryResponse> getHistory(@RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "20") int limit,
+                                                            HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(ticketHistoryService.getHistory(cursor, limit, httpRequest));
+    }
+
+
+    @GetMapping(value = "/{id}/qr", produces = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> getQrCode(@PathVariable String id, HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(ticketDeliveryService.getQrCode(id, httpRequest));
+    }
+
+
+    @GetMapping("/availability/{eventId}")
+    public ResponseEntity<Long> getAvailability(@PathVariable Integer eventId) {
+        return ResponseEntity.ok(ticketReservationService.getAvailableTickets(eventId));
+    }
+
+
+    @GetMapping(value = "/availability/{eventId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAvailability(@PathVariable Integer eventId) {
+        return availabilityStreamService.subscribe(eventId);
+    }
+}
@@ -3,14 +3,18 @@ package com.example.events.controller;
 import com.example.events.DTO.*;
 import com.example.events.exception.UserExistsException;
 import com.example.events.exception.UserNotFoundException;
+import com.example.events.model.UserRole;
 import com.example.events.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import com.example.events.service.RedisTokenBlacklistService;
+import com.example.events.service.UserImportService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
 import java.util.UUID;
 
 @RestController
@@ -20,10 +24,13 @@ public class UserController {
 
     private final UserService userService;
     private final RedisTokenBlacklistService tokenBlacklistService;
+    private final UserImportService userImportService;
 
-    public UserController(UserService userService, RedisTokenBlacklistService tokenBlacklistService) {
+    public UserController(UserService userService, RedisTokenBlacklistService tokenBlacklistService,
+                          UserImportService userImportService) {
         this.userService = userService;
         this.tokenBlacklistService = tokenBlacklistService;
+        this.userImportService = userImportService;
     }
 
 
@@ -35,8 +42,9 @@ public class UserController {
 
 
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody LoginRequest request) throws UserNotFoundException {
-        AuthResponse response = userService.login(request);
+    public ResponseEntity<AuthResponse> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest)
+            throws UserNotFoundException {
+        AuthResponse response = userService.login(request, httpRequest);
         return ResponseEntity.ok(response);
     }
 
@@ -54,6 +62,13 @@ public class UserController {
         return ResponseEntity.badRequest().body("No token found to invalidate.");
     }
 
+    @PostMapping("/logout-all")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<String> logoutEverywhere(HttpServletRequest request) {
+        String message = userService.logoutEverywhere(request);
+        return ResponseEntity.ok(message);
+    }
+
 
     @DeleteMapping("/delete")
     @PreAuthorize("isAuthenticated()")
@@ -98,12 +113,35 @@ public class UserController {
 
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<UserDTO>> getAllUsers() {
-        List<UserDTO> users = userService.getAllUsers();
+    public ResponseEntity<UserPageResponse> getAllUsers(@RequestParam(required = false) UserRole role,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "100") int limit) {
+        UserPageResponse users = userService.getUsersPage(role, cursor, limit);
         return ResponseEntity.ok(users);
     }
 
 
+    @GetMapping("/all/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(required = false) UserRole role,
+                                                             @RequestParam(defaultValue = "ndjson") String format) {
+        boolean ndjson = !"json".equalsIgnoreCase(format);
+        StreamingResponseBody body = out -> userService.exportUsers(role, ndjson, out);
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkImportResponse> importUsers(HttpServletRequest request) throws IOException {
+        boolean ndjson = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()));
+        BulkImportResponse response = userImportService.importUsers(request.getInputStream(), ndjson);
+        return ResponseEntity.ok(response);
+    }
+
+
     @GetMapping("/me")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<UserDTO> getCurrentUser(HttpServletRequest request) throws UserNotFoundException {
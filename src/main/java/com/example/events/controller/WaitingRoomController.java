@@ -0,0 +1,47 @@
+package com.example.events.controller;
+
+import com.example.events.DTO.WaitingRoomStatus;
+import com.example.events.service.WaitingRoomService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/waiting-room")
+@CrossOrigin(origins = "*")
+public class WaitingRoomController {
+
+    private final WaitingRoomService waitingRoomService;
+
+    public WaitingRoomController(WaitingRoomService waitingRoomService) {
+        this.waitingRoomService = waitingRoomService;
+    }
+
+
+    @PostMapping("/{eventId}/join")
+    public ResponseEntity<WaitingRoomStatus> join(@PathVariable Integer eventId, HttpServletRequest request) {
+        WaitingRoomStatus status = waitingRoomService.join(eventId, request);
+        return ResponseEntity.ok(status);
+    }
+
+
+    @GetMapping("/status")
+    public ResponseEntity<WaitingRoomStatus> getStatus(@RequestParam String token) {
+        WaitingRoomStatus status = waitingRoomService.getStatus(token);
+        return ResponseEntity.ok(status);
+    }
+
+
+    @PutMapping("/{eventId}")
+    public ResponseEntity<String> open(@PathVariable Integer eventId, @RequestParam int admissionsPerSecond) {
+        waitingRoomService.open(eventId, admissionsPerSecond);
+        return ResponseEntity.ok("Waiting room opened for event " + eventId);
+    }
+
+
+    @DeleteMapping("/{eventId}")
+    public ResponseEntity<String> close(@PathVariable Integer eventId) {
+        waitingRoomService.close(eventId);
+        return ResponseEntity.ok("Waiting room closed for event " + eventId);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.events.exception;
+
+public class EventNotFoundException extends RuntimeException {
+    public EventNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.events.exception;
+
+public class HoldExpiredException extends RuntimeException {
+    public HoldExpiredException(String message) {
+        super(message);
+    }
+}
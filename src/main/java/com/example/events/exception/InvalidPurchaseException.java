@@ -0,0 +1,7 @@
+package com.example.events.exception;
+
+public class InvalidPurchaseException extends RuntimeException {
+    public InvalidPurchaseException(String message) {
+        super(message);
+    }
+}
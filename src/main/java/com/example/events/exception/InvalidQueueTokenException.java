@@ -0,0 +1,7 @@
+package com.example.events.exception;
+
+public class InvalidQueueTokenException extends RuntimeException {
+    public InvalidQueueTokenException(String message) {
+        super(message);
+    }
+}
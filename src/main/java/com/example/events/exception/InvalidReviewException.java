@@ -0,0 +1,7 @@
+package com.example.events.exception;
+
+public class InvalidReviewException extends RuntimeException {
+    public InvalidReviewException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.events.exception;
+
+public class InvalidSalesQueryException extends RuntimeException {
+    public InvalidSalesQueryException(String message) {
+        super(message);
+    }
+}
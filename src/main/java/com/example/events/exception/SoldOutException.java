@@ -0,0 +1,7 @@
+package com.example.events.exception;
+
+public class SoldOutException extends RuntimeException {
+    public SoldOutException(String message) {
+        super(message);
+    }
+}
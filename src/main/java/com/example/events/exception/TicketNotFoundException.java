@@ -0,0 +1,7 @@
+package com.example.events.exception;
+
+public class TicketNotFoundException extends RuntimeException {
+    public TicketNotFoundException(String message) {
+        super(message);
+    }
+}
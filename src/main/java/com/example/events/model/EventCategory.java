@@ -0,0 +1,12 @@
+package com.example.events.model;
+
+public enum EventCategory {
+    Music,
+    Technology,
+    Food,
+    Entertainment,
+    Sports,
+    Art,
+    Business,
+    Education
+}
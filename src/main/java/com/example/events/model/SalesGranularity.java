@@ -0,0 +1,23 @@
+package com.example.events.model;
+
+public enum SalesGranularity {
+    minute("m", 60),
+    hour("h", 3_600),
+    day("d", 86_400);
+
+    private final String code;
+    private final long seconds;
+
+    SalesGranularity(String code, long seconds) {
+        this.code = code;
+        this.seconds = seconds;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public long getSeconds() {
+        return seconds;
+    }
+}
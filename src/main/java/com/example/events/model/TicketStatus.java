@@ -0,0 +1,8 @@
+package com.example.events.model;
+
+public enum TicketStatus {
+    confirmed,
+    cancelled,
+    refunded,
+    pending
+}
@@ -0,0 +1,31 @@
+package com.example.events.repository;
+
+import com.example.events.model.Event;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+@Repository
+public interface EventRepository extends JpaRepository<Event, Integer> {
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    List<Event> findByUpdatedAtAfterOrderByUpdatedAt(LocalDateTime updatedAt);
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    List<Event> findAllByOrderByUpdatedAt();
+
+    @Query("SELECT e.id FROM Event e")
+    List<Integer> findAllIds();
+
+    @Query("SELECT e.availableTickets FROM Event e WHERE e.id = :id")
+    Optional<Integer> findAvailableTicketsById(@Param("id") Integer id);
+}
@@ -0,0 +1,25 @@
+package com.example.events.repository;
+
+import com.example.events.DTO.ReviewDTO;
+import com.example.events.model.Review;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReviewRepository extends JpaRepository<Review, Integer> {
+
+    String selectReviewDto = "SELECT new com.example.events.DTO.ReviewDTO(r.id, r.userId, r.eventId, r.rating, " +
+            "r.comment, r.createdAt, r.updatedAt) FROM Review r ";
+
+    @Query(selectReviewDto + "WHERE r.eventId = :eventId ORDER BY r.id DESC")
+    List<ReviewDTO> findReviewPage(@Param("eventId") Integer eventId, Pageable pageable);
+
+    @Query(selectReviewDto + "WHERE r.eventId = :eventId AND r.id < :beforeId ORDER BY r.id DESC")
+    List<ReviewDTO> findReviewPageBefore(@Param("eventId") Integer eventId, @Param("beforeId") Integer beforeId,
+                                         Pageable pageable);
+}
@@ -0,0 +1,9 @@
+package com.example.events.repository;
+
+import com.example.events.model.Ticket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TicketRepository extends JpaRepository<Ticket, String> {
+}
@@ -1,17 +1,79 @@
 package com.example.events.repository;
 
+import com.example.events.DTO.UserDTO;
 import com.example.events.model.User;
+import com.example.events.model.UserRole;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
+    String selectUserDto = "select new com.example.events.DTO.UserDTO(u.id, u.email, u.name, u.role, u.createdAt, u.updatedAt) from User u ";
+    String keysetOrder = " order by u.createdAt, u.id";
+    String afterCursor = "(u.createdAt > :createdAt or (u.createdAt = :createdAt and u.id > :id))";
+
     Optional<User> findByName(String name);
-    boolean existsByName(String name);
+
+    @Query(selectUserDto + "where u.id = :id")
+    Optional<UserDTO> findUserDtoById(@Param("id") UUID id);
+
+    @Query(selectUserDto + "where u.name = :name")
+    Optional<UserDTO> findUserDtoByName(@Param("name") String name);
+
+    @Modifying
+    @Query("update User u set u.name = :name, u.updatedAt = :updatedAt where u.id = :id")
+    int updateName(@Param("id") UUID id, @Param("name") String name, @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password, u.updatedAt = :updatedAt where u.id = :id")
+    int updatePassword(@Param("id") UUID id, @Param("password") String password, @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Query("delete from User u where u.id = :id")
+    int deleteUserById(@Param("id") UUID id);
+
+    @Query(selectUserDto + keysetOrder)
+    List<UserDTO> findUserPage(Pageable pageable);
+
+    @Query(selectUserDto + "where u.role = :role" + keysetOrder)
+    List<UserDTO> findUserPageByRole(@Param("role") UserRole role, Pageable pageable);
+
+    @Query(selectUserDto + "where " + afterCursor + keysetOrder)
+    List<UserDTO> findUserPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") UUID id,
+                                    Pageable pageable);
+
+    @Query(selectUserDto + "where u.role = :role and " + afterCursor + keysetOrder)
+    List<UserDTO> findUserPageByRoleAfter(@Param("role") UserRole role,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") UUID id,
+                                          Pageable pageable);
+
+    @Query(selectUserDto + keysetOrder)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<UserDTO> streamAllUsers();
+
+    @Query(selectUserDto + "where u.role = :role" + keysetOrder)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<UserDTO> streamAllUsersByRole(@Param("role") UserRole role);
 
 //    Optional<User> findByEmail(String email);
 //    boolean existsByEmail(String email);
-}
\ No newline at end of file
+}
@@ -5,6 +5,7 @@ import com.example.events.exception.TokenBlacklistedException;
 import com.example.events.exception.TokenExpiredException;
 import com.example.events.repository.UserRepository;
 import com.example.events.service.RedisTokenBlacklistService;
+import com.example.events.service.UserTokenRevocationService;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -23,16 +24,19 @@ import java.util.Collections;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
     private final UserRepository userRepository;
     private final RedisTokenBlacklistService tokenBlacklistService;
+    private final UserTokenRevocationService userTokenRevocationService;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil,
+    public JwtAuthenticationFilter(VerifiedTokenCache verifiedTokenCache,
                                    UserRepository userRepository,
-                                   RedisTokenBlacklistService tokenBlacklistService) {
-        this.jwtUtil = jwtUtil;
+                                   RedisTokenBlacklistService tokenBlacklistService,
+                                   UserTokenRevocationService userTokenRevocationService) {
+        this.verifiedTokenCache = verifiedTokenCache;
         this.userRepository = userRepository;
         this.tokenBlacklistService = tokenBlacklistService;
+        this.userTokenRevocationService = userTokenRevocationService;
     }
 
     @Override
@@ -41,7 +45,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
+        JwtPrincipal principal = null;
         String jwt = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
@@ -54,7 +58,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
 
             try {
-                username = jwtUtil.extractUsername(jwt);
+                principal = verifiedTokenCache.verify(jwt);
             } catch (ExpiredJwtException e) {
                 logger.error("JWT Token has expired: " + e.getMessage());
                 request.setAttribute("tokenError", "Token has expired");
@@ -64,14 +68,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 request.setAttribute("tokenError", "Token processing failed");
                 throw new InvalidTokenException("Failed to process JWT token: " + e.getMessage());
             }
+
+            if (userTokenRevocationService.isRevoked(principal)) {
+                logger.warn("Attempted to use token issued before user-wide revocation");
+                request.setAttribute("tokenError", "Token has been invalidated. Please login again.");
+                throw new TokenBlacklistedException("This token has been invalidated. Please login again.");
+            }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if (principal != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            if (jwtUtil.validateToken(jwt, username)) {
+            if (principal.subject() != null && !principal.isExpired(System.currentTimeMillis())) {
 
-                String role = jwtUtil.extractUserRole(jwt);
-                String userId = jwtUtil.extractUserId(jwt);
+                String username = principal.subject();
+                String role = principal.role();
+                String userId = principal.userId();
 
                 SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + role.toUpperCase());
 
@@ -0,0 +1,15 @@
+package com.example.events.security;
+
+import java.util.Date;
+
+public record JwtPrincipal(String subject,
+                           String userId,
+                           String role,
+                           Date issuedAt,
+                           Date expiration,
+                           String jti) {
+
+    public boolean isExpired(long nowMillis) {
+        return expiration != null && expiration.getTime() <= nowMillis;
+    }
+}
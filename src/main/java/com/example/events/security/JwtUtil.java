@@ -1,9 +1,11 @@
 package com.example.events.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -16,14 +18,28 @@ import java.util.UUID;
 @Component
 public class JwtUtil {
 
+    // iat is truncated to the second; this carries the issue time to the millisecond for revocation checks
+    static final String issuedAtMillisClaim = "iatMs";
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    private Key signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
     }
 
     public String extractUsername(String token) {
@@ -47,10 +63,26 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
+    public JwtPrincipal parseToken(String token) {
+        Claims claims = extractAllClaims(token);
+        return new JwtPrincipal(
+                claims.getSubject(),
+                claims.get("userId", String.class),
+                claims.get("role", String.class),
+                issuedAt(claims),
+                claims.getExpiration(),
+                claims.getId()
+        );
+    }
+
+    // tokens issued before the claim existed fall back to iat
+    private static Date issuedAt(Claims claims) {
+        Long millis = claims.get(issuedAtMillisClaim, Long.class);
+        return millis != null ? new Date(millis) : claims.getIssuedAt();
+    }
+
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+        return parser
                 .parseClaimsJws(token)
                 .getBody();
     }
@@ -67,18 +99,21 @@ public class JwtUtil {
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
                 .setClaims(claims)
+                .claim(issuedAtMillisClaim, now)
                 .setSubject(subject)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
+                .setId(UUID.randomUUID().toString())
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        final JwtPrincipal principal = parseToken(token);
+        return (principal.subject().equals(username) && !principal.isExpired(System.currentTimeMillis()));
     }
 
     public Boolean validateToken(String token) {
@@ -89,4 +124,4 @@ public class JwtUtil {
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+package com.example.events.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class VerifiedTokenCache {
+
+    private final JwtUtil jwtUtil;
+    private final Cache<String, JwtPrincipal> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public VerifiedTokenCache(JwtUtil jwtUtil, @Value("${jwt.cache.max-size:10000}") long maxSize) {
+        this.jwtUtil = jwtUtil;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+    }
+
+    // parses and verifies the signature only the first time a token is seen
+    public JwtPrincipal verify(String token) {
+        JwtPrincipal principal = cache.getIfPresent(token);
+        if (principal != null && !principal.isExpired(System.currentTimeMillis())) {
+            hits.increment();
+            return principal;
+        }
+
+        misses.increment();
+        principal = jwtUtil.parseToken(token);
+        cache.put(token, principal);
+        return principal;
+    }
+
+    public void invalidate(String token) {
+        cache.invalidate(token);
+    }
+
+    // for monitoring
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    private static class UntilTokenExpiry implements Expiry<String, JwtPrincipal> {
+
+        @Override
+        public long expireAfterCreate(String token, JwtPrincipal principal, long currentTime) {
+            if (principal.expiration() == null) {
+                return Long.MAX_VALUE;
+            }
+            long remainingMillis = principal.expiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, principal, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
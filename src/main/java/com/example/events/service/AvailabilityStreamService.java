@@ -0,0 +1,330 @@
+package com.example.events.service;
+
+import com.example.events.DTO.AvailabilityUpdate;
+import com.example.events.exception.ServiceBusyException;
+import com.example.events.repository.EventRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.example.events.service.TicketReservationService.inventoryPrefix;
+
+// pushes live availability over SSE. Writers mark events as changed; each tick publishes the changed ids once on
+// Redis, and every node then reads each changed count once and fans it out to its own connections
+@Service
+public class AvailabilityStreamService implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityStreamService.class);
+
+    private static final String channel = "availability:changed";
+    private static final AvailabilityUpdate heartbeat = new AvailabilityUpdate(null, null, null);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final EventCatalogueService eventCatalogueService;
+    private final EventRepository eventRepository;
+    private final boolean redisInventory;
+    private final int maxConnections;
+    private final long timeoutMillis;
+    private final long sendTimeoutMillis;
+
+    private final Set<Integer> changed = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> received = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ExecutorService writers;
+    private final ExecutorService senders;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder stalled = new LongAdder();
+
+    public AvailabilityStreamService(RedisTemplate<String, String> redisTemplate,
+                                     RedisMessageListenerContainer listenerContainer,
+                                     EventCatalogueService eventCatalogueService,
+                                     EventRepository eventRepository,
+                                     @Value("${tickets.purchase.mode:redis}") String purchaseMode,
+                                     @Value("${availability.stream.max-connections:10000}") int maxConnections,
+                                     @Value("${availability.stream.timeout-ms:1800000}") long timeoutMillis,
+                                     @Value("${availability.stream.writer-threads:4}") int writerThreads,
+                                     @Value("${availability.stream.send-timeout-ms:5000}") long sendTimeoutMillis,
+                                     @Value("${availability.stream.sender-threads:64}") int senderThreads) {
+        this.redisTemplate = redisTemplate;
+        this.eventCatalogueService = eventCatalogueService;
+        this.eventRepository = eventRepository;
+        this.redisInventory = !"database".equalsIgnoreCase(purchaseMode);
+        this.maxConnections = maxConnections;
+        this.timeoutMillis = timeoutMillis;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "availability-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // a stalled client is dropped after its first timed-out send, but its write stays blocked until the
+        // container's write timeout frees the thread; once every sender is stuck that way, further sends are refused
+        // and their clients dropped rather than growing the pool without limit
+        this.senders = new ThreadPoolExecutor(0, senderThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "availability-send");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writers.shutdown();
+        senders.shutdownNow();
+    }
+
+    public SseEmitter subscribe(Integer eventId) {
+        eventCatalogueService.getEvent(eventId);
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            rejected.increment();
+            throw new ServiceBusyException("Too many live availability streams, please retry", 5);
+        }
+
+        SseEmitter emitter = newEmitter();
+        Subscriber subscriber = new Subscriber(eventId, emitter);
+        subscribers.computeIfAbsent(eventId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+
+        subscriber.offer(new AvailabilityUpdate(eventId, currentAvailability(eventId), System.currentTimeMillis()));
+        return emitter;
+    }
+
+    // the timeout is this response's own, so long-lived streams do not need a long global async timeout
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    // called on every availability change; cheap enough for the purchase path since it only marks the event
+    public void changed(Integer eventId) {
+        changed.add(eventId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        for (String id : new String(message.getBody(), StandardCharsets.UTF_8).split(",")) {
+            try {
+                Integer eventId = Integer.valueOf(id);
+                if (subscribers.containsKey(eventId)) {
+                    received.add(eventId);
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed availability change: {}", id);
+            }
+        }
+    }
+
+    // one tick is the coalescing window: an event produces at most one message per connection per tick
+    @Scheduled(fixedDelayString = "${availability.stream.coalesce-ms:250}")
+    public void tick() {
+        List<Integer> local = drain(changed);
+        if (!local.isEmpty()) {
+            try {
+                redisTemplate.convertAndSend(channel, String.join(",", local.stream().map(String::valueOf).toList()));
+                published.increment();
+            } catch (Exception e) {
+                // this node's own subscribers still see the change even if the broadcast fails
+                log.warn("Failed to broadcast availability changes: {}", e.getMessage());
+                local.stream().filter(subscribers::containsKey).forEach(received::add);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        for (Integer eventId : drain(received)) {
+            Set<Subscriber> listeners = subscribers.get(eventId);
+            if (listeners == null || listeners.isEmpty()) {
+                continue;
+            }
+            try {
+                AvailabilityUpdate update = new AvailabilityUpdate(eventId, currentAvailability(eventId), now);
+                listeners.forEach(subscriber -> subscriber.offer(update));
+            } catch (Exception e) {
+                log.warn("Failed to read availability for event {}: {}", eventId, e.getMessage());
+            }
+        }
+    }
+
+    // keeps idle connections from being cut by proxies and finds the ones that went away
+    @Scheduled(fixedDelayString = "${availability.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(listeners -> listeners.forEach(Subscriber::ping));
+    }
+
+    private long currentAvailability(Integer eventId) {
+        if (redisInventory) {
+            String value = redisTemplate.opsForValue().get(inventoryPrefix + eventId);
+            if (value != null) {
+                return Long.parseLong(value);
+            }
+        }
+        return eventRepository.findAvailableTicketsById(eventId).orElse(0);
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connections.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.eventId, (id, listeners) -> {
+            listeners.remove(subscriber);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+
+    private static List<Integer> drain(Set<Integer> ids) {
+        List<Integer> drained = new ArrayList<>();
+        for (Integer id : ids) {
+            if (ids.remove(id)) {
+                drained.add(id);
+            }
+        }
+        return drained;
+    }
+
+    // holds at most one unsent update: a slow client skips intermediate counts instead of queueing them
+    private final class Subscriber {
+        private final Integer eventId;
+        private final SseEmitter emitter;
+        private final AtomicReference<AvailabilityUpdate> pending = new AtomicReference<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(Integer eventId, SseEmitter emitter) {
+            this.eventId = eventId;
+            this.emitter = emitter;
+        }
+
+        void offer(AvailabilityUpdate update) {
+            AvailabilityUpdate previous = pending.getAndSet(update);
+            if (previous != null && previous != heartbeat) {
+                conflated.increment();
+            }
+            schedule();
+        }
+
+        void ping() {
+            if (pending.compareAndSet(null, heartbeat)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                AvailabilityUpdate update = pending.getAndSet(null);
+                if (update == null) {
+                    scheduled.set(false);
+                    // an offer may have landed between the empty read and the flag reset
+                    if (pending.get() == null || !scheduled.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    send(update);
+                } catch (TimeoutException | RejectedExecutionException e) {
+                    stalled.increment();
+                    remove(this);
+                    emitter.completeWithError(e);
+                    return;
+                } catch (Exception e) {
+                    remove(this);
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+
+        // a client that stops reading blocks its write; the wait is bounded so it cannot hold a writer thread and
+        // stall every other connection behind it
+        private void send(AvailabilityUpdate update) throws Exception {
+            Future<?> write = senders.submit(() -> {
+                if (update == heartbeat) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    emitter.send(SseEmitter.event().name("availability").data(update, MediaType.APPLICATION_JSON));
+                    sent.increment();
+                }
+                return null;
+            });
+            try {
+                write.get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                write.cancel(true);
+                throw e;
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+    }
+
+    // for monitoring
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    public long getConflatedCount() {
+        return conflated.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    // clients dropped because a send timed out or no sender thread was free
+    public long getStalledCount() {
+        return stalled.sum();
+    }
+}
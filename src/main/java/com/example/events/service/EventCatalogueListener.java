@@ -0,0 +1,13 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+
+import java.util.Collection;
+
+// secondary indexes that follow the catalogue refreshes instead of polling the database themselves
+public interface EventCatalogueListener {
+
+    void onEventsChanged(Collection<EventDTO> changed, Collection<Integer> removed);
+
+    void onCatalogueRebuilt(Collection<EventDTO> events);
+}
@@ -0,0 +1,194 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.RatingSummaryDTO;
+import com.example.events.exception.EventNotFoundException;
+import com.example.events.model.Event;
+import com.example.events.model.EventCategory;
+import com.example.events.repository.EventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Service
+public class EventCatalogueService {
+
+    private static final Logger log = LoggerFactory.getLogger(EventCatalogueService.class);
+
+    private static final int maxPageSize = 500;
+
+    private final EventRepository eventRepository;
+    private final List<EventCatalogueListener> listeners;
+    private final RatingAggregates ratingAggregates;
+    private final long overlapMillis;
+    private final long fullRebuildIntervalMillis;
+
+    private volatile EventCatalogueSnapshot snapshot = EventCatalogueSnapshot.EMPTY;
+    private volatile long lastRefreshAt = 0;
+    private volatile long lastFullRebuildAt = 0;
+
+    public EventCatalogueService(EventRepository eventRepository,
+                                 List<EventCatalogueListener> listeners,
+                                 RatingAggregates ratingAggregates,
+                                 @Value("${catalogue.refresh-overlap-ms:5000}") long overlapMillis,
+                                 @Value("${catalogue.full-rebuild-interval-ms:600000}") long fullRebuildIntervalMillis) {
+        this.eventRepository = eventRepository;
+        this.listeners = listeners;
+        this.ratingAggregates = ratingAggregates;
+        this.overlapMillis = overlapMillis;
+        this.fullRebuildIntervalMillis = fullRebuildIntervalMillis;
+    }
+
+    public List<EventDTO> findEvents(EventCategory category, boolean finished, LocalDate from, LocalDate to, int limit) {
+        return snapshot.query(category, finished, from, to, Math.max(1, Math.min(limit, maxPageSize))).stream()
+                .map(this::withRating)
+                .toList();
+    }
+
+    public EventDTO getEvent(Integer id) {
+        EventDTO event = snapshot.get(id);
+        if (event == null) {
+            throw new EventNotFoundException("Event not found with id: " + id);
+        }
+        return withRating(event);
+    }
+
+    // snapshot entries are shared and compared on refresh, so ratings go on a copy
+    private EventDTO withRating(EventDTO event) {
+        RatingSummaryDTO rating = ratingAggregates.getSummary(event.getId());
+        return event.toBuilder()
+                .averageRating(rating.getCount() == 0 ? null : rating.getAverage())
+                .reviewCount(rating.getCount())
+                .build();
+    }
+
+    // re-reads a small window before the watermark so rows committed out of updated_at order are not missed;
+    // deleted rows leave no trace there, so a row count that falls short of the snapshot triggers an id diff
+    @Scheduled(initialDelayString = "0", fixedDelayString = "${catalogue.refresh-interval-ms:2000}")
+    public void refresh() {
+        try {
+            long now = System.currentTimeMillis();
+            EventCatalogueSnapshot current = snapshot;
+            if (current.getWatermark() == null || now - lastFullRebuildAt >= fullRebuildIntervalMillis) {
+                rebuild();
+                return;
+            }
+
+            LocalDateTime since = current.getWatermark().minusNanos(overlapMillis * 1_000_000);
+            List<EventDTO> changed = new ArrayList<>();
+            for (Event event : eventRepository.findByUpdatedAtAfterOrderByUpdatedAt(since)) {
+                EventDTO dto = convertToDTO(event);
+                if (!dto.equals(current.get(dto.getId()))) {
+                    changed.add(dto);
+                }
+            }
+
+            List<Integer> removed = findRemoved(current, changed);
+            snapshot = current.apply(changed, removed);
+            lastRefreshAt = now;
+            if (!changed.isEmpty() || !removed.isEmpty()) {
+                notifyListeners(listener -> listener.onEventsChanged(changed, removed));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to refresh event catalogue: {}", e.getMessage());
+        }
+    }
+
+    private List<Integer> findRemoved(EventCatalogueSnapshot current, List<EventDTO> changed) {
+        long added = changed.stream().filter(event -> current.get(event.getId()) == null).count();
+        if (eventRepository.count() == current.size() + added) {
+            return List.of();
+        }
+        Set<Integer> ids = new HashSet<>(eventRepository.findAllIds());
+        return current.all().stream()
+                .map(EventDTO::getId)
+                .filter(id -> !ids.contains(id))
+                .toList();
+    }
+
+    public void rebuild() {
+        long now = System.currentTimeMillis();
+        snapshot = EventCatalogueSnapshot.of(eventRepository.findAllByOrderByUpdatedAt().stream()
+                .map(this::convertToDTO)
+                .toList());
+        lastRefreshAt = now;
+        lastFullRebuildAt = now;
+        Collection<EventDTO> events = snapshot.all();
+        notifyListeners(listener -> listener.onCatalogueRebuilt(events));
+    }
+
+    private void notifyListeners(Consumer<EventCatalogueListener> notification) {
+        for (EventCatalogueListener listener : listeners) {
+            try {
+                notification.accept(listener);
+            } catch (Exception e) {
+                log.warn("Event catalogue listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    Collection<EventDTO> allEvents() {
+        return snapshot.all();
+    }
+
+    // the shared snapshot entry without ratings, or null; for hot paths that only need the event's own fields
+    EventDTO findCachedEvent(Integer id) {
+        return snapshot.get(id);
+    }
+
+    // for monitoring
+    public int getSize() {
+        return snapshot.size();
+    }
+
+    public long getFootprintBytes() {
+        return snapshot.getFootprintBytes();
+    }
+
+    public long getRefreshLagMillis() {
+        return lastRefreshAt == 0 ? -1 : System.currentTimeMillis() - lastRefreshAt;
+    }
+
+    public long getWatermarkLagMillis() {
+        LocalDateTime watermark = snapshot.getWatermark();
+        if (watermark == null) {
+            return -1;
+        }
+        return System.currentTimeMillis() - watermark.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private EventDTO convertToDTO(Event event) {
+        return EventDTO.builder()
+                .id(event.getId())
+                .title(event.getTitle())
+                .date(event.getDate())
+                .location(event.getLocation())
+                .description(event.getDescription())
+                .longDescription(event.getLongDescription())
+                .price(event.getPrice())
+                .category(event.getCategory())
+                .image(event.getImage())
+                .organizer(event.getOrganizer())
+                .startTime(event.getStartTime())
+                .endTime(event.getEndTime())
+                .availableTickets(event.getAvailableTickets())
+                .totalTickets(event.getTotalTickets())
+                .latitude(event.getLatitude())
+                .longitude(event.getLongitude())
+                .finished(Boolean.TRUE.equals(event.getFinished()))
+                .updatedAt(event.getUpdatedAt())
+                .build();
+    }
+}
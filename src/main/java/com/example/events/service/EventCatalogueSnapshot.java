@@ -0,0 +1,177 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.model.EventCategory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// immutable; every refresh builds a new snapshot that shares the buckets it did not touch
+final class EventCatalogueSnapshot {
+
+    private static final EventCategory[] categories = EventCategory.values();
+    private static final Comparator<EventDTO> order = Comparator.comparing(EventDTO::getDate)
+            .thenComparing(EventDTO::getStartTime)
+            .thenComparing(EventDTO::getId);
+    private static final EventDTO[] empty = new EventDTO[0];
+
+    static final EventCatalogueSnapshot EMPTY = new EventCatalogueSnapshot(Map.of(), emptyBuckets(), null);
+
+    private final Map<Integer, EventDTO> byId;
+    // index = (category ordinal + 1, or 0 for all categories) * 2 + (finished ? 1 : 0)
+    private final EventDTO[][] buckets;
+    private final LocalDateTime watermark;
+    private final long footprintBytes;
+
+    private EventCatalogueSnapshot(Map<Integer, EventDTO> byId, EventDTO[][] buckets, LocalDateTime watermark) {
+        this.byId = byId;
+        this.buckets = buckets;
+        this.watermark = watermark;
+        this.footprintBytes = estimateFootprint(byId.values());
+    }
+
+    static EventCatalogueSnapshot of(Collection<EventDTO> events) {
+        return EMPTY.apply(events, Set.of());
+    }
+
+    EventCatalogueSnapshot apply(Collection<EventDTO> changed, Collection<Integer> removed) {
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return this;
+        }
+
+        Map<Integer, EventDTO> nextById = new HashMap<>(byId);
+        Set<Integer> replacedIds = new HashSet<>(removed);
+        boolean[] touched = new boolean[buckets.length];
+        LocalDateTime nextWatermark = watermark;
+
+        for (Integer id : removed) {
+            EventDTO previous = nextById.remove(id);
+            if (previous != null) {
+                markBuckets(touched, previous);
+            }
+        }
+        for (EventDTO event : changed) {
+            EventDTO previous = nextById.put(event.getId(), event);
+            if (previous != null) {
+                markBuckets(touched, previous);
+            }
+            markBuckets(touched, event);
+            replacedIds.add(event.getId());
+            if (event.getUpdatedAt() != null && (nextWatermark == null || event.getUpdatedAt().isAfter(nextWatermark))) {
+                nextWatermark = event.getUpdatedAt();
+            }
+        }
+
+        EventDTO[][] nextBuckets = buckets.clone();
+        for (int bucket = 0; bucket < nextBuckets.length; bucket++) {
+            if (!touched[bucket]) {
+                continue;
+            }
+            List<EventDTO> entries = new ArrayList<>();
+            for (EventDTO event : buckets[bucket]) {
+                if (!replacedIds.contains(event.getId())) {
+                    entries.add(event);
+                }
+            }
+            for (EventDTO event : changed) {
+                if (belongsTo(bucket, event)) {
+                    entries.add(event);
+                }
+            }
+            entries.sort(order);
+            nextBuckets[bucket] = entries.toArray(empty);
+        }
+
+        return new EventCatalogueSnapshot(Collections.unmodifiableMap(nextById), nextBuckets, nextWatermark);
+    }
+
+    EventDTO get(Integer id) {
+        return byId.get(id);
+    }
+
+    List<EventDTO> query(EventCategory category, boolean finished, LocalDate from, LocalDate to, int limit) {
+        EventDTO[] bucket = buckets[bucketIndex(category, finished)];
+        List<EventDTO> result = new ArrayList<>(Math.min(limit, bucket.length));
+        for (int i = from == null ? 0 : lowerBound(bucket, from); i < bucket.length && result.size() < limit; i++) {
+            if (to != null && bucket[i].getDate().isAfter(to)) {
+                break;
+            }
+            result.add(bucket[i]);
+        }
+        return result;
+    }
+
+    Collection<EventDTO> all() {
+        return byId.values();
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    long getFootprintBytes() {
+        return footprintBytes;
+    }
+
+    private static int lowerBound(EventDTO[] bucket, LocalDate from) {
+        int low = 0;
+        int high = bucket.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bucket[mid].getDate().isBefore(from)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void markBuckets(boolean[] touched, EventDTO event) {
+        touched[bucketIndex(null, event.isFinished())] = true;
+        touched[bucketIndex(event.getCategory(), event.isFinished())] = true;
+    }
+
+    private static boolean belongsTo(int bucket, EventDTO event) {
+        return bucket == bucketIndex(null, event.isFinished())
+                || bucket == bucketIndex(event.getCategory(), event.isFinished());
+    }
+
+    private static int bucketIndex(EventCategory category, boolean finished) {
+        return (category == null ? 0 : category.ordinal() + 1) * 2 + (finished ? 1 : 0);
+    }
+
+    private static EventDTO[][] emptyBuckets() {
+        EventDTO[][] buckets = new EventDTO[(categories.length + 1) * 2][];
+        Arrays.fill(buckets, empty);
+        return buckets;
+    }
+
+    // rough shallow estimate: object headers and fields plus string contents, and two bucket slots per event
+    private static long estimateFootprint(Collection<EventDTO> events) {
+        long bytes = 0;
+        for (EventDTO event : events) {
+            bytes += 400 + 2L * (length(event.getTitle()) + length(event.getLocation()) + length(event.getDescription())
+                    + length(event.getLongDescription()) + length(event.getImage()) + length(event.getOrganizer()));
+        }
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.NearbyEventDTO;
+import com.example.events.exception.InvalidLocationException;
+import com.example.events.model.EventCategory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// uniform lat/lon grid over upcoming events; a query only visits the cells its area or search ring overlaps
+@Component
+public class EventGeoIndex implements EventCatalogueListener {
+
+    private static final double earthRadiusKm = 6371.0088;
+    private static final double kmPerDegree = Math.PI * earthRadiusKm / 180;
+    private static final int maxResults = 500;
+    private static final Comparator<NearbyEventDTO> byDistance = Comparator.comparingDouble(NearbyEventDTO::getDistanceKm);
+    private static final Comparator<EventDTO> bySchedule = Comparator.comparing(EventDTO::getDate)
+            .thenComparing(EventDTO::getStartTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(EventDTO::getId);
+
+    private final double cellDegrees;
+    private final int rows;
+    private final int cols;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Integer, Entry> byId = new HashMap<>();
+    private Map<Long, List<Entry>> cells = new HashMap<>();
+
+    public EventGeoIndex(@Value("${geo.cell-degrees:0.25}") double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+        this.rows = (int) Math.ceil(180 / cellDegrees);
+        this.cols = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    @Override
+    public void onEventsChanged(Collection<EventDTO> changed, Collection<Integer> removed) {
+        lock.writeLock().lock();
+        try {
+            removed.forEach(this::remove);
+            for (EventDTO event : changed) {
+                Entry existing = byId.get(event.getId());
+                boolean indexable = indexable(event);
+                // most changes are ticket counts; an event that stays where it is keeps its slot in the grid
+                if (existing != null && indexable && existing.latitude() == event.getLatitude().doubleValue()
+                        && existing.longitude() == event.getLongitude().doubleValue()) {
+                    existing.event = event;
+                    continue;
+                }
+                if (existing == null && !indexable) {
+                    continue;
+                }
+                remove(event.getId());
+                if (indexable) {
+                    add(byId, cells, event);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCatalogueRebuilt(Collection<EventDTO> events) {
+        Map<Integer, Entry> nextById = new HashMap<>();
+        Map<Long, List<Entry>> nextCells = new HashMap<>();
+        for (EventDTO event : events) {
+            if (indexable(event)) {
+                add(nextById, nextCells, event);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            byId = nextById;
+            cells = nextCells;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<NearbyEventDTO> findWithinRadius(double latitude, double longitude, double radiusKm,
+                                                 EventCategory category, LocalDate from, LocalDate to, int limit) {
+        checkPoint(latitude, longitude);
+        if (radiusKm <= 0) {
+            throw new InvalidLocationException("Radius must be positive");
+        }
+
+        double latSpan = radiusKm / kmPerDegree;
+        double maxAbsLat = Math.min(90, Math.abs(latitude) + latSpan);
+        double lonSpan = maxAbsLat >= 89.9 ? 180 : Math.min(180, latSpan / Math.cos(Math.toRadians(maxAbsLat)));
+
+        List<NearbyEventDTO> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (List<Entry> cell : cellsIn(latitude - latSpan, longitude - lonSpan, latitude + latSpan, longitude + lonSpan)) {
+                for (Entry entry : cell) {
+                    if (matches(entry.event(), category, from, to)) {
+                        double distance = distanceKm(latitude, longitude, entry.latitude(), entry.longitude());
+                        if (distance <= radiusKm) {
+                            result.add(new NearbyEventDTO(entry.event(), distance));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        result.sort(byDistance);
+        return result.subList(0, Math.min(result.size(), clampLimit(limit)));
+    }
+
+    public List<EventDTO> findWithinBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                                        EventCategory category, LocalDate from, LocalDate to, int limit) {
+        checkPoint(minLatitude, minLongitude);
+        checkPoint(maxLatitude, maxLongitude);
+        if (minLatitude > maxLatitude) {
+            throw new InvalidLocationException("Minimum latitude must not exceed maximum latitude");
+        }
+        // a box whose west edge is east of its east edge crosses the antimeridian
+        double east = maxLongitude < minLongitude ? maxLongitude + 360 : maxLongitude;
+
+        List<EventDTO> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (List<Entry> cell : cellsIn(minLatitude, minLongitude, maxLatitude, east)) {
+                for (Entry entry : cell) {
+                    double lon = entry.longitude() < minLongitude ? entry.longitude() + 360 : entry.longitude();
+                    if (entry.latitude() >= minLatitude && entry.latitude() <= maxLatitude && lon <= east
+                            && matches(entry.event(), category, from, to)) {
+                        result.add(entry.event());
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        result.sort(bySchedule);
+        return result.subList(0, Math.min(result.size(), clampLimit(limit)));
+    }
+
+    // widens the search one ring of cells at a time and stops once nothing outside the rings can beat the k-th hit
+    public List<NearbyEventDTO> findNearest(double latitude, double longitude, int k,
+                                            EventCategory category, LocalDate from, LocalDate to) {
+        checkPoint(latitude, longitude);
+        int limit = clampLimit(k);
+        PriorityQueue<NearbyEventDTO> nearest = new PriorityQueue<>(limit, byDistance.reversed());
+        int row = row(latitude);
+        int col = col(longitude);
+
+        lock.readLock().lock();
+        try {
+            for (int ring = 0; ; ring++) {
+                if (2 * ring + 1 >= cols || (long) (2 * ring + 1) * (2 * ring + 1) > 4L * cells.size()) {
+                    nearest.clear();
+                    for (List<Entry> cell : cells.values()) {
+                        offer(nearest, cell, latitude, longitude, limit, category, from, to);
+                    }
+                    break;
+                }
+
+                for (int r = row - ring; r <= row + ring; r++) {
+                    if (r < 0 || r >= rows) {
+                        continue;
+                    }
+                    boolean edge = r == row - ring || r == row + ring;
+                    for (int c = col - ring; c <= col + ring; c += edge ? 1 : 2 * Math.max(ring, 1)) {
+                        List<Entry> cell = cells.get(key(r, c));
+                        if (cell != null) {
+                            offer(nearest, cell, latitude, longitude, limit, category, from, to);
+                        }
+                    }
+                }
+
+                double edgeLat = Math.min(90, Math.abs(latitude) + (ring + 1) * cellDegrees);
+                double unvisitedKm = ring * cellDegrees * kmPerDegree * Math.cos(Math.toRadians(edgeLat));
+                if (nearest.size() == limit && nearest.peek().getDistanceKm() <= unvisitedKm) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<NearbyEventDTO> result = new ArrayList<>(nearest);
+        result.sort(byDistance);
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void offer(PriorityQueue<NearbyEventDTO> nearest, List<Entry> cell, double latitude, double longitude,
+                       int limit, EventCategory category, LocalDate from, LocalDate to) {
+        for (Entry entry : cell) {
+            if (!matches(entry.event(), category, from, to)) {
+                continue;
+            }
+            double distance = distanceKm(latitude, longitude, entry.latitude(), entry.longitude());
+            if (nearest.size() < limit) {
+                nearest.add(new NearbyEventDTO(entry.event(), distance));
+            } else if (distance < nearest.peek().getDistanceKm()) {
+                nearest.poll();
+                nearest.add(new NearbyEventDTO(entry.event(), distance));
+            }
+        }
+    }
+
+    private List<List<Entry>> cellsIn(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        int rowFrom = row(Math.max(-90, minLatitude));
+        int rowTo = row(Math.min(90, maxLatitude));
+        int colFrom = (int) Math.floor((minLongitude + 180) / cellDegrees);
+        int colTo = (int) Math.floor((maxLongitude + 180) / cellDegrees);
+        if (colTo - colFrom + 1 >= cols) {
+            colFrom = 0;
+            colTo = cols - 1;
+        }
+
+        List<List<Entry>> result = new ArrayList<>();
+        if ((long) (rowTo - rowFrom + 1) * (colTo - colFrom + 1) > cells.size()) {
+            for (Map.Entry<Long, List<Entry>> cell : cells.entrySet()) {
+                int r = (int) (cell.getKey() / cols);
+                int c = (int) (cell.getKey() % cols);
+                if (r >= rowFrom && r <= rowTo && (Math.floorMod(c - colFrom, cols) <= colTo - colFrom)) {
+                    result.add(cell.getValue());
+                }
+            }
+            return result;
+        }
+        for (int r = rowFrom; r <= rowTo; r++) {
+            for (int c = colFrom; c <= colTo; c++) {
+                List<Entry> cell = cells.get(key(r, c));
+                if (cell != null) {
+                    result.add(cell);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void add(Map<Integer, Entry> ids, Map<Long, List<Entry>> grid, EventDTO event) {
+        double latitude = event.getLatitude().doubleValue();
+        double longitude = event.getLongitude().doubleValue();
+        Entry entry = new Entry(event, latitude, longitude, key(row(latitude), col(longitude)));
+        ids.put(event.getId(), entry);
+        grid.computeIfAbsent(entry.cell(), cell -> new ArrayList<>()).add(entry);
+    }
+
+    private void remove(Integer id) {
+        Entry entry = byId.remove(id);
+        if (entry == null) {
+            return;
+        }
+        List<Entry> cell = cells.get(entry.cell());
+        for (int i = 0; i < cell.size(); i++) {
+            if (cell.get(i) == entry) {
+                cell.set(i, cell.get(cell.size() - 1));
+                cell.remove(cell.size() - 1);
+                break;
+            }
+        }
+        if (cell.isEmpty()) {
+            cells.remove(entry.cell());
+        }
+    }
+
+    private int row(double latitude) {
+        return Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellDegrees));
+    }
+
+    private int col(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), cols);
+    }
+
+    private long key(int row, int col) {
+        return (long) row * cols + Math.floorMod(col, cols);
+    }
+
+    private static boolean indexable(EventDTO event) {
+        return !event.isFinished() && event.getLatitude() != null && event.getLongitude() != null;
+    }
+
+    private static boolean matches(EventDTO event, EventCategory category, LocalDate from, LocalDate to) {
+        return (category == null || category == event.getCategory())
+                && (from == null || !event.getDate().isBefore(from))
+                && (to == null || !event.getDate().isAfter(to));
+    }
+
+    private static void checkPoint(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new InvalidLocationException("Latitude must be within [-90, 90] and longitude within [-180, 180]");
+        }
+    }
+
+    private static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, maxResults));
+    }
+
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * earthRadiusKm * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // the event is swapped in place, under the write lock, when only its non-spatial fields change
+    private static final class Entry {
+
+        private EventDTO event;
+        private final double latitude;
+        private final double longitude;
+        private final long cell;
+
+        private Entry(EventDTO event, double latitude, double longitude, long cell) {
+            this.event = event;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cell = cell;
+        }
+
+        EventDTO event() {
+            return event;
+        }
+
+        double latitude() {
+            return latitude;
+        }
+
+        double longitude() {
+            return longitude;
+        }
+
+        long cell() {
+            return cell;
+        }
+    }
+}
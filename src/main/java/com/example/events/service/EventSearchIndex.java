@@ -0,0 +1,466 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.EventSearchResult;
+import com.example.events.model.EventCategory;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// inverted index over title, description and long description of upcoming events, ranked with BM25 over
+// field-weighted term frequencies; the last query term also matches as a prefix so it doubles as autocomplete
+@Component
+public class EventSearchIndex implements EventCatalogueListener {
+
+    private static final float titleWeight = 3f;
+    private static final float descriptionWeight = 1.5f;
+    private static final float longDescriptionWeight = 1f;
+    private static final float k1 = 1.2f;
+    private static final float b = 0.75f;
+    private static final int maxPrefixExpansions = 64;
+    private static final int maxResults = 100;
+    private static final int latencySamples = 4096;
+    private static final Set<String> stopWords = Set.of("a", "an", "and", "are", "as", "at", "be", "by", "for",
+            "from", "in", "is", "it", "of", "on", "or", "that", "the", "this", "to", "with");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private State state = new State();
+
+    private final long[] latencyMicros = new long[latencySamples];
+    private final AtomicLong searches = new AtomicLong();
+
+    @Override
+    public void onEventsChanged(Collection<EventDTO> changed, Collection<Integer> removed) {
+        lock.writeLock().lock();
+        try {
+            removed.forEach(state::remove);
+            for (EventDTO event : changed) {
+                EventDTO indexed = state.get(event.getId());
+                // most changes are ticket counts; postings only need rebuilding when the indexed text changes
+                if (indexed != null && !event.isFinished() && sameText(indexed, event)) {
+                    state.replace(event);
+                    continue;
+                }
+                if (indexed == null && event.isFinished()) {
+                    continue;
+                }
+                state.remove(event.getId());
+                if (!event.isFinished()) {
+                    state.add(event);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCatalogueRebuilt(Collection<EventDTO> events) {
+        State next = new State();
+        for (EventDTO event : events) {
+            if (!event.isFinished()) {
+                next.add(event);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            state = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<EventSearchResult> search(String query, EventCategory category, int limit) {
+        long start = System.nanoTime();
+        int k = Math.max(1, Math.min(limit, maxResults));
+        List<String> terms = new ArrayList<>();
+        tokenize(query, terms::add);
+        boolean prefixLast = !query.isEmpty() && Character.isLetterOrDigit(query.charAt(query.length() - 1));
+
+        List<EventSearchResult> results;
+        lock.readLock().lock();
+        try {
+            results = state.search(terms, prefixLast, category, k, scratch.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long n = searches.getAndIncrement();
+        latencyMicros[(int) (n % latencySamples)] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        return results;
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        List<String> terms = new ArrayList<>();
+        tokenize(prefix, terms::add);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return state.suggest(terms.get(terms.size() - 1), Math.max(1, Math.min(limit, maxResults)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // for monitoring
+    public long getSearchCount() {
+        return searches.get();
+    }
+
+    public long getLatencyP50Micros() {
+        return latencyPercentile(0.50);
+    }
+
+    public long getLatencyP95Micros() {
+        return latencyPercentile(0.95);
+    }
+
+    public long getLatencyP99Micros() {
+        return latencyPercentile(0.99);
+    }
+
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return state.terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long latencyPercentile(double percentile) {
+        int samples = (int) Math.min(searches.get(), latencySamples);
+        if (samples == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencyMicros, samples);
+        Arrays.sort(sorted);
+        return sorted[Math.min(samples - 1, (int) (samples * percentile))];
+    }
+
+    private static boolean sameText(EventDTO left, EventDTO right) {
+        return Objects.equals(left.getTitle(), right.getTitle())
+                && Objects.equals(left.getDescription(), right.getDescription())
+                && Objects.equals(left.getLongDescription(), right.getLongDescription())
+                && Objects.equals(left.getOrganizer(), right.getOrganizer())
+                && Objects.equals(left.getLocation(), right.getLocation());
+    }
+
+    static void tokenize(String text, Consumer<String> sink) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= normalized.length(); i++) {
+            char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (!token.isEmpty()) {
+                String term = token.toString();
+                token.setLength(0);
+                if (!stopWords.contains(term)) {
+                    sink.accept(term);
+                }
+            }
+        }
+    }
+
+    // slots are never reused; removed documents leave holes that postings skip and compact away lazily,
+    // and the periodic catalogue rebuild starts from a fresh state
+    private static final class State {
+        private final NavigableMap<String, Postings> terms = new TreeMap<>();
+        private final Map<Integer, Integer> slotById = new HashMap<>();
+        private EventDTO[] docs = new EventDTO[1024];
+        private float[] lengths = new float[1024];
+        private int slots;
+        private int live;
+        private double totalLength;
+
+        void add(EventDTO event) {
+            Map<String, Float> frequencies = new HashMap<>();
+            float[] length = {0};
+            Consumer<String> title = term -> count(frequencies, length, term, titleWeight);
+            Consumer<String> description = term -> count(frequencies, length, term, descriptionWeight);
+            Consumer<String> longDescription = term -> count(frequencies, length, term, longDescriptionWeight);
+            tokenize(event.getTitle(), title);
+            tokenize(event.getDescription(), description);
+            tokenize(event.getLongDescription(), longDescription);
+            tokenize(event.getOrganizer(), description);
+            tokenize(event.getLocation(), description);
+
+            if (slots == docs.length) {
+                docs = Arrays.copyOf(docs, slots * 2);
+                lengths = Arrays.copyOf(lengths, slots * 2);
+            }
+            int slot = slots++;
+            docs[slot] = event;
+            lengths[slot] = length[0];
+            slotById.put(event.getId(), slot);
+            live++;
+            totalLength += length[0];
+            frequencies.forEach((term, tf) -> terms.computeIfAbsent(term, t -> new Postings()).add(slot, tf));
+        }
+
+        EventDTO get(Integer id) {
+            Integer slot = slotById.get(id);
+            return slot == null ? null : docs[slot];
+        }
+
+        // same text, so the postings and length still hold; category and the returned fields come from the new copy
+        void replace(EventDTO event) {
+            docs[slotById.get(event.getId())] = event;
+        }
+
+        void remove(Integer id) {
+            Integer slot = slotById.remove(id);
+            if (slot == null) {
+                return;
+            }
+            EventDTO event = docs[slot];
+            docs[slot] = null;
+            live--;
+            totalLength -= lengths[slot];
+
+            Consumer<String> release = term -> {
+                Postings postings = terms.get(term);
+                if (postings != null && postings.release(slot)) {
+                    if (postings.live == 0) {
+                        terms.remove(term);
+                    } else if (postings.live * 2 < postings.size) {
+                        postings.compact(docs);
+                    }
+                }
+            };
+            tokenize(event.getTitle(), release);
+            tokenize(event.getDescription(), release);
+            tokenize(event.getLongDescription(), release);
+            tokenize(event.getOrganizer(), release);
+            tokenize(event.getLocation(), release);
+        }
+
+        List<EventSearchResult> search(List<String> queryTerms, boolean prefixLast, EventCategory category,
+                                       int k, Scratch scratch) {
+            if (queryTerms.isEmpty() || live == 0) {
+                return List.of();
+            }
+            scratch.ensure(slots);
+            float averageLength = (float) (totalLength / live);
+
+            for (int i = 0; i < queryTerms.size(); i++) {
+                String term = queryTerms.get(i);
+                if (prefixLast && i == queryTerms.size() - 1) {
+                    int expanded = 0;
+                    for (Map.Entry<String, Postings> entry : terms.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                        // an exact match counts fully; completions are discounted so they do not outrank it
+                        score(entry.getValue(), entry.getKey().equals(term) ? 1f : 0.7f, averageLength, category, scratch);
+                        if (++expanded == maxPrefixExpansions) {
+                            break;
+                        }
+                    }
+                } else {
+                    Postings postings = terms.get(term);
+                    if (postings != null) {
+                        score(postings, 1f, averageLength, category, scratch);
+                    }
+                }
+            }
+            return scratch.top(k, docs);
+        }
+
+        private void score(Postings postings, float boost, float averageLength, EventCategory category, Scratch scratch) {
+            float idf = (float) Math.log(1 + (live - postings.live + 0.5) / (postings.live + 0.5)) * boost;
+            for (int i = 0; i < postings.size; i++) {
+                int slot = postings.slots[i];
+                EventDTO event = docs[slot];
+                if (event == null || (category != null && event.getCategory() != category)) {
+                    continue;
+                }
+                float tf = postings.frequencies[i];
+                float norm = k1 * (1 - b + b * lengths[slot] / averageLength);
+                scratch.add(slot, idf * tf * (k1 + 1) / (tf + norm));
+            }
+        }
+
+        List<String> suggest(String prefix, int limit) {
+            List<Map.Entry<String, Postings>> matches = new ArrayList<>();
+            for (Map.Entry<String, Postings> entry : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).entrySet()) {
+                matches.add(entry);
+                if (matches.size() == maxPrefixExpansions * 4) {
+                    break;
+                }
+            }
+            matches.sort((left, right) -> Integer.compare(right.getValue().live, left.getValue().live));
+            return matches.stream().limit(limit).map(Map.Entry::getKey).toList();
+        }
+
+        private static void count(Map<String, Float> frequencies, float[] length, String term, float weight) {
+            frequencies.merge(term, weight, Float::sum);
+            length[0] += weight;
+        }
+    }
+
+    private static final class Postings {
+        private int[] slots = new int[2];
+        private float[] frequencies = new float[2];
+        private int size;
+        private int live;
+
+        void add(int slot, float frequency) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            slots[size] = slot;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+
+        // slots are handed out in increasing order and compaction keeps that order, so postings stay sorted;
+        // a document repeats a term across fields, so only the first release per slot counts
+        boolean release(int slot) {
+            int i = Arrays.binarySearch(slots, 0, size, slot);
+            if (i < 0 || frequencies[i] < 0) {
+                return false;
+            }
+            frequencies[i] = -1;
+            live--;
+            return true;
+        }
+
+        void compact(EventDTO[] docs) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (docs[slots[i]] != null && frequencies[i] >= 0) {
+                    slots[kept] = slots[i];
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+    }
+
+    // per-thread score accumulators, so a query allocates only its result list
+    private static final class Scratch {
+        private float[] scores = new float[0];
+        private int[] touched = new int[0];
+        private int touchedCount;
+        private int[] heapSlots = new int[maxResults];
+        private float[] heapScores = new float[maxResults];
+
+        void ensure(int slots) {
+            if (scores.length < slots) {
+                scores = new float[slots * 2];
+                touched = new int[slots * 2];
+            }
+        }
+
+        void add(int slot, float score) {
+            if (scores[slot] == 0) {
+                touched[touchedCount++] = slot;
+            }
+            scores[slot] += score;
+        }
+
+        List<EventSearchResult> top(int k, EventDTO[] docs) {
+            int heapSize = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int slot = touched[i];
+                float score = scores[slot];
+                scores[slot] = 0;
+                if (heapSize < k) {
+                    heapSlots[heapSize] = slot;
+                    heapScores[heapSize] = score;
+                    siftUp(heapSize++);
+                } else if (score > heapScores[0]) {
+                    heapSlots[0] = slot;
+                    heapScores[0] = score;
+                    siftDown(0, heapSize);
+                }
+            }
+            touchedCount = 0;
+
+            EventSearchResult[] results = new EventSearchResult[heapSize];
+            for (int i = heapSize - 1; i >= 0; i--) {
+                results[i] = new EventSearchResult(docs[heapSlots[0]], heapScores[0]);
+                heapSlots[0] = heapSlots[i];
+                heapScores[0] = heapScores[i];
+                siftDown(0, i);
+            }
+            return Arrays.asList(results);
+        }
+
+        // min-heap on score, so the weakest of the current top k sits at the root
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (heapScores[parent] <= heapScores[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int size) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && heapScores[left] < heapScores[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && heapScores[right] < heapScores[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int slot = heapSlots[i];
+            heapSlots[i] = heapSlots[j];
+            heapSlots[j] = slot;
+            float score = heapScores[i];
+            heapScores[i] = heapScores[j];
+            heapScores[j] = score;
+        }
+    }
+}
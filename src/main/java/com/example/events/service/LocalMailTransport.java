@@ -0,0 +1,64 @@
+package com.example.events.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+// development stand-in: every message becomes an .eml file in a local directory
+@Component
+@ConditionalOnProperty(name = "delivery.mail.transport", havingValue = "local", matchIfMissing = true)
+public class LocalMailTransport implements MailTransport {
+
+    private final Session session = Session.getInstance(new Properties());
+    private final Path directory;
+    private final InternetAddress from;
+
+    public LocalMailTransport(@Value("${delivery.mail.directory:data/mail}") String directory,
+                              @Value("${delivery.mail.from:tickets@localhost}") String from) {
+        this.directory = Path.of(directory);
+        this.from = MailTransport.sender(from);
+    }
+
+    @Override
+    public SendResult send(List<MailMessage> messages) {
+        Set<String> accepted = new HashSet<>();
+        Map<String, String> rejected = new HashMap<>();
+        for (MailMessage message : messages) {
+            MimeMessage mime = new MimeMessage(session);
+            try {
+                MailTransport.fill(mime, from, message);
+            } catch (MessagingException e) {
+                rejected.put(message.id(), "Invalid message: " + e.getMessage());
+                continue;
+            }
+            try {
+                Files.createDirectories(directory);
+                Path temp = Files.createTempFile(directory, message.id(), ".tmp");
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    mime.writeTo(out);
+                }
+                Files.move(temp, directory.resolve(message.id() + ".eml"), StandardCopyOption.REPLACE_EXISTING);
+                accepted.add(message.id());
+            } catch (IOException | MessagingException e) {
+                // a full or unwritable directory is retried like a mail server that is down
+            }
+        }
+        return new SendResult(accepted, rejected);
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.events.service;
+
+import com.example.events.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class LoginThrottleService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginThrottleService.class);
+
+    private static final String bucketPrefix = "login:bucket:";
+    private static final String failurePrefix = "login:failures:";
+    private static final String lockPrefix = "login:lock:";
+    private static final String slowdownPrefix = "login:slow:";
+
+    // KEYS: account bucket, ip bucket, account lock, ip lock, name failure window, name slow-down
+    // ARGV: account capacity, account refill per ms, ip capacity, ip refill per ms, window ms, name max failures,
+    //       slow-down ms
+    // returns the wait in ms for the account, the ip and the name, all 0 when a token was taken from each bucket
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> acquireScript = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local waits = {}
+            local tokens = {}
+            for i = 1, 2 do
+                local capacity = tonumber(ARGV[i * 2 - 1])
+                local refill = tonumber(ARGV[i * 2])
+                local lock = redis.call('PTTL', KEYS[i + 2])
+                local state = redis.call('HMGET', KEYS[i], 'tokens', 'ts')
+                local available = tonumber(state[1]) or capacity
+                local ts = tonumber(state[2]) or now
+                available = math.min(capacity, available + (now - ts) * refill)
+                tokens[i] = available
+                if lock > 0 then
+                    waits[i] = lock
+                elseif available < 1 then
+                    waits[i] = math.ceil((1 - available) / refill)
+                else
+                    waits[i] = 0
+                end
+            end
+            local allowed = waits[1] == 0 and waits[2] == 0
+            -- once a name has failed too often across all addresses, every address shares one attempt per slow-down
+            waits[3] = 0
+            if allowed and redis.call('ZCOUNT', KEYS[5], now - tonumber(ARGV[5]), '+inf') >= tonumber(ARGV[6]) then
+                if not redis.call('SET', KEYS[6], '1', 'PX', ARGV[7], 'NX') then
+                    waits[3] = math.max(1, redis.call('PTTL', KEYS[6]))
+                    allowed = false
+                end
+            end
+            for i = 1, 2 do
+                local capacity = tonumber(ARGV[i * 2 - 1])
+                local refill = tonumber(ARGV[i * 2])
+                local available = tokens[i]
+                if allowed then
+                    available = available - 1
+                end
+                redis.call('HSET', KEYS[i], 'tokens', tostring(available), 'ts', now)
+                redis.call('PEXPIRE', KEYS[i], math.ceil(capacity / refill))
+            end
+            return waits
+            """, List.class);
+
+    // KEYS: failure window and lock key pairs, then the name's failure window, which is counted but never locks
+    // ARGV: window ms, max failures, lockout ms
+    // returns how many of the pairs were locked by this failure
+    private static final RedisScript<Long> failureScript = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local window = tonumber(ARGV[1])
+            local member = time[1] .. time[2] .. ':' .. math.random()
+            local locked = 0
+            for i = 1, #KEYS do
+                redis.call('ZADD', KEYS[i], now, member)
+                redis.call('ZREMRANGEBYSCORE', KEYS[i], 0, now - window)
+                redis.call('PEXPIRE', KEYS[i], window)
+            end
+            for i = 1, #KEYS - 1, 2 do
+                if redis.call('ZCARD', KEYS[i]) >= tonumber(ARGV[2]) then
+                    redis.call('SET', KEYS[i + 1], '1', 'PX', ARGV[3])
+                    redis.call('DEL', KEYS[i])
+                    locked = locked + 1
+                end
+            end
+            return locked
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Cache<String, Long> blockedUntil;
+
+    private final long userCapacity;
+    private final double userRefillPerMs;
+    private final long ipCapacity;
+    private final double ipRefillPerMs;
+    private final long failureWindowMillis;
+    private final long maxFailures;
+    private final long lockoutMillis;
+    private final long nameMaxFailures;
+    private final long nameSlowdownMillis;
+
+    private final LongAdder localRejects = new LongAdder();
+    private final LongAdder userRejects = new LongAdder();
+    private final LongAdder ipRejects = new LongAdder();
+    private final LongAdder lockouts = new LongAdder();
+    private final LongAdder nameRejects = new LongAdder();
+
+    public LoginThrottleService(RedisTemplate<String, String> redisTemplate,
+                                @Value("${login.throttle.user.capacity:5}") long userCapacity,
+                                @Value("${login.throttle.user.refill-per-minute:5}") double userRefillPerMinute,
+                                @Value("${login.throttle.ip.capacity:20}") long ipCapacity,
+                                @Value("${login.throttle.ip.refill-per-minute:20}") double ipRefillPerMinute,
+                                @Value("${login.throttle.failure-window-seconds:900}") long failureWindowSeconds,
+                                @Value("${login.throttle.max-failures:10}") long maxFailures,
+                                @Value("${login.throttle.lockout-seconds:900}") long lockoutSeconds,
+                                @Value("${login.throttle.name.max-failures:50}") long nameMaxFailures,
+                                @Value("${login.throttle.name.slowdown-seconds:5}") long nameSlowdownSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.userCapacity = userCapacity;
+        this.userRefillPerMs = userRefillPerMinute / 60_000d;
+        this.ipCapacity = ipCapacity;
+        this.ipRefillPerMs = ipRefillPerMinute / 60_000d;
+        this.failureWindowMillis = TimeUnit.SECONDS.toMillis(failureWindowSeconds);
+        this.maxFailures = maxFailures;
+        this.lockoutMillis = TimeUnit.SECONDS.toMillis(lockoutSeconds);
+        this.nameMaxFailures = nameMaxFailures;
+        this.nameSlowdownMillis = TimeUnit.SECONDS.toMillis(nameSlowdownSeconds);
+        this.blockedUntil = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(Math.max(lockoutMillis, 60_000)))
+                .build();
+    }
+
+    // the name's bucket is per address too, so nobody can drain it to keep the owner from logging in; guessing one
+    // name from many addresses only slows that name down
+    public void checkAllowed(String username, String clientIp) {
+        String nameKey = userKey(username);
+        String accountKey = accountKey(username, clientIp);
+        String ipKey = "ip:" + clientIp;
+        long now = System.currentTimeMillis();
+
+        long localWait = Math.max(Math.max(localWait(accountKey, now), localWait(ipKey, now)), localWait(nameKey, now));
+        if (localWait > 0) {
+            localRejects.increment();
+            throw rejection(localWait);
+        }
+
+        List<?> waits;
+        try {
+            waits = redisTemplate.execute(acquireScript,
+                    List.of(bucketPrefix + accountKey, bucketPrefix + ipKey, lockPrefix + accountKey, lockPrefix + ipKey,
+                            failurePrefix + nameKey, slowdownPrefix + nameKey),
+                    Long.toString(userCapacity), Double.toString(userRefillPerMs),
+                    Long.toString(ipCapacity), Double.toString(ipRefillPerMs),
+                    Long.toString(failureWindowMillis), Long.toString(nameMaxFailures), Long.toString(nameSlowdownMillis));
+        } catch (Exception e) {
+            log.warn("Login throttle unavailable, allowing attempt: {}", e.getMessage());
+            return;
+        }
+        if (waits == null || waits.size() < 3) {
+            return;
+        }
+
+        long userWait = ((Number) waits.get(0)).longValue();
+        long ipWait = ((Number) waits.get(1)).longValue();
+        long nameWait = ((Number) waits.get(2)).longValue();
+        if (userWait > 0) {
+            userRejects.increment();
+            blockedUntil.put(accountKey, now + userWait);
+        }
+        if (ipWait > 0) {
+            ipRejects.increment();
+            blockedUntil.put(ipKey, now + ipWait);
+        }
+        if (nameWait > 0) {
+            nameRejects.increment();
+            blockedUntil.put(nameKey, now + nameWait);
+        }
+        if (userWait > 0 || ipWait > 0 || nameWait > 0) {
+            throw rejection(Math.max(Math.max(userWait, ipWait), nameWait));
+        }
+    }
+
+    // failures lock the username only for the address they came from, so guessing from one address cannot lock
+    // the owner out everywhere else
+    public void recordFailure(String username, String clientIp) {
+        String accountKey = accountKey(username, clientIp);
+        String ipKey = "ip:" + clientIp;
+        try {
+            Long locked = redisTemplate.execute(failureScript,
+                    List.of(failurePrefix + accountKey, lockPrefix + accountKey, failurePrefix + ipKey, lockPrefix + ipKey,
+                            failurePrefix + userKey(username)),
+                    Long.toString(failureWindowMillis), Long.toString(maxFailures), Long.toString(lockoutMillis));
+            if (locked != null && locked > 0) {
+                lockouts.add(locked);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to record login failure: {}", e.getMessage());
+        }
+    }
+
+    public void recordSuccess(String username, String clientIp) {
+        try {
+            redisTemplate.delete(failurePrefix + accountKey(username, clientIp));
+        } catch (Exception e) {
+            log.warn("Failed to reset login failures: {}", e.getMessage());
+        }
+    }
+
+    // trimmed and lower-cased, so case variants of a name share one bucket and one failure count
+    private static String userKey(String username) {
+        return "user:" + (username == null ? "" : username.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private static String accountKey(String username, String clientIp) {
+        return userKey(username) + ":ip:" + clientIp;
+    }
+
+    private long localWait(String key, long now) {
+        Long until = blockedUntil.getIfPresent(key);
+        if (until == null) {
+            return 0;
+        }
+        if (until <= now) {
+            blockedUntil.invalidate(key);
+            return 0;
+        }
+        return until - now;
+    }
+
+    private TooManyRequestsException rejection(long waitMillis) {
+        long retryAfter = Math.max(1, (waitMillis + 999) / 1000);
+        return new TooManyRequestsException("Too many login attempts. Please retry later.", retryAfter);
+    }
+
+    // for monitoring
+    public long getLocalRejectCount() {
+        return localRejects.sum();
+    }
+
+    public long getUserRejectCount() {
+        return userRejects.sum();
+    }
+
+    public long getIpRejectCount() {
+        return ipRejects.sum();
+    }
+
+    public long getLockoutCount() {
+        return lockouts.sum();
+    }
+
+    public long getNameRejectCount() {
+        return nameRejects.sum();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.events.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// sends a batch over one session; a message rejected on its own does not fail the rest of the batch
+public interface MailTransport {
+
+    // a message in neither accepted nor rejected failed for a reason worth retrying, such as a dropped connection
+    SendResult send(List<MailMessage> messages);
+
+    // the recipient must be exactly one valid address, so nothing can be smuggled into the envelope or the headers
+    static void fill(MimeMessage mime, InternetAddress from, MailMessage message) throws MessagingException {
+        InternetAddress to = new InternetAddress(message.to(), true);
+        to.validate();
+        MimeMessageHelper helper = new MimeMessageHelper(mime, StandardCharsets.UTF_8.name());
+        helper.setFrom(from);
+        helper.setTo(to);
+        helper.setSubject(message.subject().replaceAll("[\\r\\n]+", " "));
+        helper.setText(message.body());
+    }
+
+    static InternetAddress sender(String from) {
+        try {
+            InternetAddress address = new InternetAddress(from, true);
+            address.validate();
+            return address;
+        } catch (AddressException e) {
+            throw new IllegalArgumentException("Invalid delivery.mail.from address: " + from, e);
+        }
+    }
+
+    record MailMessage(String id, String to, String subject, String body) {
+    }
+
+    // rejected maps a message id to the reason it can never be delivered
+    record SendResult(Set<String> accepted, Map<String, String> rejected) {
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.events.service;
+
+import com.example.events.exception.ServiceBusyException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder encoder;
+    private final int strength;
+    private final long timeoutMillis;
+    private final long retryAfterSeconds;
+    private final ThreadPoolExecutor executor;
+    private final ForkJoinPool bulkPool;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder totalHashNanos = new LongAdder();
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+
+    @Autowired
+    public PasswordHashingService(@Value("${security.bcrypt.strength:10}") int strength,
+                                  @Value("${security.bcrypt.threads:0}") int threads,
+                                  @Value("${security.bcrypt.queue-capacity:64}") int queueCapacity,
+                                  @Value("${security.bcrypt.timeout-ms:5000}") long timeoutMillis,
+                                  @Value("${security.bcrypt.retry-after-seconds:2}") long retryAfterSeconds) {
+        this(new BCryptPasswordEncoder(strength), strength, threads, queueCapacity, timeoutMillis, retryAfterSeconds);
+    }
+
+    // tests swap in an encoder they can hold up, so queueing and timeouts do not depend on how fast bcrypt runs
+    PasswordHashingService(PasswordEncoder encoder, int strength, int threads, int queueCapacity,
+                           long timeoutMillis, long retryAfterSeconds) {
+        this.strength = strength;
+        this.encoder = encoder;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.bulkPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    public String encode(String rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    // bulk imports hash on their own pool so they never take the login executor's slots
+    public List<String> encodeAll(List<String> rawPasswords) {
+        try {
+            return bulkPool.submit(() -> rawPasswords.parallelStream()
+                    .map(encoder::encode)
+                    .toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Password hashing was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return submit(() -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    // true when the stored hash was produced with a different cost than the configured one
+    public boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6)) != strength;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    totalHashNanos.add(elapsed);
+                    maxHashNanos.accumulate(elapsed);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many authentication requests. Please retry shortly.", retryAfterSeconds);
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // bcrypt ignores interrupts, so a hash that already started still runs to completion on its thread;
+            // only one still waiting in the queue is actually dropped
+            abandon(future);
+            timedOut.increment();
+            throw new ServiceBusyException("Authentication is taking too long. Please retry shortly.", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(future);
+            throw new ServiceBusyException("Authentication was interrupted. Please retry.", retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void abandon(Future<?> future) {
+        if (future.cancel(false)) {
+            executor.remove((Runnable) future);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        bulkPool.shutdownNow();
+    }
+
+    // for monitoring
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    // callers that gave up waiting; their hashes may still have been computed
+    public long getTimedOutCount() {
+        return timedOut.sum();
+    }
+
+    public long getAverageHashMicros() {
+        long count = completed.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalHashNanos.sum() / count);
+    }
+
+    public long getMaxHashMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxHashNanos.get());
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.events.service;
+
+import com.example.events.DTO.RatingSummaryDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+// per-event 1-5 star histograms in one flat int array indexed by event id; count and sum are derived from the
+// five buckets, so reads are constant time and never aggregate over reviews
+@Component
+public class RatingAggregates implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(RatingAggregates.class);
+
+    private static final String channel = "ratings:changed";
+    private static final String lockName = "ratings:verify";
+    private static final int buckets = 5;
+
+    static final String applyDeltaSql = "INSERT INTO event_rating_summary (event_id, count_1, count_2, count_3, count_4, count_5) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (event_id) DO UPDATE SET " +
+            "count_1 = event_rating_summary.count_1 + EXCLUDED.count_1, " +
+            "count_2 = event_rating_summary.count_2 + EXCLUDED.count_2, " +
+            "count_3 = event_rating_summary.count_3 + EXCLUDED.count_3, " +
+            "count_4 = event_rating_summary.count_4 + EXCLUDED.count_4, " +
+            "count_5 = event_rating_summary.count_5 + EXCLUDED.count_5";
+    private static final String selectSummarySql = "SELECT event_id, count_1, count_2, count_3, count_4, count_5 " +
+            "FROM event_rating_summary";
+    private static final String countReviewsSql = "SELECT event_id, " +
+            "COUNT(*) FILTER (WHERE rating = 1) AS count_1, COUNT(*) FILTER (WHERE rating = 2) AS count_2, " +
+            "COUNT(*) FILTER (WHERE rating = 3) AS count_3, COUNT(*) FILTER (WHERE rating = 4) AS count_4, " +
+            "COUNT(*) FILTER (WHERE rating = 5) AS count_5 FROM reviews";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisLock redisLock;
+    private final int verifyChunkSize;
+
+    private final StampedLock lock = new StampedLock();
+    private int[] histograms = new int[buckets * 1024];
+
+    private final LongAdder driftedEvents = new LongAdder();
+    private volatile long lastVerifyMillis = -1;
+
+    public RatingAggregates(JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            RedisTemplate<String, String> redisTemplate,
+                            RedisLock redisLock,
+                            RedisMessageListenerContainer listenerContainer,
+                            @Value("${ratings.verify.chunk-size:1000}") int verifyChunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.redisTemplate = redisTemplate;
+        this.redisLock = redisLock;
+        this.verifyChunkSize = verifyChunkSize;
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        jdbcTemplate.query(selectSummarySql, (RowCallbackHandler) rs -> set(rs.getInt("event_id"), counts(rs)));
+    }
+
+    public RatingSummaryDTO getSummary(Integer eventId) {
+        int[] counts = histogram(eventId);
+        int count = 0;
+        long sum = 0;
+        for (int i = 0; i < buckets; i++) {
+            count += counts[i];
+            sum += (long) (i + 1) * counts[i];
+        }
+        return RatingSummaryDTO.builder()
+                .eventId(eventId)
+                .count(count)
+                .sum(sum)
+                .average(count == 0 ? 0 : (double) sum / count)
+                .histogram(counts)
+                .build();
+    }
+
+    // writes the delta to the summary row inside the caller's transaction and mirrors it locally once committed
+    void applyDelta(Integer eventId, int removedRating, int addedRating) {
+        int[] delta = new int[buckets];
+        if (removedRating > 0) {
+            delta[removedRating - 1]--;
+        }
+        if (addedRating > 0) {
+            delta[addedRating - 1]++;
+        }
+        jdbcTemplate.update(applyDeltaSql, eventId, delta[0], delta[1], delta[2], delta[3], delta[4]);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(eventId, delta);
+                publish(eventId);
+            }
+        });
+    }
+
+    // other nodes re-read the committed summary row rather than replaying deltas, so duplicates are harmless
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            reload(Integer.valueOf(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            log.warn("Failed to reload rating summary: {}", e.getMessage());
+        }
+    }
+
+    // a full recount takes minutes on a large reviews table
+    @Scheduled(initialDelayString = "${ratings.verify.interval-ms:900000}",
+            fixedDelayString = "${ratings.verify.interval-ms:900000}")
+    public void verify() {
+        String lease;
+        try {
+            lease = redisLock.tryAcquire(lockName, Duration.ofMinutes(10));
+        } catch (Exception e) {
+            log.warn("Failed to acquire rating verifier lease: {}", e.getMessage());
+            return;
+        }
+        if (lease == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Integer maxEventId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM events", Integer.class);
+            for (int from = 0; from <= maxEventId; from += verifyChunkSize) {
+                verifyRange(from, from + verifyChunkSize - 1);
+            }
+            lastVerifyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } catch (Exception e) {
+            log.warn("Failed to verify rating summaries: {}", e.getMessage());
+        } finally {
+            redisLock.release(lockName, lease);
+        }
+    }
+
+    private void verifyRange(int from, int to) {
+        Map<Integer, int[]> actual = new HashMap<>();
+        jdbcTemplate.query(countReviewsSql + " WHERE event_id BETWEEN ? AND ? GROUP BY event_id",
+                (RowCallbackHandler) rs -> actual.put(rs.getInt("event_id"), counts(rs)), from, to);
+        Map<Integer, int[]> stored = new HashMap<>();
+        jdbcTemplate.query(selectSummarySql + " WHERE event_id BETWEEN ? AND ?",
+                (RowCallbackHandler) rs -> stored.put(rs.getInt("event_id"), counts(rs)), from, to);
+
+        Set<Integer> eventIds = new HashSet<>(actual.keySet());
+        eventIds.addAll(stored.keySet());
+        List<Integer> drifted = new ArrayList<>();
+        for (Integer eventId : eventIds) {
+            int[] expected = actual.getOrDefault(eventId, new int[buckets]);
+            if (!Arrays.equals(expected, stored.getOrDefault(eventId, new int[buckets]))) {
+                drifted.add(eventId);
+            }
+        }
+        // the two reads above are not one snapshot, so a suspect event is recounted under the summary row lock
+        for (Integer eventId : drifted) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> repair(eventId)))) {
+                driftedEvents.increment();
+                reload(eventId);
+                publish(eventId);
+            }
+        }
+    }
+
+    private boolean repair(Integer eventId) {
+        jdbcTemplate.update("INSERT INTO event_rating_summary (event_id) VALUES (?) ON CONFLICT DO NOTHING", eventId);
+        int[] stored = jdbcTemplate.queryForObject(selectSummarySql + " WHERE event_id = ? FOR UPDATE",
+                (rs, rowNum) -> counts(rs), eventId);
+        List<int[]> recount = jdbcTemplate.query(countReviewsSql + " WHERE event_id = ? GROUP BY event_id",
+                (rs, rowNum) -> counts(rs), eventId);
+        int[] expected = recount.isEmpty() ? new int[buckets] : recount.get(0);
+        if (Arrays.equals(stored, expected)) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE event_rating_summary SET count_1 = ?, count_2 = ?, count_3 = ?, count_4 = ?, " +
+                "count_5 = ? WHERE event_id = ?", expected[0], expected[1], expected[2], expected[3], expected[4], eventId);
+        return true;
+    }
+
+    private void reload(Integer eventId) {
+        List<int[]> rows = jdbcTemplate.query(selectSummarySql + " WHERE event_id = ?", (rs, rowNum) -> counts(rs), eventId);
+        set(eventId, rows.isEmpty() ? new int[buckets] : rows.get(0));
+    }
+
+    private void publish(Integer eventId) {
+        try {
+            redisTemplate.convertAndSend(channel, eventId.toString());
+        } catch (Exception e) {
+            log.warn("Failed to broadcast rating change: {}", e.getMessage());
+        }
+    }
+
+    private int[] histogram(Integer eventId) {
+        int offset = eventId * buckets;
+        long stamp = lock.tryOptimisticRead();
+        int[] values = histograms;
+        int[] counts = new int[buckets];
+        if (offset + buckets <= values.length) {
+            System.arraycopy(values, offset, counts, 0, buckets);
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                values = histograms;
+                Arrays.fill(counts, 0);
+                if (offset + buckets <= values.length) {
+                    System.arraycopy(values, offset, counts, 0, buckets);
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return counts;
+    }
+
+    private void add(Integer eventId, int[] delta) {
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity(eventId);
+            for (int i = 0; i < buckets; i++) {
+                histograms[eventId * buckets + i] = Math.max(0, histograms[eventId * buckets + i] + delta[i]);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void set(Integer eventId, int[] counts) {
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity(eventId);
+            System.arraycopy(counts, 0, histograms, eventId * buckets, buckets);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void ensureCapacity(Integer eventId) {
+        int required = (eventId + 1) * buckets;
+        if (required > histograms.length) {
+            histograms = Arrays.copyOf(histograms, Math.max(required, histograms.length * 2));
+        }
+    }
+
+    private static int[] counts(ResultSet rs) throws SQLException {
+        return new int[]{rs.getInt("count_1"), rs.getInt("count_2"), rs.getInt("count_3"),
+                rs.getInt("count_4"), rs.getInt("count_5")};
+    }
+
+    // for monitoring
+    public long getDriftedEventCount() {
+        return driftedEvents.sum();
+    }
+
+    public long getLastVerifyMillis() {
+        return lastVerifyMillis;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.events.service;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+@Component
+public class RedisLock {
+
+    private static final String prefix = "lock:";
+
+    private static final RedisScript<Long> releaseScript = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> extendScript = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisLock(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    // returns the owner token, or null when another node holds the lease
+    public String tryAcquire(String name, Duration lease) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(prefix + name, token, lease);
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    public boolean extend(String name, String token, Duration lease) {
+        Long result = redisTemplate.execute(extendScript, List.of(prefix + name), token, Long.toString(lease.toMillis()));
+        return result != null && result > 0;
+    }
+
+    public void release(String name, String token) {
+        redisTemplate.execute(releaseScript, List.of(prefix + name), token);
+    }
+}
@@ -1,60 +1,303 @@
 package com.example.events.service;
 
 import com.example.events.security.JwtUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
-public class RedisTokenBlacklistService {
+public class RedisTokenBlacklistService implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisTokenBlacklistService.class);
 
     private static final String prefix = "blacklist:token:";
+    private static final String channel = "blacklist:revoked";
+    private static final String restoredChannel = "blacklist:restored";
+    private static final String everyToken = "*";
+    private static final String expiryIndex = "blacklist:index";
+    private static final int clearBatchSize = 500;
+    private static final int clearPipelineDepth = 10;
 
     private final RedisTemplate<String, String> redisTemplate;
     private final JwtUtil jwtUtil;
 
-    public RedisTokenBlacklistService(RedisTemplate<String, String> redisTemplate, JwtUtil jwtUtil) {
+    private final long bloomExpectedInsertions;
+    private final double bloomFalsePositiveRate;
+    private final Cache<String, Boolean> revokedCache;
+
+    private volatile TokenBloomFilter bloomFilter;
+    private volatile TokenBloomFilter rebuildingFilter;
+    private volatile boolean bloomReady = false;
+    private volatile long lastRebuildAt = 0;
+    private volatile long lastMessageAt = 0;
+
+    private final LongAdder bloomNegatives = new LongAdder();
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder redisLookups = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public RedisTokenBlacklistService(RedisTemplate<String, String> redisTemplate,
+                                      JwtUtil jwtUtil,
+                                      RedisMessageListenerContainer listenerContainer,
+                                      @Value("${blacklist.bloom.expected-insertions:1000000}") long bloomExpectedInsertions,
+                                      @Value("${blacklist.bloom.false-positive-rate:0.01}") double bloomFalsePositiveRate,
+                                      @Value("${blacklist.cache.max-size:100000}") long cacheMaxSize,
+                                      @Value("${blacklist.cache.ttl-seconds:900}") long cacheTtlSeconds) {
         this.redisTemplate = redisTemplate;
         this.jwtUtil = jwtUtil;
+        this.bloomExpectedInsertions = bloomExpectedInsertions;
+        this.bloomFalsePositiveRate = bloomFalsePositiveRate;
+        this.bloomFilter = new TokenBloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate);
+        this.revokedCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+        listenerContainer.addMessageListener(this, List.of(new ChannelTopic(channel), new ChannelTopic(restoredChannel)));
     }
 
     public void blacklistToken(String token) {
+        long ttlInSeconds;
         try {
             Date expiration = jwtUtil.extractExpiration(token);
-            long ttlInSeconds = (expiration.getTime() - System.currentTimeMillis()) / 1000;
-
-            if (ttlInSeconds > 0) {
-                String key = prefix + token;
-                redisTemplate.opsForValue().set(key, "blacklisted", ttlInSeconds, TimeUnit.SECONDS);
-            }
+            ttlInSeconds = (expiration.getTime() - System.currentTimeMillis()) / 1000;
         } catch (Exception e) {
+            ttlInSeconds = Duration.ofHours(24).toSeconds();
+        }
+
+        if (ttlInSeconds > 0) {
             String key = prefix + token;
-            redisTemplate.opsForValue().set(key, "blacklisted", Duration.ofHours(24));
+            long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlInSeconds);
+            long ttl = ttlInSeconds;
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.opsForValue().set(key, "blacklisted", ttl, TimeUnit.SECONDS);
+                    ops.opsForZSet().add(expiryIndex, token, expiresAt);
+                    return null;
+                }
+            });
         }
+
+        markRevoked(token);
+        redisTemplate.convertAndSend(channel, token);
     }
 
 
     public boolean isTokenBlacklisted(String token) {
+        if (bloomReady && !bloomFilter.mightContain(token)) {
+            bloomNegatives.increment();
+            return false;
+        }
+
+        if (revokedCache.getIfPresent(token) != null) {
+            localHits.increment();
+            return true;
+        }
+
+        redisLookups.increment();
         String key = prefix + token;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        boolean blacklisted = Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        if (blacklisted) {
+            revokedCache.put(token, Boolean.TRUE);
+        } else if (bloomReady) {
+            falsePositives.increment();
+        }
+        return blacklisted;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        lastMessageAt = System.currentTimeMillis();
+        String token = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (restoredChannel.equals(new String(message.getChannel(), StandardCharsets.UTF_8))) {
+            forget(token);
+        } else {
+            markRevoked(token);
+        }
+    }
+
+    // tokens that expire out of redis stay in the filter until the next rebuild
+    @Scheduled(initialDelayString = "0", fixedDelayString = "${blacklist.bloom.rebuild-interval-ms:60000}")
+    public synchronized void rebuildBloomFilter() {
+        TokenBloomFilter next = new TokenBloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate);
+        rebuildingFilter = next;
+        try {
+            ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").count(1000).build();
+            try (Cursor<String> cursor = redisTemplate.scan(options)) {
+                while (cursor.hasNext()) {
+                    next.put(cursor.next().substring(prefix.length()));
+                }
+            }
+            bloomFilter = next;
+            bloomReady = true;
+            lastRebuildAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            log.warn("Failed to rebuild token blacklist filter: {}", e.getMessage());
+        } finally {
+            rebuildingFilter = null;
+        }
+    }
+
+    // right after a clear the index only holds what was blacklisted since, so this is cheap; if redis cannot answer
+    // the old filter stays, which only costs lookups for the cleared tokens
+    private synchronized void reloadFromIndex() {
+        TokenBloomFilter next = new TokenBloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate);
+        rebuildingFilter = next;
+        try {
+            Set<String> tokens = redisTemplate.opsForZSet().rangeByScore(expiryIndex, System.currentTimeMillis(),
+                    Double.POSITIVE_INFINITY);
+            if (tokens != null) {
+                tokens.forEach(next::put);
+            }
+            bloomFilter = next;
+        } catch (Exception e) {
+            log.warn("Failed to reload token blacklist filter: {}", e.getMessage());
+        } finally {
+            rebuildingFilter = null;
+        }
+    }
+
+    // nothing else removes index entries once their keys expire
+    @Scheduled(fixedDelayString = "${blacklist.index.prune-interval-ms:60000}")
+    public void pruneExpiryIndex() {
+        try {
+            redisTemplate.opsForZSet().removeRangeByScore(expiryIndex, 0, System.currentTimeMillis());
+        } catch (Exception e) {
+            log.warn("Failed to prune token blacklist index: {}", e.getMessage());
+        }
+    }
+
+    private void markRevoked(String token) {
+        TokenBloomFilter rebuilding = rebuildingFilter;
+        if (rebuilding != null) {
+            rebuilding.put(token);
+        }
+        bloomFilter.put(token);
+        revokedCache.put(token, Boolean.TRUE);
+    }
+
+    // a restored token stays in the bloom filters until their next rebuild, which only costs a redis lookup;
+    // after a clear the filter is reloaded rather than emptied, so a token blacklisted meanwhile is not let through
+    private void forget(String token) {
+        if (everyToken.equals(token)) {
+            revokedCache.invalidateAll();
+            reloadFromIndex();
+        } else {
+            revokedCache.invalidate(token);
+        }
     }
 
     // for testing
     public void removeFromBlacklist(String token) {
         String key = prefix + token;
         redisTemplate.delete(key);
+        redisTemplate.opsForZSet().remove(expiryIndex, token);
+        forget(token);
+        redisTemplate.convertAndSend(restoredChannel, token);
     }
 
     // for monitoring
     public long getBlacklistSize() {
-        return redisTemplate.keys(prefix + "*").size();
+        Long size = redisTemplate.opsForZSet().count(expiryIndex, System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+        return size != null ? size : 0;
+    }
+
+    public long getBloomNegativeCount() {
+        return bloomNegatives.sum();
+    }
+
+    public long getLocalHitCount() {
+        return localHits.sum();
+    }
+
+    public long getRedisLookupCount() {
+        return redisLookups.sum();
+    }
+
+    public long getFalsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    public long getMillisSinceLastRebuild() {
+        return lastRebuildAt == 0 ? -1 : System.currentTimeMillis() - lastRebuildAt;
+    }
+
+    public long getMillisSinceLastMessage() {
+        return lastMessageAt == 0 ? -1 : System.currentTimeMillis() - lastMessageAt;
     }
 
 
-    public void clearAllBlacklisted() {
-        redisTemplate.keys(prefix + "*").forEach(redisTemplate::delete);
+    // the index goes first, so anything blacklisted while the keys are unlinked is still in it for the reload
+    public long clearAllBlacklisted() {
+        redisTemplate.unlink(expiryIndex);
+        long removed = 0;
+        List<List<String>> pending = new ArrayList<>();
+        List<String> batch = new ArrayList<>(clearBatchSize);
+
+        ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").count(clearBatchSize).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == clearBatchSize) {
+                    pending.add(batch);
+                    batch = new ArrayList<>(clearBatchSize);
+                    if (pending.size() == clearPipelineDepth) {
+                        removed += unlinkPipelined(pending);
+                        pending.clear();
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            pending.add(batch);
+        }
+        removed += unlinkPipelined(pending);
+
+        forget(everyToken);
+        redisTemplate.convertAndSend(restoredChannel, everyToken);
+        return removed;
+    }
+
+    private long unlinkPipelined(List<List<String>> batches) {
+        if (batches.isEmpty()) {
+            return 0;
+        }
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                batches.forEach(ops::unlink);
+                return null;
+            }
+        });
+        return results.stream()
+                .filter(Long.class::isInstance)
+                .mapToLong(Long.class::cast)
+                .sum();
     }
-}
\ No newline at end of file
+}
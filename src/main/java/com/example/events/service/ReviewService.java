@@ -0,0 +1,132 @@
+package com.example.events.service;
+
+import com.example.events.DTO.RatingSummaryDTO;
+import com.example.events.DTO.ReviewDTO;
+import com.example.events.DTO.ReviewRequest;
+import com.example.events.exception.InvalidReviewException;
+import com.example.events.exception.ReviewNotFoundException;
+import com.example.events.exception.UnauthorizedException;
+import com.example.events.repository.ReviewRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@Transactional
+public class ReviewService {
+
+    private static final int maxPageSize = 100;
+    private static final int maxCommentLength = 2000;
+    private static final String returningColumns = " RETURNING id, user_id, event_id, rating, comment, created_at, updated_at";
+    private static final RowMapper<ReviewDTO> reviewMapper = (rs, rowNum) -> ReviewDTO.builder()
+            .id(rs.getInt("id"))
+            .userId(rs.getObject("user_id", UUID.class))
+            .eventId(rs.getInt("event_id"))
+            .rating(rs.getInt("rating"))
+            .comment(rs.getString("comment"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReviewRepository reviewRepository;
+    private final EventCatalogueService eventCatalogueService;
+    private final RatingAggregates ratingAggregates;
+
+    public ReviewService(JdbcTemplate jdbcTemplate,
+                         ReviewRepository reviewRepository,
+                         EventCatalogueService eventCatalogueService,
+                         RatingAggregates ratingAggregates) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reviewRepository = reviewRepository;
+        this.eventCatalogueService = eventCatalogueService;
+        this.ratingAggregates = ratingAggregates;
+    }
+
+    // the user's existing review is locked first so the summary delta is computed from the rating it replaces
+    public ReviewDTO saveReview(Integer eventId, ReviewRequest request, HttpServletRequest httpRequest) {
+        UUID userId = getAuthenticatedUserId(httpRequest);
+        validate(request);
+        eventCatalogueService.getEvent(eventId);
+
+        List<Integer> previous = findRatingForUpdate(userId, eventId);
+        if (previous.isEmpty()) {
+            List<ReviewDTO> inserted = jdbcTemplate.query("INSERT INTO reviews (user_id, event_id, rating, comment) " +
+                            "VALUES (?, ?, ?, ?) ON CONFLICT (user_id, event_id) DO NOTHING" + returningColumns,
+                    reviewMapper, userId, eventId, request.getRating(), request.getComment());
+            if (!inserted.isEmpty()) {
+                ratingAggregates.applyDelta(eventId, 0, request.getRating());
+                return inserted.get(0);
+            }
+            // a concurrent request from the same user inserted first
+            previous = findRatingForUpdate(userId, eventId);
+        }
+
+        ReviewDTO updated = jdbcTemplate.queryForObject("UPDATE reviews SET rating = ?, comment = ? " +
+                        "WHERE user_id = ? AND event_id = ?" + returningColumns,
+                reviewMapper, request.getRating(), request.getComment(), userId, eventId);
+        if (previous.get(0) != request.getRating()) {
+            ratingAggregates.applyDelta(eventId, previous.get(0), request.getRating());
+        }
+        return updated;
+    }
+
+    public String deleteReview(Integer eventId, HttpServletRequest httpRequest) {
+        UUID userId = getAuthenticatedUserId(httpRequest);
+
+        List<Integer> deleted = jdbcTemplate.queryForList(
+                "DELETE FROM reviews WHERE user_id = ? AND event_id = ? RETURNING rating", Integer.class, userId, eventId);
+        if (deleted.isEmpty()) {
+            throw new ReviewNotFoundException("No review found for event with id: " + eventId);
+        }
+        ratingAggregates.applyDelta(eventId, deleted.get(0), 0);
+        return "Review deleted successfully";
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReviewDTO> getReviews(Integer eventId, Integer before, int limit) {
+        eventCatalogueService.getEvent(eventId);
+        Pageable page = PageRequest.of(0, Math.max(1, Math.min(limit, maxPageSize)));
+        return before == null
+                ? reviewRepository.findReviewPage(eventId, page)
+                : reviewRepository.findReviewPageBefore(eventId, before, page);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public RatingSummaryDTO getSummary(Integer eventId) {
+        eventCatalogueService.getEvent(eventId);
+        return ratingAggregates.getSummary(eventId);
+    }
+
+    private List<Integer> findRatingForUpdate(UUID userId, Integer eventId) {
+        return jdbcTemplate.queryForList("SELECT rating FROM reviews WHERE user_id = ? AND event_id = ? FOR UPDATE",
+                Integer.class, userId, eventId);
+    }
+
+    private void validate(ReviewRequest request) {
+        if (request.getRating() < 1 || request.getRating() > 5) {
+            throw new InvalidReviewException("Rating must be between 1 and 5");
+        }
+        if (request.getComment() != null && request.getComment().length() > maxCommentLength) {
+            throw new InvalidReviewException("Comment must be at most " + maxCommentLength + " characters");
+        }
+    }
+
+    private UUID getAuthenticatedUserId(HttpServletRequest request) {
+        String userId = (String) request.getAttribute("userId");
+
+        if (userId == null) {
+            throw new UnauthorizedException("User not authenticated");
+        }
+
+        return UUID.fromString(userId);
+    }
+}
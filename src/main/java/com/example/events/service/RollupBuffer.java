@@ -0,0 +1,140 @@
+package com.example.events.service;
+
+// open-addressing map from a packed bucket key to a fixed row of long counters, kept in two flat arrays so millions
+// of buckets cost no per-entry objects. Not thread-safe; callers guard it
+final class RollupBuffer {
+
+    static final int fields = 6;
+    static final int orders = 0;
+    static final int tickets = 1;
+    static final int grossCents = 2;
+    static final int cancelledTickets = 3;
+    static final int refundedTickets = 4;
+    static final int refundedCents = 5;
+
+    static final int eventScope = 0;
+    static final int categoryScope = 1;
+
+    // 0 never occurs as a key: a real bucket index is far above zero
+    private static final long empty = 0;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    RollupBuffer() {
+        this(1024);
+    }
+
+    RollupBuffer(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new long[capacity * fields];
+    }
+
+    // scope:1 | granularity:2 | id:31 | bucket:30, where bucket counts minutes, hours or days since the epoch
+    static long key(int scope, int granularity, int id, long bucket) {
+        return (long) scope << 63 | (long) granularity << 61 | (long) (id & 0x7FFFFFFF) << 30 | (bucket & 0x3FFFFFFF);
+    }
+
+    static int scope(long key) {
+        return (int) (key >>> 63);
+    }
+
+    static int granularity(long key) {
+        return (int) ((key >>> 61) & 3);
+    }
+
+    static int id(long key) {
+        return (int) ((key >>> 30) & 0x7FFFFFFF);
+    }
+
+    static long bucket(long key) {
+        return key & 0x3FFFFFFF;
+    }
+
+    void add(long key, long[] delta) {
+        int slot = slot(key, true);
+        int offset = slot * fields;
+        for (int i = 0; i < fields; i++) {
+            values[offset + i] += delta[i];
+        }
+    }
+
+    boolean get(long key, long[] into) {
+        int slot = slot(key, false);
+        if (slot < 0) {
+            return false;
+        }
+        System.arraycopy(values, slot * fields, into, 0, fields);
+        return true;
+    }
+
+    void addAll(RollupBuffer other) {
+        long[] row = new long[fields];
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != empty) {
+                System.arraycopy(other.values, slot * fields, row, 0, fields);
+                add(other.keys[slot], row);
+            }
+        }
+    }
+
+    void forEach(EntryConsumer consumer) {
+        long[] row = new long[fields];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != empty) {
+                System.arraycopy(values, slot * fields, row, 0, fields);
+                consumer.accept(keys[slot], row);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(long key, boolean insert) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != empty) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!insert) {
+            return -1;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+            return slot(key, true);
+        }
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[keys.length * fields];
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != empty) {
+                int target = slot(oldKeys[slot], true);
+                System.arraycopy(oldValues, slot * fields, values, target * fields, fields);
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    interface EntryConsumer {
+        void accept(long key, long[] row);
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.events.service;
+
+import com.example.events.exception.ServiceBusyException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+// streams every ticket of an event or organizer as gzipped csv or ndjson. Rows go from a server-side cursor straight
+// into the compressor, so a blocked socket stalls the cursor instead of piling rows up in memory
+@Service
+public class SalesExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesExportService.class);
+
+    private static final int exportFlushInterval = 500;
+    private static final String[] columns = {"ticket_id", "event_id", "event_title", "user_email", "user_name",
+            "quantity", "price_per_ticket", "total_price", "status", "purchase_date"};
+    // archived tickets are part of an organizer's sales; the event filter is pushed into both branches, so each
+    // side is read through its event_id index
+    private static final String ticketColumns = "id, event_id, user_id, quantity, price_per_ticket, total_price, status, purchase_date";
+    private static final String exportSql = "SELECT t.id, t.event_id, e.title, u.email, u.name, t.quantity, " +
+            "t.price_per_ticket, t.total_price, t.status, t.purchase_date FROM (SELECT " + ticketColumns +
+            " FROM tickets UNION ALL SELECT " + ticketColumns + " FROM tickets_archive) t " +
+            "JOIN events e ON e.id = t.event_id JOIN users u ON u.id = t.user_id WHERE ";
+    private static final String eventFilter = "t.event_id = ?";
+    private static final String organizerFilter = "t.event_id IN (SELECT id FROM events WHERE organizer = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate exportTransaction;
+    private final EventCatalogueService eventCatalogueService;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    // each running export pins a pooled connection for its whole duration
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long startTimeoutNanos;
+    private final long timeoutMillis;
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder exportedRows = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    public SalesExportService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              EventCatalogueService eventCatalogueService,
+                              ObjectMapper objectMapper,
+                              @Value("${exports.max-concurrent:2}") int maxConcurrent,
+                              @Value("${exports.fetch-size:1000}") int fetchSize,
+                              @Value("${exports.timeout-seconds:1800}") int timeoutSeconds,
+                              @Value("${exports.start-timeout-ms:60000}") long startTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventCatalogueService = eventCatalogueService;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.startTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(startTimeoutMillis);
+        // the postgres driver only uses a cursor inside a transaction; the timeout bounds a client that stops reading
+        this.exportTransaction = new TransactionTemplate(transactionManager);
+        this.exportTransaction.setReadOnly(true);
+        this.exportTransaction.setTimeout(timeoutSeconds);
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+    }
+
+    public StreamingResponseBody exportEvent(Integer eventId, boolean ndjson) {
+        eventCatalogueService.getEvent(eventId);
+        return export(eventFilter, eventId, ndjson);
+    }
+
+    public StreamingResponseBody exportOrganizer(String organizer, boolean ndjson) {
+        return export(organizerFilter, organizer, ndjson);
+    }
+
+    // the permit is taken before the response starts, so a busy node answers 503 instead of a truncated file
+    private StreamingResponseBody export(String filter, Object filterValue, boolean ndjson) {
+        Lease lease = acquire();
+        if (lease == null) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many exports running, please retry later", 30);
+        }
+        return out -> {
+            if (!lease.start()) {
+                throw new ServiceBusyException("Export was not started in time, please retry", 1);
+            }
+            long start = System.nanoTime();
+            try {
+                long rows = write(filter, filterValue, ndjson, out);
+                log.info("Exported {} tickets in {} ms", rows, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (IOException | RuntimeException e) {
+                failed.increment();
+                throw e;
+            } finally {
+                lease.release();
+            }
+        };
+    }
+
+    // the body may never run if the async request times out or the client goes away before it is dispatched, so
+    // permits whose body has not started in time are taken back when the exports are full
+    private Lease acquire() {
+        if (!permits.tryAcquire()) {
+            long now = System.nanoTime();
+            for (Lease lease : leases) {
+                if (now - lease.takenAt > startTimeoutNanos && lease.abandon()) {
+                    abandoned.increment();
+                }
+            }
+            if (!permits.tryAcquire()) {
+                return null;
+            }
+        }
+        Lease lease = new Lease(System.nanoTime());
+        leases.add(lease);
+        return lease;
+    }
+
+    private long write(String filter, Object filterValue, boolean ndjson, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, 8192, true);
+        RowEncoder encoder = ndjson ? new NdjsonEncoder(objectMapper.getFactory().createGenerator(gzip))
+                : new CsvEncoder(new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 8192));
+        long[] written = {0};
+        try {
+            encoder.begin();
+            exportTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(exportSql + filter);
+                statement.setFetchSize(fetchSize);
+                statement.setObject(1, filterValue);
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    encoder.row(rs);
+                    if (++written[0] % exportFlushInterval == 0) {
+                        encoder.flush();
+                        exportedRows.add(exportFlushInterval);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            encoder.flush();
+            exportedRows.add(written[0] % exportFlushInterval);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            encoder.close();
+        }
+        gzip.finish();
+        return written[0];
+    }
+
+    private interface RowEncoder {
+        void begin() throws IOException;
+
+        void row(ResultSet rs) throws SQLException, IOException;
+
+        void flush() throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private static final class CsvEncoder implements RowEncoder {
+        private final Writer writer;
+
+        CsvEncoder(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write(String.join(",", columns));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            writer.write(rs.getString(1));
+            writer.write(',');
+            writer.write(Integer.toString(rs.getInt(2)));
+            writer.write(',');
+            quote(rs.getString(3));
+            writer.write(',');
+            quote(rs.getString(4));
+            writer.write(',');
+            quote(rs.getString(5));
+            writer.write(',');
+            writer.write(Integer.toString(rs.getInt(6)));
+            writer.write(',');
+            writer.write(rs.getBigDecimal(7).toPlainString());
+            writer.write(',');
+            writer.write(rs.getBigDecimal(8).toPlainString());
+            writer.write(',');
+            writer.write(rs.getString(9));
+            writer.write(',');
+            writer.write(rs.getTimestamp(10).toLocalDateTime().toString());
+            writer.write("\r\n");
+        }
+
+        // RFC 4180 quoting, plus a leading quote on formula-like text so spreadsheets do not evaluate it
+        private void quote(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean formula = !value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0;
+            boolean quoted = formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quoted) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            if (formula) {
+                writer.write('\'');
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class NdjsonEncoder implements RowEncoder {
+        private final JsonGenerator generator;
+
+        NdjsonEncoder(JsonGenerator generator) {
+            this.generator = generator;
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeStringField(columns[0], rs.getString(1));
+            generator.writeNumberField(columns[1], rs.getInt(2));
+            generator.writeStringField(columns[2], rs.getString(3));
+            generator.writeStringField(columns[3], rs.getString(4));
+            generator.writeStringField(columns[4], rs.getString(5));
+            generator.writeNumberField(columns[5], rs.getInt(6));
+            writeDecimal(columns[6], rs.getBigDecimal(7));
+            writeDecimal(columns[7], rs.getBigDecimal(8));
+            generator.writeStringField(columns[8], rs.getString(9));
+            Timestamp purchased = rs.getTimestamp(10);
+            generator.writeStringField(columns[9], purchased.toLocalDateTime().toString());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        private void writeDecimal(String name, BigDecimal value) throws IOException {
+            generator.writeFieldName(name);
+            generator.writeNumber(value);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    // the limit for the whole streamed response, matching the transaction behind it
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    // for monitoring
+    public int getActiveExportCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public long getExportedRowCount() {
+        return exportedRows.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getAbandonedCount() {
+        return abandoned.sum();
+    }
+
+    private final class Lease {
+        private static final int pending = 0;
+        private static final int started = 1;
+        private static final int released = 2;
+
+        private final long takenAt;
+        private final AtomicInteger state = new AtomicInteger(pending);
+
+        Lease(long takenAt) {
+            this.takenAt = takenAt;
+        }
+
+        boolean start() {
+            return state.compareAndSet(pending, started);
+        }
+
+        boolean abandon() {
+            if (!state.compareAndSet(pending, released)) {
+                return false;
+            }
+            leases.remove(this);
+            permits.release();
+            return true;
+        }
+
+        void release() {
+            if (state.getAndSet(released) != released) {
+                leases.remove(this);
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.SalesBucketDTO;
+import com.example.events.DTO.SalesRebuildResponse;
+import com.example.events.DTO.SalesReportDTO;
+import com.example.events.exception.InvalidSalesQueryException;
+import com.example.events.exception.ServiceBusyException;
+import com.example.events.model.EventCategory;
+import com.example.events.model.SalesGranularity;
+import com.example.events.model.TicketStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// folds ticket transitions into per-event and per-category minute/hour/day buckets. Deltas accumulate in a primitive
+// buffer and each node adds its own into the rollup tables, so concurrent nodes sum correctly; dashboards read a
+// bounded range of buckets and never touch tickets
+@Service
+public class SalesRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private static final SalesGranularity[] granularities = SalesGranularity.values();
+    private static final EventCategory[] categories = EventCategory.values();
+    private static final String rebuildLock = "sales:rebuild";
+    private static final int maxBuckets = 1500;
+    private static final int writeBatchSize = 1000;
+
+    private static final String counterColumns = "orders, tickets, gross_cents, cancelled_tickets, refunded_tickets, refunded_cents";
+    private static final String addCounters = " DO UPDATE SET orders = %1$s.orders + EXCLUDED.orders, " +
+            "tickets = %1$s.tickets + EXCLUDED.tickets, gross_cents = %1$s.gross_cents + EXCLUDED.gross_cents, " +
+            "cancelled_tickets = %1$s.cancelled_tickets + EXCLUDED.cancelled_tickets, " +
+            "refunded_tickets = %1$s.refunded_tickets + EXCLUDED.refunded_tickets, " +
+            "refunded_cents = %1$s.refunded_cents + EXCLUDED.refunded_cents";
+    private static final String eventInsertSql = "INSERT INTO event_sales_rollups (event_id, granularity, bucket_start, " +
+            counterColumns + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String categoryInsertSql = "INSERT INTO category_sales_rollups (category, granularity, bucket_start, " +
+            counterColumns + ") VALUES (CAST(? AS event_category_type), ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String eventUpsertSql = eventInsertSql + " ON CONFLICT (event_id, granularity, bucket_start)" +
+            String.format(addCounters, "event_sales_rollups");
+    private static final String categoryUpsertSql = categoryInsertSql + " ON CONFLICT (category, granularity, bucket_start)" +
+            String.format(addCounters, "category_sales_rollups");
+    private static final String replaySql = "SELECT event_id, quantity, total_price, status, purchase_date, updated_at " +
+            "FROM %s WHERE event_id BETWEEN ? AND ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EventCatalogueService eventCatalogueService;
+    private final RedisLock redisLock;
+    private final int rebuildThreads;
+    private final long minuteRetentionDays;
+
+    private RollupBuffer pending = new RollupBuffer();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder flushedBuckets = new LongAdder();
+    private final AtomicLong lastFlushMillis = new AtomicLong(-1);
+
+    public SalesRollupService(JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              EventCatalogueService eventCatalogueService,
+                              RedisLock redisLock,
+                              @Value("${rollups.rebuild-threads:4}") int rebuildThreads,
+                              @Value("${rollups.minute-retention-days:7}") long minuteRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventCatalogueService = eventCatalogueService;
+        this.redisLock = redisLock;
+        this.rebuildThreads = Math.max(1, rebuildThreads);
+        this.minuteRetentionDays = minuteRetentionDays;
+    }
+
+    // called once the transition has committed; status is the state the ticket moved into
+    public void record(Integer eventId, TicketStatus status, int quantity, BigDecimal totalPrice, LocalDateTime at) {
+        long[] delta = delta(status, quantity, totalPrice);
+        if (delta == null) {
+            return;
+        }
+        EventCategory category = categoryOf(eventId);
+        synchronized (this) {
+            fold(pending, eventId, category, delta, at);
+        }
+        recorded.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${rollups.flush-interval-ms:5000}")
+    public void flush() {
+        RollupBuffer batch;
+        synchronized (this) {
+            if (pending.size() == 0) {
+                return;
+            }
+            batch = pending;
+            pending = new RollupBuffer(batch.size());
+        }
+
+        long start = System.nanoTime();
+        try {
+            write(batch, eventUpsertSql, categoryUpsertSql);
+            flushedBuckets.add(batch.size());
+            lastFlushMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            // keep the deltas for the next attempt rather than losing them
+            synchronized (this) {
+                pending.addAll(batch);
+            }
+            log.warn("Failed to flush sales rollups: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rollups.prune-interval-ms:3600000}")
+    public void pruneMinuteBuckets() {
+        try {
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(minuteRetentionDays));
+            jdbcTemplate.update("DELETE FROM event_sales_rollups WHERE granularity = 'm' AND bucket_start < ?", cutoff);
+            jdbcTemplate.update("DELETE FROM category_sales_rollups WHERE granularity = 'm' AND bucket_start < ?", cutoff);
+        } catch (Exception e) {
+            log.warn("Failed to prune minute sales rollups: {}", e.getMessage());
+        }
+    }
+
+    public SalesReportDTO getEventReport(Integer eventId, SalesGranularity granularity,
+                                         LocalDateTime from, LocalDateTime to) {
+        eventCatalogueService.getEvent(eventId);
+        return report("event", eventId.toString(), RollupBuffer.eventScope, eventId,
+                "SELECT bucket_start, " + counterColumns + " FROM event_sales_rollups " +
+                        "WHERE event_id = ? AND granularity = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start",
+                eventId, granularity, from, to);
+    }
+
+    public SalesReportDTO getCategoryReport(EventCategory category, SalesGranularity granularity,
+                                            LocalDateTime from, LocalDateTime to) {
+        return report("category", category.name(), RollupBuffer.categoryScope, category.ordinal(),
+                "SELECT bucket_start, " + counterColumns + " FROM category_sales_rollups " +
+                        "WHERE category = CAST(? AS event_category_type) AND granularity = ? AND bucket_start >= ? " +
+                        "AND bucket_start < ? ORDER BY bucket_start",
+                category.name(), granularity, from, to);
+    }
+
+    // replays tickets and archived tickets in event id ranges on a pool, then swaps the tables in one transaction.
+    // Transitions committed while it runs may be off by up to one flush interval, so run it outside on-sales
+    public SalesRebuildResponse rebuild() {
+        String token = redisLock.tryAcquire(rebuildLock, Duration.ofMinutes(30));
+        if (token == null) {
+            throw new ServiceBusyException("A sales rollup rebuild is already running", 60);
+        }
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(rebuildThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sales-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Integer maxEventId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM events", Integer.class);
+            int ranges = rebuildThreads * 4;
+            int span = Math.max(1, (maxEventId + ranges) / ranges);
+            List<Future<ReplayResult>> parts = new ArrayList<>();
+            for (int from = 0; from <= maxEventId; from += span) {
+                int low = from;
+                int high = from + span - 1;
+                parts.add(pool.submit(() -> replay(low, high)));
+            }
+
+            RollupBuffer merged = new RollupBuffer();
+            long replayed = 0;
+            for (Future<ReplayResult> part : parts) {
+                ReplayResult result = part.get();
+                merged.addAll(result.buffer());
+                replayed += result.rows();
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM event_sales_rollups");
+                jdbcTemplate.update("DELETE FROM category_sales_rollups");
+                write(merged, eventInsertSql, categoryInsertSql);
+            });
+
+            long elapsedNanos = System.nanoTime() - start;
+            log.info("Rebuilt {} sales rollup buckets from {} tickets in {} ms", merged.size(), replayed,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            return SalesRebuildResponse.builder()
+                    .ticketsReplayed(replayed)
+                    .bucketsWritten(merged.size())
+                    .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                    .rowsPerSecond(elapsedNanos == 0 ? 0 : replayed * 1_000_000_000d / elapsedNanos)
+                    .build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sales rollup rebuild interrupted", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Sales rollup rebuild failed: " + e.getMessage(), e);
+        } finally {
+            pool.shutdownNow();
+            redisLock.release(rebuildLock, token);
+        }
+    }
+
+    private ReplayResult replay(int fromEventId, int toEventId) {
+        RollupBuffer buffer = new RollupBuffer();
+        long[] rows = {0};
+        for (String table : new String[]{"tickets", "tickets_archive"}) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(String.format(replaySql, table));
+                statement.setFetchSize(1000);
+                statement.setInt(1, fromEventId);
+                statement.setInt(2, toEventId);
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                replayTicket(buffer, rs);
+                rows[0]++;
+            }));
+        }
+        return new ReplayResult(buffer, rows[0]);
+    }
+
+    // a ticket's current row implies the transitions it went through: a refund happened at updated_at after the
+    // purchase, and a cancelled row never sold: it is a hold that expired, or a queued purchase postgres had no
+    // stock for, cancelled at updated_at
+    private void replayTicket(RollupBuffer buffer, ResultSet rs) throws SQLException {
+        int eventId = rs.getInt("event_id");
+        int quantity = rs.getInt("quantity");
+        BigDecimal total = rs.getBigDecimal("total_price");
+        TicketStatus status = TicketStatus.valueOf(rs.getString("status"));
+        LocalDateTime purchased = rs.getTimestamp("purchase_date").toLocalDateTime();
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        LocalDateTime changed = updatedAt != null ? updatedAt.toLocalDateTime() : purchased;
+
+        EventCategory category = categoryOf(eventId);
+        if (status == TicketStatus.confirmed || status == TicketStatus.refunded) {
+            fold(buffer, eventId, category, delta(TicketStatus.confirmed, quantity, total), purchased);
+        }
+        if (status == TicketStatus.cancelled || status == TicketStatus.refunded) {
+            fold(buffer, eventId, category, delta(status, quantity, total), changed);
+        }
+    }
+
+    private SalesReportDTO report(String scope, String key, int scopeCode, int scopeId, String sql, Object scopeArg,
+                                  SalesGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new InvalidSalesQueryException("A time range with from before to is required");
+        }
+        long firstBucket = bucketIndex(from, granularity);
+        long lastBucket = bucketIndex(to.minusNanos(1), granularity);
+        if (lastBucket - firstBucket + 1 > maxBuckets) {
+            throw new InvalidSalesQueryException("Range spans more than " + maxBuckets + " " + granularity + " buckets");
+        }
+
+        long[][] rows = new long[(int) (lastBucket - firstBucket + 1)][];
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            long bucket = bucketIndex(rs.getTimestamp("bucket_start").toLocalDateTime(), granularity);
+            rows[(int) (bucket - firstBucket)] = new long[]{rs.getLong("orders"), rs.getLong("tickets"),
+                    rs.getLong("gross_cents"), rs.getLong("cancelled_tickets"), rs.getLong("refunded_tickets"),
+                    rs.getLong("refunded_cents")};
+        }, scopeArg, granularity.getCode(), Timestamp.valueOf(bucketStart(firstBucket, granularity)),
+                Timestamp.valueOf(bucketStart(lastBucket + 1, granularity)));
+
+        // this node's unflushed deltas, so a dashboard sees its own sales without waiting for the flush
+        long[] local = new long[RollupBuffer.fields];
+        synchronized (this) {
+            for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+                if (pending.get(RollupBuffer.key(scopeCode, granularity.ordinal(), scopeId, bucket), local)) {
+                    int index = (int) (bucket - firstBucket);
+                    if (rows[index] == null) {
+                        rows[index] = new long[RollupBuffer.fields];
+                    }
+                    for (int i = 0; i < RollupBuffer.fields; i++) {
+                        rows[index][i] += local[i];
+                    }
+                }
+            }
+        }
+
+        long[] totals = new long[RollupBuffer.fields];
+        List<SalesBucketDTO> buckets = new ArrayList<>();
+        for (int index = 0; index < rows.length; index++) {
+            if (rows[index] == null) {
+                continue;
+            }
+            for (int i = 0; i < RollupBuffer.fields; i++) {
+                totals[i] += rows[index][i];
+            }
+            buckets.add(toBucket(bucketStart(firstBucket + index, granularity), rows[index]));
+        }
+
+        return SalesReportDTO.builder()
+                .scope(scope)
+                .key(key)
+                .granularity(granularity)
+                .from(from)
+                .to(to)
+                .totals(toBucket(null, totals))
+                .buckets(buckets)
+                .build();
+    }
+
+    private void write(RollupBuffer buffer, String eventSql, String categorySql) {
+        List<Object[]> eventRows = new ArrayList<>();
+        List<Object[]> categoryRows = new ArrayList<>();
+        buffer.forEach((key, row) -> {
+            SalesGranularity granularity = granularities[RollupBuffer.granularity(key)];
+            int id = RollupBuffer.id(key);
+            Object scopeValue = RollupBuffer.scope(key) == RollupBuffer.eventScope ? id : categories[id].name();
+            Object[] args = {scopeValue, granularity.getCode(),
+                    Timestamp.valueOf(bucketStart(RollupBuffer.bucket(key), granularity)),
+                    row[0], row[1], row[2], row[3], row[4], row[5]};
+            (RollupBuffer.scope(key) == RollupBuffer.eventScope ? eventRows : categoryRows).add(args);
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < eventRows.size(); i += writeBatchSize) {
+                jdbcTemplate.batchUpdate(eventSql, eventRows.subList(i, Math.min(i + writeBatchSize, eventRows.size())));
+            }
+            for (int i = 0; i < categoryRows.size(); i += writeBatchSize) {
+                jdbcTemplate.batchUpdate(categorySql, categoryRows.subList(i, Math.min(i + writeBatchSize, categoryRows.size())));
+            }
+        });
+    }
+
+    private static void fold(RollupBuffer buffer, int eventId, EventCategory category, long[] delta, LocalDateTime at) {
+        for (SalesGranularity granularity : granularities) {
+            long bucket = bucketIndex(at, granularity);
+            buffer.add(RollupBuffer.key(RollupBuffer.eventScope, granularity.ordinal(), eventId, bucket), delta);
+            if (category != null) {
+                buffer.add(RollupBuffer.key(RollupBuffer.categoryScope, granularity.ordinal(), category.ordinal(), bucket), delta);
+            }
+        }
+    }
+
+    private static long[] delta(TicketStatus status, int quantity, BigDecimal totalPrice) {
+        long cents = totalPrice.movePointRight(2).longValue();
+        long[] delta = new long[RollupBuffer.fields];
+        switch (status) {
+            case confirmed -> {
+                delta[RollupBuffer.orders] = 1;
+                delta[RollupBuffer.tickets] = quantity;
+                delta[RollupBuffer.grossCents] = cents;
+            }
+            case cancelled -> delta[RollupBuffer.cancelledTickets] = quantity;
+            case refunded -> {
+                delta[RollupBuffer.refundedTickets] = quantity;
+                delta[RollupBuffer.refundedCents] = cents;
+            }
+            default -> {
+                return null;
+            }
+        }
+        return delta;
+    }
+
+    private EventCategory categoryOf(Integer eventId) {
+        EventDTO event = eventCatalogueService.findCachedEvent(eventId);
+        return event != null ? event.getCategory() : null;
+    }
+
+    // wall-clock buckets: local timestamps are indexed as if they were UTC, matching how they are stored
+    private static long bucketIndex(LocalDateTime time, SalesGranularity granularity) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), granularity.getSeconds());
+    }
+
+    private static LocalDateTime bucketStart(long bucket, SalesGranularity granularity) {
+        return LocalDateTime.ofEpochSecond(bucket * granularity.getSeconds(), 0, ZoneOffset.UTC);
+    }
+
+    private static SalesBucketDTO toBucket(LocalDateTime start, long[] row) {
+        return SalesBucketDTO.builder()
+                .bucketStart(start)
+                .orders(row[RollupBuffer.orders])
+                .tickets(row[RollupBuffer.tickets])
+                .grossRevenue(BigDecimal.valueOf(row[RollupBuffer.grossCents], 2))
+                .cancelledTickets(row[RollupBuffer.cancelledTickets])
+                .refundedTickets(row[RollupBuffer.refundedTickets])
+                .refundedRevenue(BigDecimal.valueOf(row[RollupBuffer.refundedCents], 2))
+                .netRevenue(BigDecimal.valueOf(row[RollupBuffer.grossCents] - row[RollupBuffer.refundedCents], 2))
+                .build();
+    }
+
+    private record ReplayResult(RollupBuffer buffer, long rows) {
+    }
+
+    // for monitoring
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+
+    public long getFlushedBucketCount() {
+        return flushedBuckets.sum();
+    }
+
+    public synchronized int getPendingBucketCount() {
+        return pending.size();
+    }
+
+    public long getLastFlushMillis() {
+        return lastFlushMillis.get();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.events.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// delivers a whole batch over one connection of the spring.mail.* sender
+@Component
+@ConditionalOnProperty(name = "delivery.mail.transport", havingValue = "smtp")
+public class SmtpMailTransport implements MailTransport {
+
+    private final JavaMailSender mailSender;
+    private final InternetAddress from;
+
+    public SmtpMailTransport(JavaMailSender mailSender,
+                             @Value("${delivery.mail.from:tickets@localhost}") String from) {
+        this.mailSender = mailSender;
+        this.from = MailTransport.sender(from);
+    }
+
+    @Override
+    public SendResult send(List<MailMessage> messages) {
+        Map<String, String> rejected = new HashMap<>();
+        Map<MimeMessage, String> ids = new IdentityHashMap<>();
+        List<MimeMessage> mimes = new ArrayList<>(messages.size());
+        for (MailMessage message : messages) {
+            MimeMessage mime = mailSender.createMimeMessage();
+            try {
+                MailTransport.fill(mime, from, message);
+            } catch (MessagingException e) {
+                rejected.put(message.id(), "Invalid message: " + e.getMessage());
+                continue;
+            }
+            ids.put(mime, message.id());
+            mimes.add(mime);
+        }
+
+        Set<String> accepted = new HashSet<>(ids.values());
+        if (mimes.isEmpty()) {
+            return new SendResult(accepted, rejected);
+        }
+        try {
+            mailSender.send(mimes.toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                accepted.clear();
+                return new SendResult(accepted, rejected);
+            }
+            // the server refusing a recipient is final; anything else is retried
+            e.getFailedMessages().forEach((mime, cause) -> {
+                String id = ids.get(mime);
+                accepted.remove(id);
+                if (cause instanceof SendFailedException failed && failed.getInvalidAddresses() != null
+                        && failed.getInvalidAddresses().length > 0) {
+                    rejected.put(id, "Recipient refused: " + cause.getMessage());
+                }
+            });
+        } catch (MailException e) {
+            accepted.clear();
+        }
+        return new SendResult(accepted, rejected);
+    }
+}
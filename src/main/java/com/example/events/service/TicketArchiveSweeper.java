@@ -0,0 +1,229 @@
+package com.example.events.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// marks past events as finished and moves tickets of long-finished events into tickets_archive. Every chunk is its
+// own short transaction, a Redis lease keeps it to one node, and the last fully archived event id is kept in Redis
+// so a crashed or interrupted run picks up where it stopped
+@Service
+public class TicketArchiveSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(TicketArchiveSweeper.class);
+
+    static final String lockName = "sweeper:archive";
+    static final String cursorKey = "sweeper:archive:cursor";
+    private static final int candidateBatch = 100;
+
+    private static final String finishSql = "UPDATE events SET is_finished = TRUE WHERE id IN (SELECT id FROM events " +
+            "WHERE is_finished = FALSE AND date + end_time < ? ORDER BY date + end_time LIMIT ?)";
+    private static final String candidateSql = "SELECT id FROM events e WHERE is_finished = TRUE AND date < ? AND id > ? " +
+            "AND EXISTS (SELECT 1 FROM tickets t WHERE t.event_id = e.id) ORDER BY id LIMIT ?";
+    private static final String ticketColumns = "id, user_id, event_id, quantity, price_per_ticket, total_price, status, " +
+            "purchase_date, hold_expires_at, qr_code_url, email_sent, created_at, updated_at";
+    // delete and insert in one statement, so a chunk is either fully archived or not at all
+    private static final String moveSql = "WITH moved AS (DELETE FROM tickets WHERE id IN (SELECT id FROM tickets " +
+            "WHERE event_id = ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING " + ticketColumns + ") " +
+            "INSERT INTO tickets_archive (" + ticketColumns + ", archived_at) SELECT " + ticketColumns + ", ? FROM moved";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisLock redisLock;
+    private final WaitingRoomService waitingRoomService;
+    private final TicketPurchaseBatcher ticketPurchaseBatcher;
+    private final TicketReconciliationService ticketReconciliationService;
+    private final int chunkSize;
+    private final int dutyCyclePercent;
+    private final long archiveAfterDays;
+    private final long maxRunMillis;
+    private final long busyBacklog;
+    private final Duration lease;
+
+
+    private final LongAdder finishedEvents = new LongAdder();
+    private final LongAdder archivedTickets = new LongAdder();
+    private final LongAdder yieldedRuns = new LongAdder();
+    private volatile double lastRowsPerSecond;
+    private volatile long lastRunMillis = -1;
+
+    public TicketArchiveSweeper(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                RedisTemplate<String, String> redisTemplate,
+                                RedisLock redisLock,
+                                WaitingRoomService waitingRoomService,
+                                TicketPurchaseBatcher ticketPurchaseBatcher,
+                                TicketReconciliationService ticketReconciliationService,
+                                @Value("${sweeper.chunk-size:500}") int chunkSize,
+                                @Value("${sweeper.duty-cycle-percent:20}") int dutyCyclePercent,
+                                @Value("${sweeper.archive-after-days:30}") long archiveAfterDays,
+                                @Value("${sweeper.max-run-ms:300000}") long maxRunMillis,
+                                @Value("${sweeper.busy-backlog:100}") long busyBacklog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.redisTemplate = redisTemplate;
+        this.redisLock = redisLock;
+        this.waitingRoomService = waitingRoomService;
+        this.ticketPurchaseBatcher = ticketPurchaseBatcher;
+        this.ticketReconciliationService = ticketReconciliationService;
+        this.chunkSize = chunkSize;
+        this.dutyCyclePercent = Math.max(1, Math.min(dutyCyclePercent, 100));
+        this.archiveAfterDays = archiveAfterDays;
+        this.maxRunMillis = maxRunMillis;
+        this.busyBacklog = busyBacklog;
+        this.lease = Duration.ofSeconds(60);
+    }
+
+    // throttled runs take minutes
+    @Scheduled(initialDelayString = "${sweeper.interval-ms:600000}", fixedDelayString = "${sweeper.interval-ms:600000}")
+    public void sweep() {
+        String token;
+        try {
+            token = redisLock.tryAcquire(lockName, lease);
+        } catch (Exception e) {
+            log.warn("Failed to acquire archive sweeper lease: {}", e.getMessage());
+            return;
+        }
+        if (token == null) {
+            return;
+        }
+
+        Run run = new Run(token);
+        try {
+            if (finishEvents(run)) {
+                archiveTickets(run);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Archive sweep failed: {}", e.getMessage());
+        } finally {
+            redisLock.release(lockName, token);
+            long elapsedNanos = System.nanoTime() - run.startNanos;
+            lastRunMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            lastRowsPerSecond = elapsedNanos == 0 ? 0 : (run.finished + run.archived) * 1_000_000_000d / elapsedNanos;
+            if (run.finished + run.archived > 0) {
+                log.info("Archive sweep finished {} events and archived {} tickets in {} ms ({} rows/s)",
+                        run.finished, run.archived, lastRunMillis, Math.round(lastRowsPerSecond));
+            }
+        }
+    }
+
+    private boolean finishEvents(Run run) throws InterruptedException {
+        int updated;
+        do {
+            long start = System.nanoTime();
+            updated = jdbcTemplate.update(finishSql, Timestamp.valueOf(LocalDateTime.now()), chunkSize);
+            run.finished += updated;
+            finishedEvents.add(updated);
+            if (!pause(run, System.nanoTime() - start)) {
+                return false;
+            }
+        } while (updated == chunkSize);
+        return true;
+    }
+
+    private void archiveTickets(Run run) throws InterruptedException {
+        Date cutoff = Date.valueOf(LocalDate.now().minusDays(archiveAfterDays));
+        String stored = redisTemplate.opsForValue().get(cursorKey);
+        int cursor = stored != null ? Integer.parseInt(stored) : 0;
+
+        while (true) {
+            List<Integer> eventIds = jdbcTemplate.queryForList(candidateSql, Integer.class, cutoff, cursor, candidateBatch);
+            if (eventIds.isEmpty()) {
+                // pass complete; the next run starts over to catch events that finished since
+                redisTemplate.delete(cursorKey);
+                return;
+            }
+
+            for (Integer eventId : eventIds) {
+                int moved;
+                do {
+                    long start = System.nanoTime();
+                    Integer count = transactionTemplate.execute(status -> jdbcTemplate.update(moveSql, eventId, chunkSize,
+                            Timestamp.valueOf(LocalDateTime.now())));
+                    moved = count != null ? count : 0;
+                    run.archived += moved;
+                    archivedTickets.add(moved);
+                    if (!pause(run, System.nanoTime() - start)) {
+                        return;
+                    }
+                } while (moved == chunkSize);
+
+                cursor = eventId;
+                redisTemplate.opsForValue().set(cursorKey, Integer.toString(cursor));
+            }
+        }
+    }
+
+    // sleeps so the sweeper only holds the database for its duty cycle, and stops the run when the lease is lost,
+    // the time budget is spent or an on-sale is in progress
+    private boolean pause(Run run, long chunkNanos) throws InterruptedException {
+        long sleepNanos = chunkNanos * (100 - dutyCyclePercent) / dutyCyclePercent;
+        if (sleepNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        }
+        if (!redisLock.extend(lockName, run.token, lease)) {
+            log.warn("Lost archive sweeper lease, stopping");
+            return false;
+        }
+        if (System.nanoTime() - run.startNanos > TimeUnit.MILLISECONDS.toNanos(maxRunMillis) || onSaleInProgress()) {
+            yieldedRuns.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean onSaleInProgress() {
+        return waitingRoomService.getOpenRoomCount() > 0
+                || ticketPurchaseBatcher.getPendingPurchaseCount() > 0
+                || ticketReconciliationService.getBacklog() > busyBacklog;
+    }
+
+    private static final class Run {
+        private final String token;
+        private final long startNanos = System.nanoTime();
+        private long finished;
+        private long archived;
+
+        Run(String token) {
+            this.token = token;
+        }
+    }
+
+    // for monitoring
+    public long getFinishedEventCount() {
+        return finishedEvents.sum();
+    }
+
+    public long getArchivedTicketCount() {
+        return archivedTickets.sum();
+    }
+
+    public long getYieldedRunCount() {
+        return yieldedRuns.sum();
+    }
+
+    public double getLastRowsPerSecond() {
+        return lastRowsPerSecond;
+    }
+
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+}
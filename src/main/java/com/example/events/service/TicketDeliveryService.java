@@ -0,0 +1,395 @@
+package com.example.events.service;
+
+import com.example.events.exception.TicketNotFoundException;
+import com.example.events.exception.UnauthorizedException;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// drains the ticket_delivery_outbox rows written in the same transaction as the purchase: renders QR codes on a
+// bounded pool, mails confirmations in batches and flips qr_code_url/email_sent with batched updates
+@Service
+public class TicketDeliveryService {
+
+    private static final Logger log = LoggerFactory.getLogger(TicketDeliveryService.class);
+
+    static final String enqueueSql = "INSERT INTO ticket_delivery_outbox (ticket_id) VALUES (?)";
+    // claiming pushes next_attempt_at out by the lease, so rows held by a crashed node are retried later
+    private static final String claimSql = "UPDATE ticket_delivery_outbox SET attempts = attempts + 1, next_attempt_at = ? " +
+            "WHERE id IN (SELECT id FROM ticket_delivery_outbox WHERE dead_lettered_at IS NULL AND next_attempt_at <= ? " +
+            "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING id, ticket_id, attempts";
+    // given-up rows stay for an operator, out of the claim's partial index
+    private static final String deadLetterSql = "UPDATE ticket_delivery_outbox SET dead_lettered_at = ?, last_error = ? " +
+            "WHERE id = ?";
+    private static final String ticketSql = "SELECT t.id, t.event_id, t.quantity, t.total_price, t.status, t.qr_code_url, " +
+            "t.email_sent, u.email, u.name, e.title, e.date, e.start_time, e.location FROM tickets t " +
+            "JOIN users u ON u.id = t.user_id JOIN events e ON e.id = t.event_id WHERE t.id = ANY(?)";
+    // level M and a four-module quiet zone, as scanners at the entrance expect
+    private static final Map<EncodeHintType, Object> qrHints = Map.of(
+            EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M, EncodeHintType.MARGIN, 4);
+    private static final int qrSize = 300;
+    private static final String qrUrlPrefix = "/api/tickets/";
+    private static final String qrUrlSuffix = "/qr";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MailTransport mailTransport;
+    private final Path qrDirectory;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long leaseMillis;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final ThreadPoolExecutor renderPool;
+
+    private final LongAdder rendered = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+    private final LongAdder mailed = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private volatile double deliveriesPerSecond;
+
+    public TicketDeliveryService(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 MailTransport mailTransport,
+                                 @Value("${delivery.qr.directory:data/qr}") String qrDirectory,
+                                 @Value("${delivery.batch-size:200}") int batchSize,
+                                 @Value("${delivery.render-threads:4}") int renderThreads,
+                                 @Value("${delivery.max-attempts:8}") int maxAttempts,
+                                 @Value("${delivery.lease-ms:300000}") long leaseMillis,
+                                 @Value("${delivery.backoff.base-ms:2000}") long baseBackoffMillis,
+                                 @Value("${delivery.backoff.max-ms:600000}") long maxBackoffMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.mailTransport = mailTransport;
+        this.qrDirectory = Path.of(qrDirectory);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.leaseMillis = leaseMillis;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        // a full queue makes the dispatcher render inline instead of growing without bound
+        this.renderPool = new ThreadPoolExecutor(renderThreads, renderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize), runnable -> {
+            Thread thread = new Thread(runnable, "ticket-qr");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renderPool.shutdown();
+    }
+
+    public byte[] getQrCode(String ticketId, HttpServletRequest request) {
+        String userId = (String) request.getAttribute("userId");
+        if (userId == null) {
+            throw new UnauthorizedException("User not authenticated");
+        }
+
+        // tickets of long-finished events live in tickets_archive, with the same qr_code_url
+        UUID owner = UUID.fromString(userId);
+        List<String> urls = jdbcTemplate.queryForList("SELECT qr_code_url FROM tickets WHERE id = ? AND user_id = ? " +
+                "UNION ALL SELECT qr_code_url FROM tickets_archive WHERE id = ? AND user_id = ?",
+                String.class, ticketId, owner, ticketId, owner);
+        if (urls.isEmpty() || urls.get(0) == null) {
+            throw new TicketNotFoundException("No QR code available for ticket " + ticketId);
+        }
+        try {
+            return Files.readAllBytes(qrPath(ticketId));
+        } catch (IOException e) {
+            throw new TicketNotFoundException("No QR code available for ticket " + ticketId);
+        }
+    }
+
+    // a slow mail server can hold this for a while
+    @Scheduled(initialDelayString = "${delivery.poll-interval-ms:1000}", fixedDelayString = "${delivery.poll-interval-ms:1000}")
+    void poll() {
+        try {
+            int claimed;
+            do {
+                claimed = deliverBatch();
+            } while (claimed == batchSize);
+        } catch (Exception e) {
+            log.warn("Ticket delivery failed: {}", e.getMessage());
+        }
+    }
+
+    private int deliverBatch() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEntry> entries = transactionTemplate.execute(status -> jdbcTemplate.query(claimSql,
+                (rs, rowNum) -> new OutboxEntry(rs.getLong("id"), rs.getString("ticket_id"), rs.getInt("attempts")),
+                Timestamp.valueOf(now.plusNanos(leaseMillis * 1_000_000)), Timestamp.valueOf(now), batchSize));
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, DeliveryTicket> tickets = loadTickets(entries.stream().map(OutboxEntry::ticketId).toList());
+        Map<String, String> errors = new HashMap<>();
+        Map<String, String> undeliverable = new HashMap<>();
+
+        Set<String> withQr = renderQrCodes(tickets.values(), errors);
+        Set<String> withMail = sendMail(tickets.values(), withQr, errors, undeliverable);
+
+        List<Object[]> done = new ArrayList<>();
+        List<Object[]> retry = new ArrayList<>();
+        List<Object[]> dead = new ArrayList<>();
+        for (OutboxEntry entry : entries) {
+            DeliveryTicket ticket = tickets.get(entry.ticketId());
+            // deleted or cancelled tickets have nothing left to deliver
+            if (ticket == null || !"confirmed".equals(ticket.status())
+                    || (withQr.contains(entry.ticketId()) && withMail.contains(entry.ticketId()))) {
+                done.add(new Object[]{entry.id()});
+                continue;
+            }
+            String error = undeliverable.get(entry.ticketId());
+            if (error == null) {
+                error = errors.getOrDefault(entry.ticketId(), "Delivery incomplete");
+                if (entry.attempts() < maxAttempts) {
+                    retry.add(new Object[]{Timestamp.valueOf(LocalDateTime.now().plusNanos(backoffMillis(entry.attempts()) * 1_000_000)),
+                            truncate(error), entry.id()});
+                    continue;
+                }
+            }
+            exhausted.increment();
+            log.warn("Giving up on delivery of ticket {} after {} attempts: {}", entry.ticketId(), entry.attempts(), error);
+            dead.add(new Object[]{Timestamp.valueOf(LocalDateTime.now()), truncate(error), entry.id()});
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("DELETE FROM ticket_delivery_outbox WHERE id = ?", done);
+            jdbcTemplate.batchUpdate("UPDATE ticket_delivery_outbox SET next_attempt_at = ?, last_error = ? WHERE id = ?", retry);
+            jdbcTemplate.batchUpdate(deadLetterSql, dead);
+        });
+
+        delivered.add(done.size());
+        retried.add(retry.size());
+        long elapsedNanos = System.nanoTime() - start;
+        deliveriesPerSecond = elapsedNanos == 0 ? 0 : done.size() * 1_000_000_000d / elapsedNanos;
+        return entries.size();
+    }
+
+    private Map<String, DeliveryTicket> loadTickets(List<String> ticketIds) {
+        Map<String, DeliveryTicket> tickets = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ticketSql);
+            Array ids = connection.createArrayOf("varchar", ticketIds.toArray());
+            statement.setArray(1, ids);
+            return statement;
+        }, (RowCallbackHandler) rs -> tickets.put(rs.getString("id"), new DeliveryTicket(
+                rs.getString("id"), rs.getInt("event_id"), rs.getInt("quantity"), rs.getBigDecimal("total_price"),
+                rs.getString("status"), rs.getString("qr_code_url"), rs.getBoolean("email_sent"),
+                rs.getString("email"), rs.getString("name"), rs.getString("title"),
+                rs.getDate("date").toLocalDate(), rs.getTime("start_time").toLocalTime(), rs.getString("location"))));
+        return tickets;
+    }
+
+    private Set<String> renderQrCodes(Iterable<DeliveryTicket> tickets, Map<String, String> errors) {
+        Set<String> ready = new HashSet<>();
+        Map<String, CompletableFuture<Void>> pending = new HashMap<>();
+        for (DeliveryTicket ticket : tickets) {
+            if (ticket.qrCodeUrl() != null) {
+                ready.add(ticket.id());
+            } else if ("confirmed".equals(ticket.status())) {
+                pending.put(ticket.id(), CompletableFuture.runAsync(() -> renderQrCode(ticket), renderPool));
+            }
+        }
+
+        List<Object[]> updates = new ArrayList<>();
+        pending.forEach((ticketId, future) -> {
+            try {
+                future.join();
+                ready.add(ticketId);
+                updates.add(new Object[]{qrUrlPrefix + ticketId + qrUrlSuffix, ticketId});
+            } catch (Exception e) {
+                errors.put(ticketId, "QR rendering failed: " + e.getMessage());
+            }
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE tickets SET qr_code_url = ? WHERE id = ?", updates);
+        }
+        return ready;
+    }
+
+    private void renderQrCode(DeliveryTicket ticket) {
+        long start = System.nanoTime();
+        byte[] png = qrPng("TICKET:" + ticket.id() + ":" + ticket.eventId() + ":" + ticket.quantity());
+        try {
+            Files.createDirectories(qrDirectory);
+            Path temp = Files.createTempFile(qrDirectory, ticket.id(), ".tmp");
+            Files.write(temp, png);
+            Files.move(temp, qrPath(ticket.id()), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rendered.increment();
+        renderNanos.add(System.nanoTime() - start);
+    }
+
+    // the payload scanners at the entrance read back; package-private so the round trip can be tested
+    static byte[] qrPng(String payload) {
+        try {
+            BitMatrix matrix = new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, qrSize, qrSize, qrHints);
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            MatrixToImageWriter.writeToStream(matrix, "PNG", png);
+            return png.toByteArray();
+        } catch (WriterException e) {
+            throw new IllegalArgumentException("Cannot encode QR payload", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // undeliverable collects messages that will fail the same way on every attempt
+    private Set<String> sendMail(Iterable<DeliveryTicket> tickets, Set<String> withQr, Map<String, String> errors,
+                                 Map<String, String> undeliverable) {
+        Set<String> sent = new HashSet<>();
+        List<MailTransport.MailMessage> messages = new ArrayList<>();
+        for (DeliveryTicket ticket : tickets) {
+            if (ticket.emailSent()) {
+                sent.add(ticket.id());
+            } else if (withQr.contains(ticket.id()) && "confirmed".equals(ticket.status())) {
+                messages.add(confirmationMail(ticket));
+            }
+        }
+        if (messages.isEmpty()) {
+            return sent;
+        }
+
+        MailTransport.SendResult result = mailTransport.send(messages);
+        Set<String> accepted = result.accepted();
+        undeliverable.putAll(result.rejected());
+        messages.stream()
+                .filter(message -> !accepted.contains(message.id()))
+                .forEach(message -> errors.put(message.id(), "Mail delivery failed for " + message.to()));
+
+        if (!accepted.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE tickets SET email_sent = TRUE WHERE id = ?",
+                    accepted.stream().map(ticketId -> new Object[]{ticketId}).toList());
+        }
+        mailed.add(accepted.size());
+        sent.addAll(accepted);
+        return sent;
+    }
+
+    private MailTransport.MailMessage confirmationMail(DeliveryTicket ticket) {
+        String body = "Hi " + ticket.userName() + ",\n\n"
+                + "Your order for " + ticket.quantity() + " ticket(s) to " + ticket.eventTitle() + " is confirmed.\n\n"
+                + "When: " + ticket.eventDate() + " " + ticket.startTime() + "\n"
+                + "Where: " + ticket.location() + "\n"
+                + "Total: " + ticket.totalPrice() + "\n"
+                + "Ticket: " + ticket.id() + "\n\n"
+                + "Show the QR code at " + qrUrlPrefix + ticket.id() + qrUrlSuffix + " at the entrance.\n";
+        return new MailTransport.MailMessage(ticket.id(), ticket.email(),
+                "Your tickets for " + ticket.eventTitle(), body);
+    }
+
+    private static String truncate(String error) {
+        return error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    // exponential with up to 20% jitter so a failed batch does not come back as one burst
+    private long backoffMillis(int attempts) {
+        long backoff = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempts - 1, 30));
+        return backoff + ThreadLocalRandom.current().nextLong(backoff / 5 + 1);
+    }
+
+    private Path qrPath(String ticketId) {
+        return qrDirectory.resolve(ticketId + ".png");
+    }
+
+    // for monitoring
+    public long getRenderedCount() {
+        return rendered.sum();
+    }
+
+    public long getAverageRenderMicros() {
+        long count = rendered.sum();
+        return count == 0 ? 0 : renderNanos.sum() / count / 1000;
+    }
+
+    public long getMailedCount() {
+        return mailed.sum();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    public long getRetryCount() {
+        return retried.sum();
+    }
+
+    public long getExhaustedCount() {
+        return exhausted.sum();
+    }
+
+    public double getDeliveriesPerSecond() {
+        return deliveriesPerSecond;
+    }
+
+    public long getBacklog() {
+        Long backlog = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ticket_delivery_outbox WHERE dead_lettered_at IS NULL", Long.class);
+        return backlog != null ? backlog : 0;
+    }
+
+    public long getDeadLetteredCount() {
+        Long dead = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ticket_delivery_outbox WHERE dead_lettered_at IS NOT NULL", Long.class);
+        return dead != null ? dead : 0;
+    }
+
+    private record OutboxEntry(long id, String ticketId, int attempts) {
+    }
+
+    private record DeliveryTicket(String id, int eventId, int quantity, BigDecimal totalPrice, String status,
+                                  String qrCodeUrl, boolean emailSent, String email, String userName,
+                                  String eventTitle, LocalDate eventDate, LocalTime startTime, String location) {
+    }
+}
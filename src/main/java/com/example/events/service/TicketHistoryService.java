@@ -0,0 +1,105 @@
+package com.example.events.service;
+
+import com.example.events.DTO.TicketHistoryDTO;
+import com.example.events.DTO.TicketHistoryResponse;
+import com.example.events.exception.InvalidCursorException;
+import com.example.events.exception.UnauthorizedException;
+import com.example.events.model.TicketStatus;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@Transactional(readOnly = true)
+public class TicketHistoryService {
+
+    private static final int maxPageSize = 100;
+
+    // each branch is one range scan on idx_tickets_user_purchase or idx_tickets_archive_user_purchase, cut to the
+    // page size before merging, plus one primary key lookup on events per returned row
+    private static final String pageColumns = "SELECT id, event_id, quantity, total_price, status, purchase_date FROM ";
+    private static final String userFilter = " WHERE user_id = ?";
+    private static final String beforeCursor = " AND (purchase_date < ? OR (purchase_date = ? AND id < ?))";
+    private static final String pageOrder = " ORDER BY purchase_date DESC, id DESC LIMIT ?";
+    private static final String historySql = "SELECT h.id, h.event_id, e.title, e.date, h.quantity, h.total_price, " +
+            "h.status, h.purchase_date FROM ((" + pageColumns + "tickets%1$s) UNION ALL (" + pageColumns +
+            "tickets_archive%1$s)) h JOIN events e ON e.id = h.event_id ORDER BY h.purchase_date DESC, h.id DESC LIMIT ?";
+    private static final String firstPageSql = historySql.formatted(userFilter + pageOrder);
+    private static final String nextPageSql = historySql.formatted(userFilter + beforeCursor + pageOrder);
+
+    private static final RowMapper<TicketHistoryDTO> historyMapper = (rs, rowNum) -> new TicketHistoryDTO(
+            rs.getString(1), rs.getInt(2), rs.getString(3), rs.getDate(4).toLocalDate(), rs.getInt(5),
+            rs.getBigDecimal(6), TicketStatus.valueOf(rs.getString(7)), rs.getTimestamp(8).toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TicketHistoryService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // newest first across live and archived tickets; the cursor is the last row's (purchase_date, id), so every page
+    // is one index range scan per table
+    public TicketHistoryResponse getHistory(String cursor, int limit, HttpServletRequest request) {
+        UUID userId = getAuthenticatedUserId(request);
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+
+        List<TicketHistoryDTO> tickets;
+        if (cursor == null || cursor.isBlank()) {
+            tickets = jdbcTemplate.query(firstPageSql, historyMapper, userId, pageSize, userId, pageSize, pageSize);
+        } else {
+            TicketCursor before = TicketCursor.decode(cursor);
+            Timestamp purchaseDate = Timestamp.valueOf(before.purchaseDate());
+            tickets = jdbcTemplate.query(nextPageSql, historyMapper,
+                    userId, purchaseDate, purchaseDate, before.id(), pageSize,
+                    userId, purchaseDate, purchaseDate, before.id(), pageSize, pageSize);
+        }
+
+        String nextCursor = null;
+        if (tickets.size() == pageSize) {
+            TicketHistoryDTO last = tickets.get(tickets.size() - 1);
+            nextCursor = new TicketCursor(last.getPurchaseDate(), last.getId()).encode();
+        }
+
+        return TicketHistoryResponse.builder()
+                .tickets(tickets)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private UUID getAuthenticatedUserId(HttpServletRequest request) {
+        String userId = (String) request.getAttribute("userId");
+
+        if (userId == null) {
+            throw new UnauthorizedException("User not authenticated");
+        }
+
+        return UUID.fromString(userId);
+    }
+
+    private record TicketCursor(LocalDateTime purchaseDate, String id) {
+
+        String encode() {
+            String raw = purchaseDate + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static TicketCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new TicketCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new InvalidCursorException("Invalid page cursor");
+            }
+        }
+    }
+}
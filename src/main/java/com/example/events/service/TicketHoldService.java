@@ -0,0 +1,312 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.PurchaseRequest;
+import com.example.events.DTO.TicketDTO;
+import com.example.events.exception.HoldExpiredException;
+import com.example.events.exception.SoldOutException;
+import com.example.events.exception.UnauthorizedException;
+import com.example.events.model.TicketStatus;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class TicketHoldService {
+
+    private static final Logger log = LoggerFactory.getLogger(TicketHoldService.class);
+
+    private static final String decrementSql = "UPDATE events SET available_tickets = available_tickets - ? " +
+            "WHERE id = ? AND available_tickets >= ?";
+    private static final String insertSql = "INSERT INTO tickets (id, user_id, event_id, quantity, price_per_ticket, " +
+            "total_price, status, purchase_date, hold_expires_at, email_sent) " +
+            "VALUES (?, ?, ?, ?, ?, ?, CAST('pending' AS ticket_status_type), ?, ?, FALSE)";
+    private static final String confirmSql = "UPDATE tickets SET status = CAST('confirmed' AS ticket_status_type), " +
+            "purchase_date = ?, hold_expires_at = NULL " +
+            "WHERE id = ? AND user_id = ? AND status = 'pending' AND hold_expires_at > ?";
+    // the row locks taken here and the status guard below make expiry race-free against confirmation and against
+    // the orphan sweep expiring the same hold
+    private static final String lockDueSql = "SELECT id, event_id, quantity FROM tickets " +
+            "WHERE id = ANY(?) AND status = 'pending' AND hold_expires_at <= ? FOR UPDATE";
+    private static final String expireSql = "UPDATE tickets SET status = CAST('cancelled' AS ticket_status_type), " +
+            "hold_expires_at = NULL WHERE id = ANY(?) AND status = 'pending'";
+    private static final String returnSql = "UPDATE events SET available_tickets = available_tickets + ? WHERE id = ?";
+    private static final String overdueSql = "SELECT id FROM tickets WHERE status = 'pending' AND hold_expires_at <= ? " +
+            "ORDER BY hold_expires_at LIMIT ?";
+
+    private static final String sweepLock = "tickets:hold-sweep";
+    private static final Duration sweepLease = Duration.ofSeconds(30);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisLock redisLock;
+    private final TicketReservationService ticketReservationService;
+    private final WaitingRoomService waitingRoomService;
+    private final AvailabilityStreamService availabilityStreamService;
+    private final SalesRollupService salesRollupService;
+    private final long holdSeconds;
+    private final int expiryBatchSize;
+    private final TimerWheel timerWheel;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder swept = new LongAdder();
+    private volatile long lastExpiryNanos = 0;
+
+    public TicketHoldService(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             RedisLock redisLock,
+                             TicketReservationService ticketReservationService,
+                             WaitingRoomService waitingRoomService,
+                             AvailabilityStreamService availabilityStreamService,
+                             SalesRollupService salesRollupService,
+                             @Value("${tickets.hold.seconds:600}") long holdSeconds,
+                             @Value("${tickets.hold.tick-ms:1000}") long tickMillis,
+                             @Value("${tickets.hold.expiry-batch-size:1000}") int expiryBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.redisLock = redisLock;
+        this.ticketReservationService = ticketReservationService;
+        this.waitingRoomService = waitingRoomService;
+        this.availabilityStreamService = availabilityStreamService;
+        this.salesRollupService = salesRollupService;
+        this.holdSeconds = holdSeconds;
+        this.expiryBatchSize = expiryBatchSize;
+        this.timerWheel = new TimerWheel(tickMillis, System.currentTimeMillis());
+    }
+
+    public TicketDTO hold(PurchaseRequest request, HttpServletRequest httpRequest) {
+        UUID userId = getAuthenticatedUserId(httpRequest);
+        Integer eventId = request.getEventId();
+        int quantity = request.getQuantity();
+        waitingRoomService.checkAdmitted(eventId, userId, httpRequest.getHeader(WaitingRoomService.admissionHeader));
+        EventDTO event = ticketReservationService.checkPurchasable(eventId, quantity);
+
+        if (!ticketReservationService.acquire(eventId, quantity)) {
+            throw new SoldOutException("Not enough tickets left for event with id: " + eventId);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusSeconds(holdSeconds);
+        TicketDTO ticket = TicketDTO.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(userId)
+                .eventId(eventId)
+                .quantity(quantity)
+                .pricePerTicket(event.getPrice())
+                .totalPrice(event.getPrice().multiply(BigDecimal.valueOf(quantity)))
+                .status(TicketStatus.pending)
+                .purchaseDate(now)
+                .holdExpiresAt(expiresAt)
+                .build();
+
+        boolean held;
+        try {
+            held = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (jdbcTemplate.update(decrementSql, quantity, eventId, quantity) == 0) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                jdbcTemplate.update(insertSql, ticket.getId(), userId, eventId, quantity, ticket.getPricePerTicket(),
+                        ticket.getTotalPrice(), Timestamp.valueOf(now), Timestamp.valueOf(expiresAt));
+                return true;
+            }));
+        } catch (RuntimeException e) {
+            ticketReservationService.release(eventId, quantity);
+            throw e;
+        }
+        if (!held) {
+            ticketReservationService.release(eventId, quantity);
+            throw new SoldOutException("Not enough tickets left for event with id: " + eventId);
+        }
+        availabilityStreamService.changed(eventId);
+
+        timerWheel.schedule(ticket.getId(), toMillis(expiresAt));
+        created.increment();
+        return ticket;
+    }
+
+    public TicketDTO confirm(String ticketId, HttpServletRequest httpRequest) {
+        UUID userId = getAuthenticatedUserId(httpRequest);
+        LocalDateTime now = LocalDateTime.now();
+
+        boolean confirmedHold = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(confirmSql, Timestamp.valueOf(now), ticketId, userId, Timestamp.valueOf(now)) == 0) {
+                return false;
+            }
+            jdbcTemplate.update(TicketDeliveryService.enqueueSql, ticketId);
+            return true;
+        }));
+        if (!confirmedHold) {
+            throw new HoldExpiredException("Hold " + ticketId + " has expired or does not exist");
+        }
+        timerWheel.cancel(ticketId);
+        confirmed.increment();
+
+        TicketDTO ticket = jdbcTemplate.queryForObject("SELECT id, user_id, event_id, quantity, price_per_ticket, total_price, " +
+                "purchase_date FROM tickets WHERE id = ?", (rs, rowNum) -> TicketDTO.builder()
+                .id(rs.getString("id"))
+                .userId(rs.getObject("user_id", UUID.class))
+                .eventId(rs.getInt("event_id"))
+                .quantity(rs.getInt("quantity"))
+                .pricePerTicket(rs.getBigDecimal("price_per_ticket"))
+                .totalPrice(rs.getBigDecimal("total_price"))
+                .status(TicketStatus.confirmed)
+                .purchaseDate(rs.getTimestamp("purchase_date").toLocalDateTime())
+                .build(), ticketId);
+        salesRollupService.record(ticket.getEventId(), TicketStatus.confirmed, ticket.getQuantity(),
+                ticket.getTotalPrice(), ticket.getPurchaseDate());
+        return ticket;
+    }
+
+    // the wheel only holds what this node created; a fixed delay keeps a slow round from queueing up behind itself on
+    // the shared scheduling pool
+    @Scheduled(fixedDelayString = "${tickets.hold.tick-ms:1000}")
+    public void expireDue() {
+        List<String> due = timerWheel.advance(System.currentTimeMillis());
+        long start = System.nanoTime();
+        for (int from = 0; from < due.size(); from += expiryBatchSize) {
+            List<String> batch = due.subList(from, Math.min(from + expiryBatchSize, due.size()));
+            try {
+                expire(batch);
+            } catch (Exception e) {
+                log.warn("Failed to expire {} ticket holds: {}", batch.size(), e.getMessage());
+                long retryAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+                batch.forEach(id -> timerWheel.schedule(id, retryAt));
+            }
+        }
+        if (!due.isEmpty()) {
+            lastExpiryNanos = System.nanoTime() - start;
+        }
+    }
+
+    // holds whose node restarted or went away are expired by whichever node holds the sweep lease, so the cluster
+    // scans for them once rather than every node reloading every hold; served by the partial index on pending holds
+    @Scheduled(initialDelayString = "${tickets.hold.orphan-sweep-ms:60000}",
+            fixedDelayString = "${tickets.hold.orphan-sweep-ms:60000}")
+    public void sweepOrphans() {
+        String lease;
+        try {
+            lease = redisLock.tryAcquire(sweepLock, sweepLease);
+        } catch (Exception e) {
+            log.warn("Failed to acquire ticket hold sweep lease: {}", e.getMessage());
+            return;
+        }
+        if (lease == null) {
+            return;
+        }
+
+        try {
+            List<String> overdue;
+            do {
+                Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusSeconds(30));
+                overdue = jdbcTemplate.queryForList(overdueSql, String.class, cutoff, expiryBatchSize);
+                if (!overdue.isEmpty()) {
+                    expire(overdue);
+                    swept.add(overdue.size());
+                }
+            } while (overdue.size() == expiryBatchSize && redisLock.extend(sweepLock, lease, sweepLease));
+        } catch (Exception e) {
+            log.warn("Failed to sweep orphaned ticket holds: {}", e.getMessage());
+        } finally {
+            redisLock.release(sweepLock, lease);
+        }
+    }
+
+    private void expire(List<String> ticketIds) {
+        Map<Integer, Integer> returned = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            returned.clear();
+            List<String> locked = new ArrayList<>();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(lockDueSql);
+                Array ids = connection.createArrayOf("varchar", ticketIds.toArray());
+                statement.setArray(1, ids);
+                statement.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                locked.add(rs.getString("id"));
+                returned.merge(rs.getInt("event_id"), rs.getInt("quantity"), Integer::sum);
+            });
+            if (!locked.isEmpty()) {
+                jdbcTemplate.update(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(expireSql);
+                    statement.setArray(1, connection.createArrayOf("varchar", locked.toArray()));
+                    return statement;
+                });
+                jdbcTemplate.batchUpdate(returnSql, returned.entrySet().stream()
+                        .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                        .toList());
+            }
+        });
+
+        returned.forEach(ticketReservationService::release);
+        returned.keySet().forEach(availabilityStreamService::changed);
+        LocalDateTime now = LocalDateTime.now();
+        returned.forEach((eventId, quantity) ->
+                salesRollupService.record(eventId, TicketStatus.cancelled, quantity, BigDecimal.ZERO, now));
+        expired.add(returned.values().stream().mapToLong(Integer::longValue).sum());
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private UUID getAuthenticatedUserId(HttpServletRequest request) {
+        String userId = (String) request.getAttribute("userId");
+
+        if (userId == null) {
+            throw new UnauthorizedException("User not authenticated");
+        }
+
+        return UUID.fromString(userId);
+    }
+
+    // for monitoring
+    public int getOpenHoldCount() {
+        return timerWheel.size();
+    }
+
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    public long getConfirmedCount() {
+        return confirmed.sum();
+    }
+
+    public long getExpiredTicketCount() {
+        return expired.sum();
+    }
+
+    // holds expired by the orphan sweep rather than by the node that created them
+    public long getSweptHoldCount() {
+        return swept.sum();
+    }
+
+    public long getLastExpiryMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(lastExpiryNanos);
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.TicketDTO;
+import com.example.events.exception.EventNotFoundException;
+import com.example.events.exception.ServiceBusyException;
+import com.example.events.exception.SoldOutException;
+import com.example.events.exception.UserNotFoundException;
+import com.example.events.model.TicketStatus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// group commit: purchases for the same event that arrive while a batch is open or committing share one transaction
+@Service
+public class TicketPurchaseBatcher {
+
+    private static final String usersSql = "SELECT id FROM users WHERE id = ANY(?)";
+    private static final String lockSql = "SELECT available_tickets FROM events WHERE id = ? FOR UPDATE";
+    private static final String decrementSql = "UPDATE events SET available_tickets = available_tickets - ? WHERE id = ?";
+    private static final String insertSql = "INSERT INTO tickets (id, user_id, event_id, quantity, price_per_ticket, " +
+            "total_price, status, purchase_date, email_sent) " +
+            "SELECT ?, ?, ?, ?, ?, ?, CAST(? AS ticket_status_type), ?, FALSE " +
+            "WHERE EXISTS (SELECT 1 FROM users WHERE id = ?)";
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long maxDelayMicros;
+    private final long timeoutMillis;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<Integer, EventBatch> batches = new ConcurrentHashMap<>();
+    // purchases waiting for a batch, across all events
+    private final AtomicInteger pendingPurchases = new AtomicInteger();
+
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder batchedPurchases = new LongAdder();
+    private final LongAccumulator maxBatch = new LongAccumulator(Math::max, 0);
+    private final LongAdder totalCommitNanos = new LongAdder();
+    private final LongAccumulator maxCommitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder withdrawn = new LongAdder();
+
+    public TicketPurchaseBatcher(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${tickets.batch.max-size:64}") int maxBatchSize,
+                                 @Value("${tickets.batch.max-delay-micros:2000}") long maxDelayMicros,
+                                 @Value("${tickets.batch.threads:4}") int threads,
+                                 @Value("${tickets.batch.timeout-ms:5000}") long timeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        // a batch transaction may not outlive the caller's own wait, so awaitCommit below has a bound that holds
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+        this.transactionTemplate.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMillis + 999)));
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMicros = maxDelayMicros;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ticket-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public TicketDTO purchase(UUID userId, EventDTO event, int quantity) {
+        PendingPurchase purchase = new PendingPurchase(userId, event, quantity, System.nanoTime(), new CompletableFuture<>());
+        EventBatch batch = enqueue(purchase);
+        try {
+            return purchase.result().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (TimeoutException e) {
+            // a purchase still in the queue is withdrawn, so a retry cannot buy twice; one already drained is inside
+            // a committing transaction, and its caller has to learn the outcome
+            if (withdraw(batch, purchase)) {
+                throw new ServiceBusyException("Ticket purchases are backed up, please retry", 1);
+            }
+            return awaitCommit(purchase);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (withdraw(batch, purchase)) {
+                throw new ServiceBusyException("Interrupted while waiting for purchase", 1);
+            }
+            return awaitCommit(purchase);
+        }
+    }
+
+    CompletableFuture<TicketDTO> submit(UUID userId, EventDTO event, int quantity) {
+        PendingPurchase purchase = new PendingPurchase(userId, event, quantity, System.nanoTime(), new CompletableFuture<>());
+        enqueue(purchase);
+        return purchase.result();
+    }
+
+    private EventBatch enqueue(PendingPurchase purchase) {
+        EventBatch batch = batches.computeIfAbsent(purchase.event().getId(), EventBatch::new);
+        synchronized (batch) {
+            batch.pending.add(purchase);
+            pendingPurchases.incrementAndGet();
+            if (!batch.scheduled) {
+                batch.scheduled = true;
+                executor.schedule(() -> flush(batch), maxDelayMicros, TimeUnit.MICROSECONDS);
+            } else if (batch.pending.size() == maxBatchSize && !batch.flushing) {
+                executor.execute(() -> flush(batch));
+            }
+        }
+        return batch;
+    }
+
+    // the transaction times out on its own after timeoutMillis, so one more such wait normally sees its outcome
+    private TicketDTO awaitCommit(PendingPurchase purchase) {
+        try {
+            return purchase.result().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceBusyException("Purchase is still being confirmed, check your tickets before retrying", 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while confirming purchase, check your tickets before retrying", 1);
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+    }
+
+    // draining happens under the same lock, so a purchase found here has not reached a transaction
+    private boolean withdraw(EventBatch batch, PendingPurchase purchase) {
+        synchronized (batch) {
+            if (batch.pending.remove(purchase)) {
+                pendingPurchases.decrementAndGet();
+                withdrawn.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // whatever queues up while a batch commits becomes the next batch, so one flusher per event is enough
+    private void flush(EventBatch batch) {
+        synchronized (batch) {
+            if (batch.flushing) {
+                return;
+            }
+            batch.flushing = true;
+        }
+        while (true) {
+            List<PendingPurchase> drained;
+            synchronized (batch) {
+                if (batch.pending.isEmpty()) {
+                    batch.flushing = false;
+                    batch.scheduled = false;
+                    return;
+                }
+                int size = Math.min(batch.pending.size(), maxBatchSize);
+                drained = new ArrayList<>(batch.pending.subList(0, size));
+                batch.pending.subList(0, size).clear();
+                pendingPurchases.addAndGet(-size);
+            }
+            apply(batch.eventId, drained);
+        }
+    }
+
+    private void apply(Integer eventId, List<PendingPurchase> purchases) {
+        long start = System.nanoTime();
+        TicketDTO[] tickets = new TicketDTO[purchases.size()];
+        boolean[] missingUser = new boolean[purchases.size()];
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int available;
+                try {
+                    available = jdbcTemplate.queryForObject(lockSql, Integer.class, eventId);
+                } catch (EmptyResultDataAccessException e) {
+                    throw new EventNotFoundException("Event not found with id: " + eventId);
+                }
+
+                // unknown buyers are ruled out before allocating, so they cannot take stock from buyers behind them
+                Set<UUID> users = new HashSet<>();
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(usersSql);
+                    statement.setArray(1, connection.createArrayOf("uuid",
+                            purchases.stream().map(PendingPurchase::userId).distinct().toArray()));
+                    return statement;
+                }, (RowCallbackHandler) rs -> users.add(rs.getObject("id", UUID.class)));
+
+                // first come, first served: a large order that no longer fits does not block smaller ones behind it
+                LocalDateTime now = LocalDateTime.now();
+                List<Object[]> args = new ArrayList<>();
+                List<Integer> rows = new ArrayList<>();
+                for (int i = 0; i < purchases.size(); i++) {
+                    PendingPurchase purchase = purchases.get(i);
+                    if (!users.contains(purchase.userId())) {
+                        missingUser[i] = true;
+                    } else if (purchase.quantity() <= available) {
+                        available -= purchase.quantity();
+                        TicketDTO ticket = purchase.toTicket(now);
+                        tickets[i] = ticket;
+                        rows.add(i);
+                        args.add(new Object[]{ticket.getId(), ticket.getUserId(), eventId, ticket.getQuantity(),
+                                ticket.getPricePerTicket(), ticket.getTotalPrice(), ticket.getStatus().name(),
+                                Timestamp.valueOf(now), ticket.getUserId()});
+                    }
+                }
+                if (args.isEmpty()) {
+                    return;
+                }
+
+                int[] counts = jdbcTemplate.batchUpdate(insertSql, args);
+                int sold = 0;
+                List<Object[]> deliveries = new ArrayList<>();
+                for (int row = 0; row < counts.length; row++) {
+                    int i = rows.get(row);
+                    // a buyer deleted since the check above; nothing was sold to them
+                    if (counts[row] == 0) {
+                        tickets[i] = null;
+                        missingUser[i] = true;
+                    } else {
+                        sold += tickets[i].getQuantity();
+                        deliveries.add(new Object[]{tickets[i].getId()});
+                    }
+                }
+                if (sold > 0) {
+                    jdbcTemplate.update(decrementSql, sold, eventId);
+                    jdbcTemplate.batchUpdate(TicketDeliveryService.enqueueSql, deliveries);
+                }
+            });
+        } catch (RuntimeException e) {
+            purchases.forEach(purchase -> purchase.result().completeExceptionally(e));
+            return;
+        } finally {
+            record(purchases, start);
+        }
+
+        for (int i = 0; i < purchases.size(); i++) {
+            CompletableFuture<TicketDTO> result = purchases.get(i).result();
+            if (tickets[i] != null) {
+                result.complete(tickets[i]);
+            } else if (missingUser[i]) {
+                result.completeExceptionally(new UserNotFoundException("User not found"));
+            } else {
+                result.completeExceptionally(new SoldOutException("Not enough tickets left for event with id: " + eventId));
+            }
+        }
+    }
+
+    private void record(List<PendingPurchase> purchases, long start) {
+        long end = System.nanoTime();
+        batchCount.increment();
+        batchedPurchases.add(purchases.size());
+        maxBatch.accumulate(purchases.size());
+        totalCommitNanos.add(end - start);
+        maxCommitNanos.accumulate(end - start);
+        purchases.forEach(purchase -> totalWaitNanos.add(end - purchase.submittedAt()));
+    }
+
+    // for monitoring
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public double getAverageBatchSize() {
+        long batches = batchCount.sum();
+        return batches == 0 ? 0 : (double) batchedPurchases.sum() / batches;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatch.get();
+    }
+
+    public long getAverageCommitMicros() {
+        long batches = batchCount.sum();
+        return batches == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalCommitNanos.sum() / batches);
+    }
+
+    public long getMaxCommitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxCommitNanos.get());
+    }
+
+    public long getAveragePurchaseLatencyMicros() {
+        long purchases = batchedPurchases.sum();
+        return purchases == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.sum() / purchases);
+    }
+
+    public long getWithdrawnCount() {
+        return withdrawn.sum();
+    }
+
+    public int getPendingPurchaseCount() {
+        return pendingPurchases.get();
+    }
+
+    private static class EventBatch {
+        private final Integer eventId;
+        private final List<PendingPurchase> pending = new ArrayList<>();
+        private boolean scheduled;
+        private boolean flushing;
+
+        EventBatch(Integer eventId) {
+            this.eventId = eventId;
+        }
+    }
+
+    private record PendingPurchase(UUID userId, EventDTO event, int quantity, long submittedAt,
+                                   CompletableFuture<TicketDTO> result) {
+
+        TicketDTO toTicket(LocalDateTime purchaseDate) {
+            return TicketDTO.builder()
+                    .id(UUID.randomUUID().toString())
+                    .userId(userId)
+                    .eventId(event.getId())
+                    .quantity(quantity)
+                    .pricePerTicket(event.getPrice())
+                    .totalPrice(event.getPrice().multiply(BigDecimal.valueOf(quantity)))
+                    .status(TicketStatus.confirmed)
+                    .purchaseDate(purchaseDate)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.events.service;
+
+import com.example.events.model.TicketStatus;
+import com.example.events.service.TicketReservationService.ReservationHold;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static com.example.events.service.TicketReservationService.inventoryPrefix;
+import static com.example.events.service.TicketReservationService.pendingQuantities;
+import static com.example.events.service.TicketReservationService.releaseScript;
+import static com.example.events.service.TicketReservationService.reservationQueue;
+
+@Service
+public class TicketReconciliationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TicketReconciliationService.class);
+
+    // also taken by TicketReservationService while it seeds a counter
+    static final String lockName = "tickets:reconcile";
+    static final String deadLetterQueue = "reservations:dead";
+    // tickets has no unique key besides its primary key, so a replayed hold is the only conflict; the insert takes no
+    // stock, so a replay that waits on another node's uncommitted insert and then skips cannot sell twice
+    private static final String insertSql = "INSERT INTO tickets (id, user_id, event_id, quantity, price_per_ticket, " +
+            "total_price, status, purchase_date, email_sent) " +
+            "SELECT ?, ?, ?, ?, ?, ?, CAST(? AS ticket_status_type), ?, FALSE " +
+            "WHERE EXISTS (SELECT 1 FROM users WHERE id = ?) AND EXISTS (SELECT 1 FROM events WHERE id = ?) " +
+            "ON CONFLICT DO NOTHING";
+    // only rows this run inserted take stock; the row lock makes the check hold under read committed
+    private static final String claimSql = "UPDATE events SET available_tickets = available_tickets - ? " +
+            "WHERE id = ? AND available_tickets >= ?";
+    private static final String cancelSql = "UPDATE tickets SET status = CAST(? AS ticket_status_type) WHERE id = ?";
+    private static final String existingSql = "SELECT id FROM tickets WHERE id = ANY(?)";
+
+    // drops the applied holds and their pending quantities together so a seed never sees one without the other
+    private static final RedisScript<Long> acknowledgeScript = new DefaultRedisScript<>("""
+            redis.call('LTRIM', KEYS[1], ARGV[1], -1)
+            for i = 2, #ARGV, 2 do
+                if redis.call('HINCRBY', KEYS[2], ARGV[i], -tonumber(ARGV[i + 1])) <= 0 then
+                    redis.call('HDEL', KEYS[2], ARGV[i])
+                end
+            end
+            return 1
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisLock redisLock;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AvailabilityStreamService availabilityStreamService;
+    private final SalesRollupService salesRollupService;
+    private final int batchSize;
+
+    private final LongAdder reconciled = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private volatile long lastReconciledAt = 0;
+
+    public TicketReconciliationService(RedisTemplate<String, String> redisTemplate,
+                                       RedisLock redisLock,
+                                       JdbcTemplate jdbcTemplate,
+                                       TransactionTemplate transactionTemplate,
+                                       AvailabilityStreamService availabilityStreamService,
+                                       SalesRollupService salesRollupService,
+                                       @Value("${tickets.reconcile.batch-size:500}") int batchSize) {
+        this.redisTemplate = redisTemplate;
+        this.redisLock = redisLock;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.availabilityStreamService = availabilityStreamService;
+        this.salesRollupService = salesRollupService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${tickets.reconcile.interval-ms:500}")
+    public void reconcile() {
+        String lease;
+        try {
+            lease = redisLock.tryAcquire(lockName, Duration.ofSeconds(30));
+        } catch (Exception e) {
+            log.warn("Failed to acquire ticket reconciliation lease: {}", e.getMessage());
+            return;
+        }
+        if (lease == null) {
+            return;
+        }
+
+        try {
+            int applied;
+            do {
+                applied = reconcileBatch();
+            } while (applied == batchSize && redisLock.extend(lockName, lease, Duration.ofSeconds(30)));
+        } catch (Exception e) {
+            failedBatches.increment();
+            log.warn("Failed to reconcile ticket reservations: {}", e.getMessage());
+        } finally {
+            redisLock.release(lockName, lease);
+        }
+    }
+
+    private int reconcileBatch() {
+        List<String> entries = redisTemplate.opsForList().range(reservationQueue, 0, batchSize - 1);
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+
+        List<ReservationHold> holds = entries.stream().map(ReservationHold::decode).toList();
+        List<Object[]> args = new ArrayList<>(holds.size());
+        for (ReservationHold hold : holds) {
+            args.add(new Object[]{hold.ticketId(), hold.userId(), hold.eventId(), hold.quantity(), hold.pricePerTicket(),
+                    hold.pricePerTicket().multiply(BigDecimal.valueOf(hold.quantity())),
+                    TicketStatus.confirmed.name(), Timestamp.valueOf(hold.purchaseDate()), hold.userId(),
+                    hold.eventId()});
+        }
+
+        List<ReservationHold> confirmed = new ArrayList<>();
+        List<ReservationHold> cancelled = new ArrayList<>();
+        List<ReservationHold> rejected = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            confirmed.clear();
+            cancelled.clear();
+            rejected.clear();
+            int[] counts = jdbcTemplate.batchUpdate(insertSql, args);
+            List<ReservationHold> inserted = new ArrayList<>();
+            List<Integer> skipped = new ArrayList<>();
+            for (int i = 0; i < holds.size(); i++) {
+                if (counts[i] != 0) {
+                    inserted.add(holds.get(i));
+                } else {
+                    skipped.add(i);
+                }
+            }
+            rejected.addAll(rejectedHolds(skipped, holds));
+            if (inserted.isEmpty()) {
+                return;
+            }
+
+            int[] claims = jdbcTemplate.batchUpdate(claimSql, inserted.stream()
+                    .map(hold -> new Object[]{hold.quantity(), hold.eventId(), hold.quantity()})
+                    .toList());
+            for (int i = 0; i < inserted.size(); i++) {
+                (claims[i] != 0 ? confirmed : cancelled).add(inserted.get(i));
+            }
+            // redis sold these, but postgres has no stock left for them; the buyer sees the ticket as cancelled
+            jdbcTemplate.batchUpdate(cancelSql, cancelled.stream()
+                    .map(hold -> new Object[]{TicketStatus.cancelled.name(), hold.ticketId()})
+                    .toList());
+            jdbcTemplate.batchUpdate(TicketDeliveryService.enqueueSql, confirmed.stream()
+                    .map(hold -> new Object[]{hold.ticketId()})
+                    .toList());
+        });
+
+        // holds whose event or user is gone, or that the database has no stock for, are parked for an operator
+        // instead of being retried forever
+        if (!rejected.isEmpty() || !cancelled.isEmpty()) {
+            List<String> parked = new ArrayList<>();
+            rejected.forEach(hold -> parked.add(hold.encode()));
+            cancelled.forEach(hold -> parked.add(hold.encode()));
+            redisTemplate.opsForList().rightPushAll(deadLetterQueue, parked);
+            deadLettered.add(parked.size());
+            log.warn("Moved {} unreconcilable ticket holds to {}", parked.size(), deadLetterQueue);
+        }
+        confirmed.forEach(hold -> salesRollupService.record(hold.eventId(), TicketStatus.confirmed, hold.quantity(),
+                hold.pricePerTicket().multiply(BigDecimal.valueOf(hold.quantity())), hold.purchaseDate()));
+        // the rebuild replays these rows as cancelled at their updated_at, which is about now
+        LocalDateTime cancelledAt = LocalDateTime.now();
+        cancelled.forEach(hold -> salesRollupService.record(hold.eventId(), TicketStatus.cancelled, hold.quantity(),
+                BigDecimal.ZERO, cancelledAt));
+
+        Map<Integer, Integer> pending = new HashMap<>();
+        holds.forEach(hold -> pending.merge(hold.eventId(), hold.quantity(), Integer::sum));
+        List<String> argv = new ArrayList<>();
+        argv.add(Integer.toString(holds.size()));
+        pending.forEach((eventId, quantity) -> {
+            argv.add(eventId.toString());
+            argv.add(quantity.toString());
+        });
+        redisTemplate.execute(acknowledgeScript, List.of(reservationQueue, pendingQuantities), argv.toArray());
+
+        // postgres never took stock for a rejected hold, so redis gives it back; a cancelled one means the counter
+        // ran ahead of postgres, so it is dropped and the next purchase reseeds it
+        rejected.forEach(hold -> redisTemplate.execute(releaseScript, List.of(inventoryPrefix + hold.eventId()),
+                Integer.toString(hold.quantity())));
+        cancelled.stream().map(ReservationHold::eventId).distinct()
+                .forEach(eventId -> redisTemplate.delete(inventoryPrefix + eventId));
+        // either way the count subscribers were last sent is now wrong
+        Stream.concat(rejected.stream(), cancelled.stream()).map(ReservationHold::eventId).distinct()
+                .forEach(availabilityStreamService::changed);
+
+        reconciled.add(holds.size());
+        lastReconciledAt = System.currentTimeMillis();
+        return holds.size();
+    }
+
+    // a skipped hold is either a replay of one already inserted or one whose event or user is gone
+    private List<ReservationHold> rejectedHolds(List<Integer> skipped, List<ReservationHold> holds) {
+        if (skipped.isEmpty()) {
+            return List.of();
+        }
+        Set<String> existing = new HashSet<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(existingSql);
+            statement.setArray(1, connection.createArrayOf("varchar",
+                    skipped.stream().map(i -> holds.get(i).ticketId()).toArray()));
+            return statement;
+        }, (RowCallbackHandler) rs -> existing.add(rs.getString("id")));
+
+        return skipped.stream()
+                .map(holds::get)
+                .filter(hold -> !existing.contains(hold.ticketId()))
+                .toList();
+    }
+
+    // for monitoring
+    public long getBacklog() {
+        Long size = redisTemplate.opsForList().size(reservationQueue);
+        return size != null ? size : 0;
+    }
+
+    public long getReconciledCount() {
+        return reconciled.sum();
+    }
+
+    public long getDeadLetteredCount() {
+        return deadLettered.sum();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    public long getMillisSinceLastReconcile() {
+        return lastReconciledAt == 0 ? -1 : System.currentTimeMillis() - lastReconciledAt;
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.PurchaseRequest;
+import com.example.events.DTO.TicketDTO;
+import com.example.events.exception.EventNotFoundException;
+import com.example.events.exception.InvalidPurchaseException;
+import com.example.events.exception.ServiceBusyException;
+import com.example.events.exception.SoldOutException;
+import com.example.events.exception.UnauthorizedException;
+import com.example.events.model.TicketStatus;
+import com.example.events.repository.EventRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class TicketReservationService {
+
+    static final String inventoryPrefix = "inventory:event:";
+    static final String reservationQueue = "reservations:pending";
+    static final String pendingQuantities = "reservations:pending:quantity";
+
+    private static final long notInitialised = -1;
+    private static final long insufficient = -2;
+    private static final Duration seedLease = Duration.ofSeconds(5);
+    private static final long seedWaitMillis = 2_000;
+
+    // check, decrement and record the hold for the reconciler in one step
+    private static final RedisScript<Long> reserveScript = new DefaultRedisScript<>("""
+            local available = redis.call('GET', KEYS[1])
+            if not available then
+                return -1
+            end
+            local quantity = tonumber(ARGV[1])
+            available = tonumber(available)
+            if available < quantity then
+                return -2
+            end
+            redis.call('DECRBY', KEYS[1], quantity)
+            redis.call('RPUSH', KEYS[2], ARGV[2])
+            redis.call('HINCRBY', KEYS[3], ARGV[3], quantity)
+            return available - quantity
+            """, Long.class);
+
+    // for checkout holds, which write their own pending row to postgres instead of queueing
+    private static final RedisScript<Long> acquireScript = new DefaultRedisScript<>("""
+            local available = redis.call('GET', KEYS[1])
+            if not available then
+                return -1
+            end
+            local quantity = tonumber(ARGV[1])
+            available = tonumber(available)
+            if available < quantity then
+                return -2
+            end
+            return redis.call('DECRBY', KEYS[1], quantity)
+            """, Long.class);
+
+    // a missing counter is left alone: the next seed reads the released tickets from postgres
+    static final RedisScript<Long> releaseScript = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return -1
+            end
+            return redis.call('INCRBY', KEYS[1], ARGV[1])
+            """, Long.class);
+
+    // holds that are queued but not yet written to postgres are subtracted from the database count
+    private static final RedisScript<Long> seedScript = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                return 0
+            end
+            local pending = tonumber(redis.call('HGET', KEYS[2], ARGV[2]) or '0')
+            redis.call('SET', KEYS[1], math.max(tonumber(ARGV[1]) - pending, 0))
+            return 1
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisLock redisLock;
+    private final EventCatalogueService eventCatalogueService;
+    private final EventRepository eventRepository;
+    private final TicketPurchaseBatcher ticketPurchaseBatcher;
+    private final WaitingRoomService waitingRoomService;
+    private final AvailabilityStreamService availabilityStreamService;
+    private final SalesRollupService salesRollupService;
+    private final int maxPerPurchase;
+    private final boolean redisInventory;
+
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder soldOut = new LongAdder();
+
+    public TicketReservationService(RedisTemplate<String, String> redisTemplate,
+                                    RedisLock redisLock,
+                                    EventCatalogueService eventCatalogueService,
+                                    EventRepository eventRepository,
+                                    TicketPurchaseBatcher ticketPurchaseBatcher,
+                                    WaitingRoomService waitingRoomService,
+                                    AvailabilityStreamService availabilityStreamService,
+                                    SalesRollupService salesRollupService,
+                                    @Value("${tickets.max-per-purchase:10}") int maxPerPurchase,
+                                    @Value("${tickets.purchase.mode:redis}") String purchaseMode) {
+        this.redisTemplate = redisTemplate;
+        this.redisLock = redisLock;
+        this.eventCatalogueService = eventCatalogueService;
+        this.eventRepository = eventRepository;
+        this.ticketPurchaseBatcher = ticketPurchaseBatcher;
+        this.waitingRoomService = waitingRoomService;
+        this.availabilityStreamService = availabilityStreamService;
+        this.salesRollupService = salesRollupService;
+        this.maxPerPurchase = maxPerPurchase;
+        this.redisInventory = !"database".equalsIgnoreCase(purchaseMode);
+    }
+
+    public TicketDTO purchase(PurchaseRequest request, HttpServletRequest httpRequest) {
+        UUID userId = getAuthenticatedUserId(httpRequest);
+        waitingRoomService.checkAdmitted(request.getEventId(), userId, httpRequest.getHeader(WaitingRoomService.admissionHeader));
+        return reserve(userId, request.getEventId(), request.getQuantity());
+    }
+
+    public TicketDTO reserve(UUID userId, Integer eventId, int quantity) {
+        EventDTO event = checkPurchasable(eventId, quantity);
+        if (!redisInventory) {
+            TicketDTO ticket = ticketPurchaseBatcher.purchase(userId, event, quantity);
+            availabilityStreamService.changed(eventId);
+            salesRollupService.record(eventId, TicketStatus.confirmed, quantity, ticket.getTotalPrice(),
+                    ticket.getPurchaseDate());
+            return ticket;
+        }
+
+        String ticketId = UUID.randomUUID().toString();
+        LocalDateTime purchaseDate = LocalDateTime.now();
+        BigDecimal total = event.getPrice().multiply(BigDecimal.valueOf(quantity));
+        String hold = ReservationHold.encode(ticketId, eventId, userId, quantity, event.getPrice(), purchaseDate);
+
+        long remaining = execute(eventId, quantity, hold);
+        if (remaining == notInitialised) {
+            seedInventory(eventId);
+            remaining = execute(eventId, quantity, hold);
+        }
+        if (remaining < 0) {
+            soldOut.increment();
+            throw new SoldOutException("Not enough tickets left for event with id: " + eventId);
+        }
+        reserved.add(quantity);
+        availabilityStreamService.changed(eventId);
+
+        // pending until the reconciler has written it to postgres; it then shows up in the buyer's history as
+        // confirmed, or as cancelled if postgres had no stock left for it
+        return TicketDTO.builder()
+                .id(ticketId)
+                .userId(userId)
+                .eventId(eventId)
+                .quantity(quantity)
+                .pricePerTicket(event.getPrice())
+                .totalPrice(total)
+                .status(TicketStatus.pending)
+                .purchaseDate(purchaseDate)
+                .build();
+    }
+
+    EventDTO checkPurchasable(Integer eventId, int quantity) {
+        if (eventId == null) {
+            throw new InvalidPurchaseException("Event id is required");
+        }
+        if (quantity < 1 || quantity > maxPerPurchase) {
+            throw new InvalidPurchaseException("Quantity must be between 1 and " + maxPerPurchase);
+        }
+
+        EventDTO event = eventCatalogueService.getEvent(eventId);
+        if (event.isFinished()) {
+            throw new InvalidPurchaseException("Event has already finished");
+        }
+        return event;
+    }
+
+    // in database mode postgres alone guards the count, so there is nothing to take here
+    boolean acquire(Integer eventId, int quantity) {
+        if (!redisInventory) {
+            return true;
+        }
+        List<String> keys = List.of(inventoryPrefix + eventId);
+        Long remaining = redisTemplate.execute(acquireScript, keys, Integer.toString(quantity));
+        if (remaining != null && remaining == notInitialised) {
+            seedInventory(eventId);
+            remaining = redisTemplate.execute(acquireScript, keys, Integer.toString(quantity));
+        }
+        if (remaining == null || remaining < 0) {
+            soldOut.increment();
+            return false;
+        }
+        reserved.add(quantity);
+        return true;
+    }
+
+    void release(Integer eventId, int quantity) {
+        if (redisInventory) {
+            redisTemplate.execute(releaseScript, List.of(inventoryPrefix + eventId), Integer.toString(quantity));
+        }
+    }
+
+    public long getAvailableTickets(Integer eventId) {
+        if (!redisInventory) {
+            return eventRepository.findAvailableTicketsById(eventId)
+                    .orElseThrow(() -> new EventNotFoundException("Event not found with id: " + eventId));
+        }
+        String value = redisTemplate.opsForValue().get(inventoryPrefix + eventId);
+        if (value == null) {
+            seedInventory(eventId);
+            value = redisTemplate.opsForValue().get(inventoryPrefix + eventId);
+        }
+        return value != null ? Long.parseLong(value) : 0;
+    }
+
+    private long execute(Integer eventId, int quantity, String hold) {
+        Long result = redisTemplate.execute(reserveScript,
+                List.of(inventoryPrefix + eventId, reservationQueue, pendingQuantities),
+                Integer.toString(quantity), hold, eventId.toString());
+        return result != null ? result : insufficient;
+    }
+
+    // the reconciler commits holds to postgres before it drops them from the pending hash, so a seed that read the
+    // count between the two would subtract them twice; holding its lease keeps the two reads consistent
+    private void seedInventory(Integer eventId) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(seedWaitMillis);
+        while (!Boolean.TRUE.equals(redisTemplate.hasKey(inventoryPrefix + eventId))) {
+            String lease = redisLock.tryAcquire(TicketReconciliationService.lockName, seedLease);
+            if (lease != null) {
+                try {
+                    Integer available = eventRepository.findAvailableTicketsById(eventId)
+                            .orElseThrow(() -> new EventNotFoundException("Event not found with id: " + eventId));
+                    redisTemplate.execute(seedScript, List.of(inventoryPrefix + eventId, pendingQuantities),
+                            available.toString(), eventId.toString());
+                } finally {
+                    redisLock.release(TicketReconciliationService.lockName, lease);
+                }
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new ServiceBusyException("Ticket inventory is being reconciled, please retry", 1);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceBusyException("Interrupted while waiting for ticket inventory", 1);
+            }
+        }
+    }
+
+    private UUID getAuthenticatedUserId(HttpServletRequest request) {
+        String userId = (String) request.getAttribute("userId");
+
+        if (userId == null) {
+            throw new UnauthorizedException("User not authenticated");
+        }
+
+        return UUID.fromString(userId);
+    }
+
+    // for monitoring
+    public long getReservedCount() {
+        return reserved.sum();
+    }
+
+    public long getSoldOutCount() {
+        return soldOut.sum();
+    }
+
+    record ReservationHold(String ticketId, int eventId, UUID userId, int quantity,
+                           BigDecimal pricePerTicket, LocalDateTime purchaseDate) {
+
+        String encode() {
+            return encode(ticketId, eventId, userId, quantity, pricePerTicket, purchaseDate);
+        }
+
+        static String encode(String ticketId, int eventId, UUID userId, int quantity,
+                             BigDecimal pricePerTicket, LocalDateTime purchaseDate) {
+            return ticketId + "|" + eventId + "|" + userId + "|" + quantity + "|" + pricePerTicket.toPlainString()
+                    + "|" + purchaseDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        static ReservationHold decode(String value) {
+            String[] parts = value.split("\\|");
+            return new ReservationHold(parts[0], Integer.parseInt(parts[1]), UUID.fromString(parts[2]),
+                    Integer.parseInt(parts[3]), new BigDecimal(parts[4]),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(parts[5])),
+                            ZoneId.systemDefault()));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.events.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// hierarchical timing wheel: four levels of 64 slots, so scheduling, cancelling and expiring a key are O(1)
+// and a tick only touches the slot it lands on plus an occasional cascade of one higher-level slot
+final class TimerWheel {
+
+    private static final int slotBits = 6;
+    private static final int slots = 1 << slotBits;
+    private static final int mask = slots - 1;
+    private static final int levels = 4;
+    private static final long span = 1L << (slotBits * levels);
+
+    private final long tickMillis;
+    private final Node[][] wheel = new Node[levels][slots];
+    private final Map<String, Node> nodes = new HashMap<>();
+    // next tick to be processed
+    private long currentTick;
+
+    TimerWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        for (Node[] level : wheel) {
+            for (int i = 0; i < slots; i++) {
+                level[i] = Node.sentinel();
+            }
+        }
+    }
+
+    synchronized void schedule(String key, long deadlineMillis) {
+        cancel(key);
+        Node node = new Node(key, Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis));
+        nodes.put(key, node);
+        place(node);
+    }
+
+    synchronized boolean cancel(String key) {
+        Node node = nodes.remove(key);
+        if (node == null) {
+            return false;
+        }
+        node.unlink();
+        return true;
+    }
+
+    synchronized List<String> advance(long nowMillis) {
+        List<String> expired = new ArrayList<>();
+        long target = nowMillis / tickMillis;
+        while (currentTick <= target) {
+            cascade(1);
+            Node head = wheel[0][(int) (currentTick & mask)];
+            while (head.next != head) {
+                Node node = head.next;
+                node.unlink();
+                if (node.deadlineTick <= currentTick) {
+                    nodes.remove(node.key);
+                    expired.add(node.key);
+                } else {
+                    place(node);
+                }
+            }
+            currentTick++;
+        }
+        return expired;
+    }
+
+    synchronized int size() {
+        return nodes.size();
+    }
+
+    // at the start of each block of a level, its slot for that block is redistributed into the levels below
+    private void cascade(int level) {
+        if (level >= levels || (currentTick & ((1L << (slotBits * level)) - 1)) != 0) {
+            return;
+        }
+        cascade(level + 1);
+        Node head = wheel[level][(int) ((currentTick >>> (slotBits * level)) & mask)];
+        while (head.next != head) {
+            Node node = head.next;
+            node.unlink();
+            place(node);
+        }
+    }
+
+    private void place(Node node) {
+        long due = Math.max(node.deadlineTick, currentTick);
+        long delta = Math.min(due - currentTick, span - 1);
+        for (int level = 0; level < levels; level++) {
+            if (delta < 1L << (slotBits * (level + 1))) {
+                long tick = currentTick + delta;
+                wheel[level][(int) ((tick >>> (slotBits * level)) & mask)].append(node);
+                return;
+            }
+        }
+    }
+
+    private static final class Node {
+        private final String key;
+        private final long deadlineTick;
+        private Node prev = this;
+        private Node next = this;
+
+        private Node(String key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+
+        static Node sentinel() {
+            return new Node(null, 0);
+        }
+
+        void append(Node node) {
+            node.prev = prev;
+            node.next = this;
+            prev.next = node;
+            prev = node;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.events.service;
+
+import com.example.events.DTO.UserDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Component
+public class UserCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserCache.class);
+
+    private static final String channel = "cache:user:invalidate";
+    private static final String idPrefix = "id:";
+    private static final String namePrefix = "name:";
+    private static final String allNames = "names:*";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Cache<UUID, Optional<UserDTO>> byId;
+    private final Cache<String, Optional<UserDTO>> byName;
+
+    public UserCache(RedisTemplate<String, String> redisTemplate,
+                     RedisMessageListenerContainer listenerContainer,
+                     @Value("${user.cache.max-size:50000}") long maxSize,
+                     @Value("${user.cache.ttl-seconds:300}") long ttlSeconds,
+                     @Value("${user.cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new PresenceExpiry<UUID>(ttlSeconds, negativeTtlSeconds))
+                .recordStats()
+                .build();
+        this.byName = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new PresenceExpiry<String>(ttlSeconds, negativeTtlSeconds))
+                .recordStats()
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    public Optional<UserDTO> getById(UUID id, Function<UUID, Optional<UserDTO>> loader) {
+        return byId.get(id, loader);
+    }
+
+    public Optional<UserDTO> getByName(String name, Function<String, Optional<UserDTO>> loader) {
+        return byName.get(name, loader);
+    }
+
+    // evicts now and again once the surrounding transaction commits, then tells the other nodes
+    public void evict(UUID id, String... names) {
+        evictLocal(id, names);
+
+        List<String> keys = new ArrayList<>();
+        if (id != null) {
+            keys.add(idPrefix + id);
+        }
+        for (String name : names) {
+            if (name != null) {
+                keys.add(namePrefix + name);
+            }
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictLocal(id, names);
+                    publish(keys);
+                }
+            });
+        } else {
+            publish(keys);
+        }
+    }
+
+    // used after bulk writes, where evicting names one by one would flood the channel
+    public void evictAllNames() {
+        byName.invalidateAll();
+        publish(List.of(allNames));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (allNames.equals(key)) {
+            byName.invalidateAll();
+        } else if (key.startsWith(idPrefix)) {
+            byId.invalidate(UUID.fromString(key.substring(idPrefix.length())));
+        } else if (key.startsWith(namePrefix)) {
+            byName.invalidate(key.substring(namePrefix.length()));
+        }
+    }
+
+    private void evictLocal(UUID id, String... names) {
+        if (id != null) {
+            byId.invalidate(id);
+        }
+        for (String name : names) {
+            if (name != null) {
+                byName.invalidate(name);
+            }
+        }
+    }
+
+    private void publish(List<String> keys) {
+        try {
+            keys.forEach(key -> redisTemplate.convertAndSend(channel, key));
+        } catch (Exception e) {
+            log.warn("Failed to broadcast user cache invalidation: {}", e.getMessage());
+        }
+    }
+
+    // for monitoring
+    public double getIdHitRate() {
+        return byId.stats().hitRate();
+    }
+
+    public double getNameHitRate() {
+        return byName.stats().hitRate();
+    }
+
+    public long getSize() {
+        return byId.estimatedSize() + byName.estimatedSize();
+    }
+
+    private static class PresenceExpiry<K> implements Expiry<K, Optional<UserDTO>> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        PresenceExpiry(long ttlSeconds, long negativeTtlSeconds) {
+            this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+            this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        }
+
+        @Override
+        public long expireAfterCreate(K key, Optional<UserDTO> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(K key, Optional<UserDTO> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(K key, Optional<UserDTO> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.events.service;
+
+import com.example.events.DTO.BulkImportError;
+import com.example.events.DTO.BulkImportResponse;
+import com.example.events.DTO.SignupRequest;
+import com.example.events.model.UserRole;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+@Service
+public class UserImportService {
+
+    private static final String insertSql = "INSERT INTO users (id, email, password, name, role, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, CAST(? AS user_role_type), ?, ?) ON CONFLICT DO NOTHING";
+    private static final String existingSql = "SELECT id FROM users WHERE id = ANY(?)";
+    private static final int maxReportedErrors = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordHashingService passwordHashingService;
+    private final UserCache userCache;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public UserImportService(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             PasswordHashingService passwordHashingService,
+                             UserCache userCache,
+                             ObjectMapper objectMapper,
+                             @Value("${user.import.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.passwordHashingService = passwordHashingService;
+        this.userCache = userCache;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    public BulkImportResponse importUsers(InputStream in, boolean ndjson) throws IOException {
+        long start = System.nanoTime();
+        ImportState state = new ImportState();
+        List<PendingRow> pending = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            Map<String, Integer> columns = null;
+            long row = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (!ndjson && columns == null) {
+                    columns = parseHeader(line);
+                    continue;
+                }
+
+                row++;
+                SignupRequest request;
+                try {
+                    request = ndjson
+                            ? objectMapper.readValue(line, SignupRequest.class)
+                            : parseCsvRow(line, columns);
+                } catch (Exception e) {
+                    state.reject(row, null, "Malformed row");
+                    continue;
+                }
+
+                String problem = validate(request, state);
+                if (problem != null) {
+                    state.reject(row, request.getName(), problem);
+                    continue;
+                }
+
+                pending.add(new PendingRow(row, request));
+                if (pending.size() == batchSize) {
+                    flush(pending, state);
+                    pending.clear();
+                }
+            }
+        }
+        flush(pending, state);
+
+        if (state.imported > 0) {
+            userCache.evictAllNames();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        long processed = state.imported + state.rejected;
+        return BulkImportResponse.builder()
+                .imported(state.imported)
+                .rejected(state.rejected)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(elapsedNanos == 0 ? 0 : processed * 1_000_000_000d / elapsedNanos)
+                .errors(state.errors)
+                .build();
+    }
+
+    private void flush(List<PendingRow> rows, ImportState state) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<String> hashes = passwordHashingService.encodeAll(
+                rows.stream().map(row -> row.request().getPassword()).toList());
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            SignupRequest request = rows.get(i).request();
+            UserRole role = request.getRole() != null ? request.getRole() : UserRole.user;
+            args.add(new Object[]{UUID.randomUUID(), request.getEmail(), hashes.get(i), request.getName(),
+                    role.name(), now, now});
+        }
+
+        Set<UUID> inserted = transactionTemplate.execute(status -> {
+            int[] counts = jdbcTemplate.batchUpdate(insertSql, args);
+            Set<UUID> ids = new HashSet<>();
+            List<UUID> unknown = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                UUID id = (UUID) args.get(i)[0];
+                if (counts[i] > 0) {
+                    ids.add(id);
+                } else if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                    unknown.add(id);
+                }
+            }
+            // a driver that rewrites the batch into one statement cannot say which rows conflicted, so the ids
+            // it took are read back inside the same transaction
+            ids.addAll(existing(unknown));
+            return ids;
+        });
+        for (int i = 0; i < rows.size(); i++) {
+            if (inserted.contains((UUID) args.get(i)[0])) {
+                state.imported++;
+            } else {
+                state.reject(rows.get(i).row(), rows.get(i).request().getName(), "Name or email already exists");
+            }
+        }
+    }
+
+    private List<UUID> existing(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(existingSql);
+            statement.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+            return statement;
+        }, (rs, rowNum) -> rs.getObject("id", UUID.class));
+    }
+
+    private String validate(SignupRequest request, ImportState state) {
+        if (isBlank(request.getName()) || isBlank(request.getEmail()) || isBlank(request.getPassword())) {
+            return "Name, email and password are required";
+        }
+        if (!state.names.add(request.getName())) {
+            return "Duplicate name in import";
+        }
+        if (!state.emails.add(request.getEmail())) {
+            return "Duplicate email in import";
+        }
+        return null;
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        List<String> names = splitCsvLine(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(), i);
+        }
+        return columns;
+    }
+
+    private SignupRequest parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsvLine(line);
+        String role = column(values, columns, "role");
+        return new SignupRequest(
+                column(values, columns, "email"),
+                column(values, columns, "name"),
+                column(values, columns, "password"),
+                isBlank(role) ? null : UserRole.valueOf(role.trim()));
+    }
+
+    private String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index != null && index < values.size() ? values.get(index) : null;
+    }
+
+    private List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private record PendingRow(long row, SignupRequest request) {
+    }
+
+    private static class ImportState {
+        private final Set<String> names = new HashSet<>();
+        private final Set<String> emails = new HashSet<>();
+        private final List<BulkImportError> errors = new ArrayList<>();
+        private long imported;
+        private long rejected;
+
+        void reject(long row, String name, String reason) {
+            rejected++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new BulkImportError(row, name, reason));
+            }
+        }
+    }
+}
@@ -4,56 +4,85 @@ import com.example.events.DTO.AuthResponse;
 import com.example.events.DTO.LoginRequest;
 import com.example.events.DTO.SignupRequest;
 import com.example.events.DTO.UserDTO;
+import com.example.events.DTO.UserPageResponse;
 import com.example.events.exception.*;
 import com.example.events.model.User;
 import com.example.events.model.UserRole;
 import com.example.events.repository.UserRepository;
 import com.example.events.security.JwtUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.context.annotation.Bean;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class UserService {
 
+    private static final int maxPageSize = 1000;
+    private static final int exportFlushInterval = 500;
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtUtil jwtUtil;
-
-    public UserService(UserRepository userRepository, JwtUtil jwtUtil) {
+    private final UserTokenRevocationService userTokenRevocationService;
+    private final LoginThrottleService loginThrottleService;
+    private final UserCache userCache;
+    private final ObjectMapper objectMapper;
+
+    public UserService(UserRepository userRepository, JwtUtil jwtUtil,
+                       UserTokenRevocationService userTokenRevocationService,
+                       PasswordHashingService passwordHashingService,
+                       LoginThrottleService loginThrottleService,
+                       UserCache userCache,
+                       ObjectMapper objectMapper) {
         this.userRepository = userRepository;
         this.jwtUtil = jwtUtil;
-        this.passwordEncoder = passwordEncoder();
-    }
-
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        this.userTokenRevocationService = userTokenRevocationService;
+        this.passwordHashingService = passwordHashingService;
+        this.loginThrottleService = loginThrottleService;
+        this.userCache = userCache;
+        this.objectMapper = objectMapper;
     }
 
+    // bcrypt runs before any connection is taken; saveAndFlush brings its own transaction
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AuthResponse signUp(SignupRequest request) {
-        if (userRepository.existsByName(request.getName())) {
-            throw new UserExistsException("User with name '" + request.getName() + "' already exists");
-        }
-
         UserRole role = request.getRole() != null ? request.getRole() : UserRole.user;
 
         User user = User.builder()
                 .email(request.getEmail())
                 .name(request.getName())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordHashingService.encode(request.getPassword()))
                 .role(role)
                 .build();
 
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateUser(e, request.getName(), request.getEmail());
+        }
+        userCache.evict(savedUser.getId(), savedUser.getName());
 
         String token = jwtUtil.generateToken(
                 savedUser.getId(),
@@ -72,13 +101,29 @@ public class UserService {
                 .build();
     }
 
-    public AuthResponse login(LoginRequest request) {
-        User user = userRepository.findByName(request.getName())
-                .orElseThrow(() -> new UserNotFoundException("User not found with name: " + request.getName()));
+    // no transaction, so throttled attempts and the password check do not hold a database connection;
+    // the client address is the proxy-resolved one (server.forward-headers-strategy)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public AuthResponse login(LoginRequest request, HttpServletRequest httpRequest) {
+        String clientIp = httpRequest.getRemoteAddr();
+        loginThrottleService.checkAllowed(request.getName(), clientIp);
+
+        User user = userRepository.findByName(request.getName()).orElse(null);
+        if (user == null) {
+            loginThrottleService.recordFailure(request.getName(), clientIp);
+            throw new UserNotFoundException("User not found with name: " + request.getName());
+        }
 
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (!passwordHashingService.matches(request.getPassword(), user.getPassword())) {
+            loginThrottleService.recordFailure(request.getName(), clientIp);
             throw new InvalidCredentialsException("Invalid username or password");
         }
+        loginThrottleService.recordSuccess(request.getName(), clientIp);
+
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            user.setPassword(passwordHashingService.encode(request.getPassword()));
+            userRepository.save(user);
+        }
 
         String token = jwtUtil.generateToken(
                 user.getId(),
@@ -98,93 +143,194 @@ public class UserService {
     }
 
     public String deleteUser(HttpServletRequest request) {
-        String userName = (String) request.getAttribute("userName");
+        UUID userId = getAuthenticatedUserId(request);
+        // the token's name is stale once the user has renamed themselves, so eviction goes by the cached one
+        String name = findUserDto(userId).getName();
 
-        if (userName == null) {
-            throw new UnauthorizedException("User not authenticated");
+        if (userRepository.deleteUserById(userId) == 0) {
+            throw new UserNotFoundException("User not found");
         }
 
-        User user = userRepository.findByName(userName)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
-
-        userRepository.delete(user);
+        userCache.evict(userId, name);
+        userTokenRevocationService.revokeAllTokens(userId);
         return "User deleted successfully";
     }
 
+    // like signUp, hashes outside a transaction; updatePassword commits on its own
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public String changePassword(String newPassword, HttpServletRequest request) {
-        User user = getAuthenticatedUser(request);
-        user.setPassword(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
+        UUID userId = getAuthenticatedUserId(request);
+        String name = findUserDto(userId).getName();
+
+        String encoded = passwordHashingService.encode(newPassword);
+        if (userRepository.updatePassword(userId, encoded, LocalDateTime.now()) == 0) {
+            throw new UserNotFoundException("User not found");
+        }
+
+        userCache.evict(userId, name);
+        userTokenRevocationService.revokeAllTokens(userId);
 
         return "Password changed successfully";
     }
 
-    public AuthResponse changeName(String newName, HttpServletRequest request) {
-        User user = getAuthenticatedUser(request);
+    public String logoutEverywhere(HttpServletRequest request) {
+        String userIdStr = (String) request.getAttribute("userId");
 
-        if (userRepository.existsByName(newName) && !user.getName().equals(newName)) {
-            throw new UserExistsException("Name '" + newName + "' is already taken");
+        if (userIdStr == null) {
+            throw new UnauthorizedException("User not authenticated");
         }
 
-        user.setName(newName);
-        userRepository.save(user);
+        userTokenRevocationService.revokeAllTokens(UUID.fromString(userIdStr));
+        return "Logged out from all sessions";
+    }
+
+    public AuthResponse changeName(String newName, HttpServletRequest request) {
+        UUID userId = getAuthenticatedUserId(request);
+        UserDTO user = findUserDto(userId);
+        String oldName = user.getName();
+
+        try {
+            if (userRepository.updateName(userId, newName, LocalDateTime.now()) == 0) {
+                throw new UserNotFoundException("User not found");
+            }
+        } catch (DataIntegrityViolationException e) {
+            throw new UserExistsException("Name '" + newName + "' is already taken");
+        }
+        userCache.evict(userId, oldName, newName);
 
         String token = jwtUtil.generateToken(
-                user.getId(),
-                user.getName(),
+                userId,
+                newName,
                 user.getRole().name()
         );
 
         return AuthResponse.builder()
                 .token(token)
                 .type("Bearer")
-                .userId(user.getId())
-                .name(user.getName())
+                .userId(userId)
+                .name(newName)
                 .email(user.getEmail())
                 .role(user.getRole())
                 .message("Name changed successfully to: " + newName)
                 .build();
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public String getUserRole(String name) {
-        User user = userRepository.findByName(name.trim())
+        UserDTO user = userCache.getByName(name.trim(), userRepository::findUserDtoByName)
                 .orElseThrow(() -> new UserNotFoundException("User not found with name: " + name));
 
         return user.getRole().toString();
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public UserDTO getUserById(UUID id) {
-        User user = userRepository.findById(id)
+        return userCache.getById(id, userRepository::findUserDtoById)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+    }
+
+    @Transactional(readOnly = true)
+    public UserPageResponse getUsersPage(UserRole role, String cursor, int limit) {
+        Pageable page = PageRequest.of(0, Math.max(1, Math.min(limit, maxPageSize)));
+
+        List<UserDTO> users;
+        if (cursor == null || cursor.isBlank()) {
+            users = role == null
+                    ? userRepository.findUserPage(page)
+                    : userRepository.findUserPageByRole(role, page);
+        } else {
+            UserCursor after = UserCursor.decode(cursor);
+            users = role == null
+                    ? userRepository.findUserPageAfter(after.createdAt(), after.id(), page)
+                    : userRepository.findUserPageByRoleAfter(role, after.createdAt(), after.id(), page);
+        }
+
+        String nextCursor = null;
+        if (users.size() == page.getPageSize()) {
+            UserDTO last = users.get(users.size() - 1);
+            nextCursor = new UserCursor(last.getCreatedAt(), last.getId()).encode();
+        }
 
-        return convertToDTO(user);
+        return UserPageResponse.builder()
+                .users(users)
+                .nextCursor(nextCursor)
+                .build();
     }
 
-    public List<UserDTO> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    // writes one user per line (ndjson) or a single json array without holding the table in memory
+    @Transactional(readOnly = true)
+    public void exportUsers(UserRole role, boolean ndjson, OutputStream out) throws IOException {
+        try (Stream<UserDTO> users = role == null
+                ? userRepository.streamAllUsers()
+                : userRepository.streamAllUsersByRole(role);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(ndjson ? new SerializedString("\n") : null);
+            ObjectWriter writer = objectMapper.writerFor(UserDTO.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            if (!ndjson) {
+                generator.writeStartArray();
+            }
+
+            Iterator<UserDTO> iterator = users.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                if (++written % exportFlushInterval == 0) {
+                    generator.flush();
+                }
+            }
+
+            if (!ndjson) {
+                generator.writeEndArray();
+            } else if (written > 0) {
+                generator.writeRaw('\n');
+            }
+        }
     }
 
-    private User getAuthenticatedUser(HttpServletRequest request) {
-        String userName = (String) request.getAttribute("userName");
+    private UUID getAuthenticatedUserId(HttpServletRequest request) {
+        String userId = (String) request.getAttribute("userId");
 
-        if (userName == null) {
+        if (userId == null) {
             throw new UnauthorizedException("User not authenticated");
         }
 
-        return userRepository.findByName(userName)
+        return UUID.fromString(userId);
+    }
+
+    private UserDTO findUserDto(UUID userId) {
+        return userCache.getById(userId, userRepository::findUserDtoById)
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
     }
 
-    private UserDTO convertToDTO(User user) {
-        return UserDTO.builder()
-                .id(user.getId())
-                .email(user.getEmail())
-                .name(user.getName())
-                .role(user.getRole())
-                .createdAt(user.getCreatedAt())
-                .updatedAt(user.getUpdatedAt())
-                .build();
+    private UserExistsException duplicateUser(DataIntegrityViolationException e, String name, String email) {
+        String constraint = e.getCause() instanceof ConstraintViolationException violation
+                ? violation.getConstraintName()
+                : null;
+        if (constraint != null && constraint.toLowerCase().contains("email")) {
+            return new UserExistsException("User with email '" + email + "' already exists");
+        }
+        return new UserExistsException("User with name '" + name + "' already exists");
+    }
+
+    private record UserCursor(LocalDateTime createdAt, UUID id) {
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static UserCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new UserCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        UUID.fromString(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new InvalidCursorException("Invalid page cursor");
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.example.events.service;
+
+import com.example.events.security.JwtPrincipal;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class UserTokenRevocationService implements MessageListener {
+
+    private static final String prefix = "revocation:user:";
+    private static final String channel = "revocation:user";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final long jwtExpirationMillis;
+    private final LoadingCache<String, Long> notBeforeCache;
+
+    public UserTokenRevocationService(RedisTemplate<String, String> redisTemplate,
+                                      RedisMessageListenerContainer listenerContainer,
+                                      @Value("${jwt.expiration}") long jwtExpirationMillis,
+                                      @Value("${revocation.cache.max-size:100000}") long cacheMaxSize,
+                                      @Value("${revocation.cache.ttl-seconds:300}") long cacheTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.jwtExpirationMillis = jwtExpirationMillis;
+        this.notBeforeCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build(this::loadNotBefore);
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    // tokens carry their issue time to the millisecond, so a login right after the revocation is not caught by it
+    public void revokeAllTokens(UUID userId) {
+        String id = userId.toString();
+        long notBefore = System.currentTimeMillis();
+
+        redisTemplate.opsForValue().set(prefix + id, Long.toString(notBefore),
+                jwtExpirationMillis, TimeUnit.MILLISECONDS);
+        notBeforeCache.put(id, notBefore);
+        redisTemplate.convertAndSend(channel, id + ":" + notBefore);
+    }
+
+    public boolean isRevoked(JwtPrincipal principal) {
+        if (principal.userId() == null || principal.issuedAt() == null) {
+            return false;
+        }
+        long notBefore = notBeforeCache.get(principal.userId());
+        return notBefore > 0 && principal.issuedAt().getTime() <= notBefore;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(':');
+        if (separator > 0) {
+            String userId = body.substring(0, separator);
+            long notBefore = Long.parseLong(body.substring(separator + 1));
+            notBeforeCache.asMap().merge(userId, notBefore, Math::max);
+        }
+    }
+
+    private Long loadNotBefore(String userId) {
+        String value = redisTemplate.opsForValue().get(prefix + userId);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+}
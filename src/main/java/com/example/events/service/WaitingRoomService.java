@@ -0,0 +1,356 @@
+package com.example.events.service;
+
+import com.example.events.DTO.WaitingRoomStatus;
+import com.example.events.exception.AdmissionRequiredException;
+import com.example.events.exception.InvalidQueueTokenException;
+import com.example.events.exception.ServiceBusyException;
+import com.example.events.exception.UnauthorizedException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// positions and admissions are signed, so polling and purchase checks never touch the database;
+// each node reads the shared admission frontier from redis once per tick, and asks redis directly about an event
+// its snapshot does not know yet; the answer that an event has no room is remembered until the next tick, or until
+// a node opens or closes a room for it
+@Service
+public class WaitingRoomService implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(WaitingRoomService.class);
+
+    public static final String admissionHeader = "X-Admission-Token";
+
+    private static final String activeRooms = "waitingroom:active";
+    private static final String channel = "waitingroom:changed";
+    private static final String roomPrefix = "waitingroom:room:";
+    private static final String membersSuffix = ":members";
+    private static final String queueKind = "q";
+    private static final String admissionKind = "a";
+
+    private static final RedisScript<Long> joinScript = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            local existing = redis.call('HGET', KEYS[2], ARGV[1])
+            if existing then
+                return tonumber(existing)
+            end
+            local position = redis.call('HINCRBY', KEYS[1], 'joined', 1)
+            redis.call('HSET', KEYS[2], ARGV[1], position)
+            return position
+            """, Long.class);
+
+    // time-based, so every node may run it each tick without admitting faster than the configured rate;
+    // credit does not build up while nobody is waiting
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> advanceScript = new DefaultRedisScript<>("""
+            local rate = tonumber(redis.call('HGET', KEYS[1], 'rate'))
+            if not rate then
+                return nil
+            end
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local joined = tonumber(redis.call('HGET', KEYS[1], 'joined') or '0')
+            local admitted = tonumber(redis.call('HGET', KEYS[1], 'admitted') or '0')
+            local last = tonumber(redis.call('HGET', KEYS[1], 'last') or now)
+            if admitted >= joined then
+                redis.call('HSET', KEYS[1], 'last', now)
+                return {admitted, joined, rate}
+            end
+            local credit = math.floor((now - last) * rate / 1000)
+            if credit > 0 then
+                local next = math.min(joined, admitted + credit)
+                if next == joined then
+                    last = now
+                else
+                    last = last + math.floor(credit * 1000 / rate)
+                end
+                admitted = next
+                redis.call('HSET', KEYS[1], 'admitted', admitted, 'last', last)
+            end
+            return {admitted, joined, rate}
+            """, List.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final SecretKeySpec key;
+    private final long admissionTtlMillis;
+
+    private volatile Map<Integer, RoomState> rooms = Map.of();
+    // events redis had no room for; emptied every tick, so a lost message is only stale until then
+    private final Set<Integer> withoutRoom = ConcurrentHashMap.newKeySet();
+    // bumped on every invalidation, so a lookup that raced one does not cache its stale answer
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder joins = new LongAdder();
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder rejectedPurchases = new LongAdder();
+    private final LongAdder snapshotMisses = new LongAdder();
+
+    public WaitingRoomService(RedisTemplate<String, String> redisTemplate,
+                              RedisMessageListenerContainer listenerContainer,
+                              @Value("${waitingroom.secret}") String secret,
+                              @Value("${jwt.secret}") String jwtSecret,
+                              @Value("${waitingroom.admission-ttl-seconds:120}") long admissionTtlSeconds) {
+        // a shared secret would let one kind of token be forged from the other
+        if (secret.length() < 32 || secret.equals(jwtSecret)) {
+            throw new IllegalStateException("waitingroom.secret must be at least 32 characters and differ from jwt.secret");
+        }
+        this.redisTemplate = redisTemplate;
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.admissionTtlMillis = TimeUnit.SECONDS.toMillis(admissionTtlSeconds);
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    public void open(Integer eventId, int admissionsPerSecond) {
+        String room = roomPrefix + eventId;
+        redisTemplate.opsForHash().put(room, "rate", Integer.toString(Math.max(1, admissionsPerSecond)));
+        redisTemplate.opsForSet().add(activeRooms, eventId.toString());
+        changed(eventId);
+        tick();
+    }
+
+    public void close(Integer eventId) {
+        redisTemplate.opsForSet().remove(activeRooms, eventId.toString());
+        redisTemplate.delete(List.of(roomPrefix + eventId, roomPrefix + eventId + membersSuffix));
+        changed(eventId);
+        tick();
+    }
+
+    private void changed(Integer eventId) {
+        invalidate(eventId);
+        redisTemplate.convertAndSend(channel, eventId.toString());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            invalidate(Integer.valueOf(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException ignored) {
+        }
+    }
+
+    private void invalidate(Integer eventId) {
+        invalidations.incrementAndGet();
+        withoutRoom.remove(eventId);
+    }
+
+    // joining twice keeps the original place in line
+    public WaitingRoomStatus join(Integer eventId, HttpServletRequest request) {
+        UUID userId = getAuthenticatedUserId(request);
+        Long position = redisTemplate.execute(joinScript,
+                List.of(roomPrefix + eventId, roomPrefix + eventId + membersSuffix), userId.toString());
+        joins.increment();
+        if (position == null || position == 0) {
+            return admitted(eventId, userId, 0, null);
+        }
+        String queueToken = sign(queueKind, eventId, userId, position);
+        return status(eventId, userId, position, queueToken);
+    }
+
+    public WaitingRoomStatus getStatus(String queueToken) {
+        polls.increment();
+        String[] claims = verify(queueToken, queueKind);
+        Integer eventId = Integer.valueOf(claims[1]);
+        UUID userId = UUID.fromString(claims[2]);
+        long position = Long.parseLong(claims[3]);
+        return status(eventId, userId, position, queueToken);
+    }
+
+    public void checkAdmitted(Integer eventId, UUID userId, String admissionToken) {
+        if (eventId == null || room(eventId) == null) {
+            return;
+        }
+        if (admissionToken != null) {
+            try {
+                String[] claims = verify(admissionToken, admissionKind);
+                if (claims[1].equals(eventId.toString()) && claims[2].equals(userId.toString())
+                        && Long.parseLong(claims[3]) >= System.currentTimeMillis()) {
+                    return;
+                }
+            } catch (InvalidQueueTokenException ignored) {
+            }
+        }
+        rejectedPurchases.increment();
+        throw new AdmissionRequiredException("Event " + eventId + " has a waiting room; join it and wait for admission");
+    }
+
+    @Scheduled(fixedRateString = "${waitingroom.tick-ms:1000}")
+    public void tick() {
+        try {
+            Set<String> active = redisTemplate.opsForSet().members(activeRooms);
+            Map<Integer, RoomState> next = new HashMap<>();
+            if (active != null) {
+                for (String eventId : active) {
+                    List<?> state = redisTemplate.execute(advanceScript, List.of(roomPrefix + eventId));
+                    if (state != null && state.size() == 3) {
+                        next.put(Integer.valueOf(eventId), new RoomState(((Number) state.get(0)).longValue(),
+                                ((Number) state.get(1)).longValue(), ((Number) state.get(2)).longValue()));
+                    }
+                }
+            }
+            invalidations.incrementAndGet();
+            rooms = next;
+            withoutRoom.clear();
+        } catch (Exception e) {
+            log.warn("Failed to advance waiting rooms: {}", e.getMessage());
+        }
+    }
+
+    private WaitingRoomStatus status(Integer eventId, UUID userId, long position, String queueToken) {
+        RoomState room = room(eventId);
+        if (room == null || position <= room.admitted()) {
+            return admitted(eventId, userId, position, queueToken);
+        }
+        long ahead = position - room.admitted() - 1;
+        return WaitingRoomStatus.builder()
+                .eventId(eventId)
+                .position(position)
+                .ahead(ahead)
+                .estimatedWaitSeconds(ahead / room.rate() + 1)
+                .queueToken(queueToken)
+                .build();
+    }
+
+    // a room opened on another node is missing from the snapshot until the next tick, so a miss is checked against
+    // redis; if redis cannot answer the caller is turned away rather than let through
+    private RoomState room(Integer eventId) {
+        RoomState room = rooms.get(eventId);
+        if (room != null || withoutRoom.contains(eventId)) {
+            return room;
+        }
+        snapshotMisses.increment();
+        long seen = invalidations.get();
+        List<Object> state;
+        try {
+            state = redisTemplate.opsForHash().multiGet(roomPrefix + eventId, List.of("rate", "admitted", "joined"));
+        } catch (Exception e) {
+            log.warn("Failed to read waiting room for event {}: {}", eventId, e.getMessage());
+            throw new ServiceBusyException("Waiting room is unavailable, please retry later", 1);
+        }
+        if (state == null || state.get(0) == null) {
+            withoutRoom.add(eventId);
+            if (invalidations.get() != seen) {
+                withoutRoom.remove(eventId);
+            }
+            return null;
+        }
+        room = new RoomState(parse(state.get(1)), parse(state.get(2)), Long.parseLong((String) state.get(0)));
+        Map<Integer, RoomState> next = new HashMap<>(rooms);
+        next.put(eventId, room);
+        rooms = next;
+        return room;
+    }
+
+    private static long parse(Object value) {
+        return value == null ? 0 : Long.parseLong((String) value);
+    }
+
+    private WaitingRoomStatus admitted(Integer eventId, UUID userId, long position, String queueToken) {
+        long expiresAt = System.currentTimeMillis() + admissionTtlMillis;
+        return WaitingRoomStatus.builder()
+                .eventId(eventId)
+                .position(position)
+                .queueToken(queueToken)
+                .admissionToken(sign(admissionKind, eventId, userId, expiresAt))
+                .admissionExpiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAt), ZoneId.systemDefault()))
+                .build();
+    }
+
+    private String sign(String kind, Integer eventId, UUID userId, long value) {
+        String payload = kind + "|" + eventId + "|" + userId + "|" + value;
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + encoder.encodeToString(mac(payload));
+    }
+
+    private String[] verify(String token, String kind) {
+        try {
+            int separator = token.indexOf('.');
+            String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, separator)), StandardCharsets.UTF_8);
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+            String[] claims = payload.split("\\|");
+            if (claims.length == 4 && claims[0].equals(kind) && MessageDigest.isEqual(signature, mac(payload))) {
+                return claims;
+            }
+        } catch (RuntimeException ignored) {
+        }
+        throw new InvalidQueueTokenException("Invalid waiting room token");
+    }
+
+    private byte[] mac(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private UUID getAuthenticatedUserId(HttpServletRequest request) {
+        String userId = (String) request.getAttribute("userId");
+
+        if (userId == null) {
+            throw new UnauthorizedException("User not authenticated");
+        }
+
+        return UUID.fromString(userId);
+    }
+
+    // for monitoring
+    public long getJoinCount() {
+        return joins.sum();
+    }
+
+    public long getPollCount() {
+        return polls.sum();
+    }
+
+    public long getRejectedPurchaseCount() {
+        return rejectedPurchases.sum();
+    }
+
+    public long getSnapshotMissCount() {
+        return snapshotMisses.sum();
+    }
+
+    public int getOpenRoomCount() {
+        return rooms.size();
+    }
+
+    public long getWaiting(Integer eventId) {
+        RoomState room = rooms.get(eventId);
+        return room == null ? 0 : Math.max(0, room.joined() - room.admitted());
+    }
+
+    private record RoomState(long admitted, long joined, long rate) {
+    }
+}
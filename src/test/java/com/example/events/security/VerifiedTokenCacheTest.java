@@ -0,0 +1,60 @@
+package com.example.events.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VerifiedTokenCacheTest {
+
+    private final JwtUtil jwtUtil = mock(JwtUtil.class);
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtil, 100);
+
+    @Test
+    void aTokenIsParsedOnceWhileItIsValid() {
+        JwtPrincipal principal = principal(System.currentTimeMillis() + 60_000);
+        when(jwtUtil.parseToken("valid")).thenReturn(principal);
+
+        assertSame(principal, cache.verify("valid"));
+        assertSame(principal, cache.verify("valid"));
+
+        verify(jwtUtil, times(1)).parseToken("valid");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void anExpiredEntryIsParsedAgain() throws InterruptedException {
+        JwtPrincipal shortLived = principal(System.currentTimeMillis() + 50);
+        JwtPrincipal renewed = principal(System.currentTimeMillis() + 60_000);
+        when(jwtUtil.parseToken("token")).thenReturn(shortLived, renewed);
+
+        assertSame(shortLived, cache.verify("token"));
+        Thread.sleep(100);
+
+        assertSame(renewed, cache.verify("token"));
+        verify(jwtUtil, times(2)).parseToken("token");
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    void invalidatedTokensAreParsedAgain() {
+        when(jwtUtil.parseToken("token")).thenReturn(principal(System.currentTimeMillis() + 60_000));
+
+        cache.verify("token");
+        cache.invalidate("token");
+        cache.verify("token");
+
+        verify(jwtUtil, times(2)).parseToken("token");
+    }
+
+    private static JwtPrincipal principal(long expiresAt) {
+        return new JwtPrincipal("alice", "id", "user", new Date(), new Date(expiresAt), "jti");
+    }
+}
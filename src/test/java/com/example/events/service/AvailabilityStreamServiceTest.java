@@ -0,0 +1,267 @@
+package com.example.events.service;
+
+import com.example.events.DTO.AvailabilityUpdate;
+import com.example.events.DTO.EventDTO;
+import com.example.events.exception.EventNotFoundException;
+import com.example.events.exception.ServiceBusyException;
+import com.example.events.repository.EventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AvailabilityStreamServiceTest {
+
+    private final AtomicInteger available = new AtomicInteger(10);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private RedisTemplate<String, String> redisTemplate;
+    private EventCatalogueService catalogue;
+    private EventRepository eventRepository;
+    private AvailabilityStreamService service;
+    // set before each subscribe to decide how the next client behaves
+    private volatile boolean nextClientStalls;
+    private volatile boolean nextClientIsSlow;
+    private final List<RecordingEmitter> clients = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        catalogue = mock(EventCatalogueService.class);
+        when(catalogue.getEvent(1)).thenReturn(EventDTO.builder().id(1).build());
+        when(catalogue.getEvent(2)).thenThrow(new EventNotFoundException("Event not found with id: 2"));
+        eventRepository = mock(EventRepository.class);
+        when(eventRepository.findAvailableTicketsById(1)).thenAnswer(invocation -> Optional.of(available.get()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void aSubscriberStartsWithTheCurrentCountAndUnknownEventsAreRefused() {
+        service = service(10, 5_000, 4);
+
+        RecordingEmitter client = subscribe();
+        eventually(() -> client.updates().size() == 1);
+        assertEquals(10L, client.updates().get(0).getAvailableTickets());
+        assertEquals(1, service.getConnectionCount());
+
+        assertThrows(EventNotFoundException.class, () -> service.subscribe(2));
+        assertEquals(1, service.getConnectionCount());
+    }
+
+    @Test
+    void connectionsBeyondTheLimitAreTurnedAwayUntilOneCloses() {
+        service = service(2, 5_000, 4);
+        RecordingEmitter first = subscribe();
+        subscribe();
+
+        ServiceBusyException e = assertThrows(ServiceBusyException.class, () -> service.subscribe(1));
+        assertEquals(5, e.getRetryAfterSeconds());
+        assertEquals(1, service.getRejectedCount());
+        assertEquals(2, service.getConnectionCount());
+
+        first.fail();
+        eventually(() -> service.getConnectionCount() == 1);
+        subscribe();
+        assertEquals(2, service.getConnectionCount());
+    }
+
+    @Test
+    void changesWithinOneTickReachEachSubscriberAsOneUpdate() {
+        service = service(10, 5_000, 4);
+        RecordingEmitter client = subscribe();
+        eventually(() -> client.updates().size() == 1);
+
+        for (int sold = 1; sold <= 5; sold++) {
+            available.set(10 - sold);
+            service.changed(1);
+        }
+        service.tick();
+        verify(redisTemplate, times(1)).convertAndSend("availability:changed", "1");
+        assertEquals(1, service.getPublishedCount());
+
+        // the broadcast comes back through redis, possibly repeated by other nodes
+        service.onMessage(new DefaultMessage("availability:changed".getBytes(StandardCharsets.UTF_8),
+                "1,1".getBytes(StandardCharsets.UTF_8)), null);
+        service.tick();
+
+        eventually(() -> client.updates().size() == 2);
+        assertEquals(5L, client.updates().get(1).getAvailableTickets());
+        service.tick();
+        assertEquals(2, client.updates().size());
+    }
+
+    @Test
+    void aSlowClientSkipsToTheLatestCount() {
+        service = service(10, 5_000, 4);
+        nextClientIsSlow = true;
+        RecordingEmitter client = subscribe();
+        eventually(() -> client.sending.get() == 1);
+
+        // the initial count is still being written, so later counts queue up behind it and replace each other
+        for (int count = 9; count >= 6; count--) {
+            available.set(count);
+            service.onMessage(new DefaultMessage(new byte[0], "1".getBytes(StandardCharsets.UTF_8)), null);
+            service.tick();
+        }
+        release.countDown();
+
+        eventually(() -> client.updates().size() == 2);
+        assertEquals(6L, client.updates().get(1).getAvailableTickets());
+        assertEquals(3, service.getConflatedCount());
+    }
+
+    @Test
+    void aClientThatStopsReadingIsDroppedWithoutHoldingUpTheOthers() {
+        service = service(10, 100, 4);
+        nextClientStalls = true;
+        subscribe();
+        RecordingEmitter healthy = subscribe();
+
+        eventually(() -> service.getConnectionCount() == 1);
+        assertEquals(1, service.getStalledCount());
+
+        available.set(3);
+        service.changed(1);
+        service.onMessage(new DefaultMessage(new byte[0], "1".getBytes(StandardCharsets.UTF_8)), null);
+        service.tick();
+        eventually(() -> healthy.updates().size() == 2);
+        assertEquals(3L, healthy.updates().get(1).getAvailableTickets());
+    }
+
+    @Test
+    void sendsAreRefusedOnceEverySenderIsStuckOnAStalledClient() {
+        service = service(10, 100, 4, 1);
+        nextClientStalls = true;
+        subscribe();
+        eventually(() -> service.getStalledCount() == 1);
+
+        // the stalled write still occupies the only sender thread, so the next client cannot be served
+        RecordingEmitter next = subscribe();
+        eventually(() -> service.getStalledCount() == 2);
+        assertEquals(0, service.getConnectionCount());
+        assertTrue(next.updates().isEmpty());
+    }
+
+    private AvailabilityStreamService service(int maxConnections, long sendTimeoutMillis, int writerThreads) {
+        return service(maxConnections, sendTimeoutMillis, writerThreads, 64);
+    }
+
+    private AvailabilityStreamService service(int maxConnections, long sendTimeoutMillis, int writerThreads,
+                                              int senderThreads) {
+        return new AvailabilityStreamService(redisTemplate, mock(RedisMessageListenerContainer.class), catalogue,
+                eventRepository, "database", maxConnections, 60_000, writerThreads, sendTimeoutMillis,
+                senderThreads) {
+            @Override
+            SseEmitter newEmitter() {
+                RecordingEmitter emitter = new RecordingEmitter(nextClientStalls, nextClientIsSlow);
+                nextClientStalls = false;
+                nextClientIsSlow = false;
+                synchronized (clients) {
+                    clients.add(emitter);
+                }
+                return emitter;
+            }
+        };
+    }
+
+    private RecordingEmitter subscribe() {
+        service.subscribe(1);
+        synchronized (clients) {
+            return clients.get(clients.size() - 1);
+        }
+    }
+
+    private static void eventually(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("condition not reached within 5 seconds");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // stands in for the servlet response: records what was written, and can block a write like a client that has
+    // stopped reading (ignoring interrupts, as a blocked socket write does) or hold the first one up for a while
+    private final class RecordingEmitter extends SseEmitter {
+        private final boolean stalls;
+        private final boolean slow;
+        private final List<AvailabilityUpdate> updates = new ArrayList<>();
+        private final AtomicInteger sending = new AtomicInteger();
+        private volatile Consumer<Throwable> errorCallback;
+
+        RecordingEmitter(boolean stalls, boolean slow) {
+            this.stalls = stalls;
+            this.slow = slow;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            if (sending.incrementAndGet() == 1 && (stalls || slow)) {
+                boolean interrupted = false;
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        interrupted = stalls;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (updates) {
+                builder.build().stream()
+                        .map(DataWithMediaType::getData)
+                        .filter(AvailabilityUpdate.class::isInstance)
+                        .map(AvailabilityUpdate.class::cast)
+                        .forEach(updates::add);
+            }
+        }
+
+        List<AvailabilityUpdate> updates() {
+            synchronized (updates) {
+                return new ArrayList<>(updates);
+            }
+        }
+
+        // without a servlet response behind it the emitter never calls back on its own
+        @Override
+        public void onError(Consumer<Throwable> callback) {
+            super.onError(callback);
+            errorCallback = callback;
+        }
+
+        // the container reporting a broken connection
+        void fail() {
+            errorCallback.accept(new IllegalStateException("connection reset"));
+        }
+    }
+}
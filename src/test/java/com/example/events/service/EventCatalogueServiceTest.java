@@ -0,0 +1,115 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.RatingSummaryDTO;
+import com.example.events.exception.EventNotFoundException;
+import com.example.events.model.Event;
+import com.example.events.model.EventCategory;
+import com.example.events.repository.EventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EventCatalogueServiceTest {
+
+    private static final LocalDateTime loadedAt = LocalDateTime.of(2026, 5, 1, 12, 0);
+
+    private EventRepository eventRepository;
+    private EventCatalogueListener listener;
+    private EventCatalogueService catalogue;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(EventRepository.class);
+        listener = mock(EventCatalogueListener.class);
+        RatingAggregates ratingAggregates = mock(RatingAggregates.class);
+        when(ratingAggregates.getSummary(any())).thenReturn(RatingSummaryDTO.builder().histogram(new int[5]).build());
+        catalogue = new EventCatalogueService(eventRepository, List.of(listener), ratingAggregates, 5_000, 600_000);
+
+        when(eventRepository.findAllByOrderByUpdatedAt()).thenReturn(List.of(event(1, "One", loadedAt),
+                event(2, "Two", loadedAt)));
+        catalogue.refresh();
+    }
+
+    @Test
+    void refreshAppliesOnlyRowsThatChangedSinceTheWatermark() {
+        LocalDateTime since = loadedAt.minusSeconds(5);
+        when(eventRepository.findByUpdatedAtAfterOrderByUpdatedAt(since)).thenReturn(List.of(
+                event(1, "One", loadedAt),
+                event(2, "Two, renamed", loadedAt.plusSeconds(1)),
+                event(3, "Three", loadedAt.plusSeconds(2))));
+        when(eventRepository.count()).thenReturn(3L);
+
+        catalogue.refresh();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<EventDTO>> changed = ArgumentCaptor.forClass(Collection.class);
+        verify(listener).onEventsChanged(changed.capture(), anyCollection());
+        assertEquals(List.of(2, 3), changed.getValue().stream().map(EventDTO::getId).toList());
+        assertEquals("Two, renamed", catalogue.getEvent(2).getTitle());
+        assertEquals(3, catalogue.getSize());
+        verify(eventRepository).findAllByOrderByUpdatedAt();
+    }
+
+    @Test
+    void refreshWithoutChangesNotifiesNobody() {
+        when(eventRepository.findByUpdatedAtAfterOrderByUpdatedAt(loadedAt.minusSeconds(5)))
+                .thenReturn(List.of(event(2, "Two", loadedAt)));
+        when(eventRepository.count()).thenReturn(2L);
+
+        catalogue.refresh();
+
+        verify(eventRepository, never()).findAllIds();
+        verify(listener, never()).onEventsChanged(anyCollection(), anyCollection());
+        verify(listener).onCatalogueRebuilt(anyCollection());
+        assertEquals(2, catalogue.getSize());
+    }
+
+    @Test
+    void refreshPassesDeletedRowsOnWithoutWaitingForARebuild() {
+        when(eventRepository.findByUpdatedAtAfterOrderByUpdatedAt(loadedAt.minusSeconds(5)))
+                .thenReturn(List.of(event(3, "Three", loadedAt.plusSeconds(1))));
+        when(eventRepository.count()).thenReturn(2L);
+        when(eventRepository.findAllIds()).thenReturn(List.of(2, 3));
+
+        catalogue.refresh();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Integer>> removed = ArgumentCaptor.forClass(Collection.class);
+        verify(listener).onEventsChanged(anyCollection(), removed.capture());
+        assertEquals(List.of(1), List.copyOf(removed.getValue()));
+        assertThrows(EventNotFoundException.class, () -> catalogue.getEvent(1));
+        assertEquals(2, catalogue.getSize());
+    }
+
+    private static Event event(int id, String title, LocalDateTime updatedAt) {
+        return Event.builder()
+                .id(id)
+                .title(title)
+                .date(LocalDate.of(2026, 6, 1))
+                .startTime(LocalTime.NOON)
+                .price(BigDecimal.TEN)
+                .category(EventCategory.values()[0])
+                .availableTickets(100)
+                .totalTickets(100)
+                .finished(false)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
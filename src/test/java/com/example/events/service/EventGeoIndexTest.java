@@ -0,0 +1,131 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.NearbyEventDTO;
+import com.example.events.model.EventCategory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventGeoIndexTest {
+
+    private static final EventCategory[] categories = EventCategory.values();
+
+    @Test
+    void queriesMatchBruteForce() {
+        int count = 5_000;
+        Random random = new Random(7);
+        double[][] cities = new double[40][];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = new double[]{random.nextDouble() * 120 - 60, random.nextDouble() * 360 - 180};
+        }
+        List<EventDTO> events = new ArrayList<>(count);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < count; i++) {
+            double lat;
+            double lon;
+            if (i % 10 == 0) {
+                lat = random.nextDouble() * 170 - 85;
+                lon = random.nextDouble() * 360 - 180;
+            } else {
+                double[] city = cities[random.nextInt(cities.length)];
+                lat = Math.max(-89, Math.min(89, city[0] + random.nextGaussian() * 0.5));
+                lon = ((city[1] + random.nextGaussian() * 0.5) + 540) % 360 - 180;
+            }
+            events.add(event(i + 1, lat, lon, today.plusDays(random.nextInt(365)), i % 20 == 0));
+        }
+
+        EventGeoIndex index = new EventGeoIndex(0.25);
+        index.onCatalogueRebuilt(events);
+
+        List<EventDTO> upcoming = events.stream().filter(event -> !event.isFinished()).toList();
+        for (int q = 0; q < 40; q++) {
+            double[] city = cities[random.nextInt(cities.length)];
+            double lat = city[0] + random.nextGaussian() * 0.3;
+            double lon = Math.max(-179.5, Math.min(179.5, city[1] + random.nextGaussian() * 0.3));
+            EventCategory category = q % 2 == 0 ? null : categories[q % categories.length];
+
+            List<NearbyEventDTO> within = index.findWithinRadius(lat, lon, 25, category, null, null, 500);
+            List<NearbyEventDTO> knn = index.findNearest(lat, lon, 20, category, today, today.plusDays(90));
+            List<EventDTO> inBox = index.findWithinBox(lat - 0.2, lon - 0.2, lat + 0.2, lon + 0.2, category, null, null, 500);
+
+            List<Double> expected = upcoming.stream()
+                    .filter(event -> category == null || event.getCategory() == category)
+                    .map(event -> distance(lat, lon, event))
+                    .filter(distance -> distance <= 25)
+                    .sorted()
+                    .limit(500)
+                    .toList();
+            assertEquals(expected, within.stream().map(NearbyEventDTO::getDistanceKm).toList());
+
+            List<Double> expectedKnn = upcoming.stream()
+                    .filter(event -> category == null || event.getCategory() == category)
+                    .filter(event -> !event.getDate().isAfter(today.plusDays(90)))
+                    .map(event -> distance(lat, lon, event))
+                    .sorted()
+                    .limit(20)
+                    .toList();
+            assertEquals(expectedKnn, knn.stream().map(NearbyEventDTO::getDistanceKm).toList());
+
+            long expectedBox = upcoming.stream()
+                    .filter(event -> category == null || event.getCategory() == category)
+                    .filter(event -> Math.abs(event.getLatitude().doubleValue() - lat) <= 0.2
+                            && Math.abs(event.getLongitude().doubleValue() - lon) <= 0.2)
+                    .count();
+            assertEquals(Math.min(500, expectedBox), inBox.size());
+        }
+
+        EventDTO moved = event(2, cities[0][0], cities[0][1], today, false);
+        EventDTO finished = event(3, 0, 0, today, true);
+        index.onEventsChanged(List.of(moved, finished), List.of(4));
+        assertTrue(index.findWithinRadius(cities[0][0], cities[0][1], 0.01, null, null, null, 500).stream()
+                .anyMatch(nearby -> nearby.getEvent().getId() == 2));
+        assertEquals(upcoming.size() - (events.get(2).isFinished() ? 0 : 1) - (events.get(3).isFinished() ? 0 : 1)
+                + (events.get(1).isFinished() ? 1 : 0), index.size());
+    }
+
+    @Test
+    void updatesThatKeepTheLocationRefreshTheEventInPlace() {
+        LocalDate today = LocalDate.now();
+        EventGeoIndex index = new EventGeoIndex(0.25);
+        index.onCatalogueRebuilt(List.of(event(1, 48.85, 2.35, today, false), event(2, 48.86, 2.35, today, false)));
+
+        EventDTO renamed = event(1, 48.85, 2.35, today.plusDays(3), false);
+        renamed.setTitle("Moved to Thursday");
+        index.onEventsChanged(List.of(renamed, event(2, 48.86, 2.35, today, true)), List.of());
+
+        List<NearbyEventDTO> nearby = index.findWithinRadius(48.85, 2.35, 5, null, today.plusDays(1), null, 10);
+        assertEquals(1, nearby.size());
+        assertEquals("Moved to Thursday", nearby.get(0).getEvent().getTitle());
+        assertEquals(1, index.size());
+
+        index.onEventsChanged(List.of(event(1, 40.71, -74.0, today, false)), List.of());
+        assertTrue(index.findWithinRadius(48.85, 2.35, 5, null, null, null, 10).isEmpty());
+        assertEquals(1, index.findWithinRadius(40.71, -74.0, 5, null, null, null, 10).size());
+    }
+
+    private static EventDTO event(int id, double lat, double lon, LocalDate date, boolean finished) {
+        return EventDTO.builder()
+                .id(id)
+                .date(date)
+                .startTime(LocalTime.NOON)
+                .category(categories[id % categories.length])
+                .latitude(BigDecimal.valueOf(lat))
+                .longitude(BigDecimal.valueOf(lon))
+                .finished(finished)
+                .build();
+    }
+
+    private static double distance(double lat, double lon, EventDTO event) {
+        return EventGeoIndex.distanceKm(lat, lon, event.getLatitude().doubleValue(), event.getLongitude().doubleValue());
+    }
+}
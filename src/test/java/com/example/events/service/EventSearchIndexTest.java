@@ -0,0 +1,110 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.EventSearchResult;
+import com.example.events.model.EventCategory;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventSearchIndexTest {
+
+    @Test
+    void ranksTitleMatchesFirstAndFollowsUpdates() {
+        EventSearchIndex index = new EventSearchIndex();
+        index.onCatalogueRebuilt(List.of(
+                event(1, "Marathon City Run", "A 42km run through the old town", EventCategory.Sports, false),
+                event(2, "Jazz Night", "Live music after the city marathon", EventCategory.Music, false),
+                event(3, "Café Concert", "Acoustic évening", EventCategory.Music, false),
+                event(4, "Old Marathon", "Already over", EventCategory.Sports, true)));
+
+        assertEquals(List.of(1, 2), ids(index.search("marathon", null, 10)));
+        assertEquals(List.of(2), ids(index.search("marathon", EventCategory.Music, 10)));
+        assertEquals(List.of(1, 2), ids(index.search("mara", null, 10)));
+        assertEquals(List.of(3), ids(index.search("cafe evening", null, 10)));
+        assertEquals(List.of("marathon"), index.suggest("mar", 5));
+
+        index.onEventsChanged(List.of(event(1, "Marathon City Run", "Finished", EventCategory.Sports, true),
+                event(3, "Café Concert", "Now with a marathon session", EventCategory.Music, false)), List.of());
+        assertEquals(List.of(2, 3), ids(index.search("marathon", null, 10)).stream().sorted().toList());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void ticketCountChangesKeepThePostingsAndDeletesDropTheEvent() {
+        EventSearchIndex index = new EventSearchIndex();
+        index.onCatalogueRebuilt(List.of(
+                event(1, "Harbour Festival", "Boats and food", EventCategory.Music, false),
+                event(2, "Harbour Tour", "Guided walk", EventCategory.Sports, false)));
+        int terms = index.getTermCount();
+
+        EventDTO soldOut = event(1, "Harbour Festival", "Boats and food", EventCategory.Music, false);
+        soldOut.setAvailableTickets(0);
+        index.onEventsChanged(List.of(soldOut), List.of(2));
+
+        List<EventSearchResult> results = index.search("harbour", null, 10);
+        assertEquals(List.of(1), ids(results));
+        assertEquals(0, results.get(0).getEvent().getAvailableTickets());
+        assertTrue(index.getTermCount() < terms);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void randomQueriesRespectTheLimitAndRecordLatency() {
+        Random random = new Random(11);
+        String[] vocabulary = new String[2_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = "w" + Integer.toString(i * 7919, 36);
+        }
+        List<EventDTO> events = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            events.add(event(i, words(random, vocabulary, 4), words(random, vocabulary, 20),
+                    EventCategory.values()[i % EventCategory.values().length], false));
+        }
+        EventSearchIndex index = new EventSearchIndex();
+        index.onCatalogueRebuilt(events);
+        assertEquals(events.size(), index.size());
+
+        for (int q = 0; q < 500; q++) {
+            String prefix = vocabulary[zipf(random, vocabulary.length)];
+            String query = words(random, vocabulary, 2) + prefix.substring(0, Math.min(3, prefix.length()));
+            List<EventSearchResult> results = index.search(query, null, 20);
+            assertTrue(results.size() <= 20);
+        }
+        assertTrue(index.getLatencyP50Micros() <= index.getLatencyP95Micros());
+        assertTrue(index.getLatencyP95Micros() <= index.getLatencyP99Micros());
+    }
+
+    private static EventDTO event(int id, String title, String description, EventCategory category, boolean finished) {
+        return EventDTO.builder()
+                .id(id)
+                .title(title)
+                .description(description)
+                .date(LocalDate.now())
+                .category(category)
+                .finished(finished)
+                .build();
+    }
+
+    private static String words(Random random, String[] vocabulary, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(vocabulary[zipf(random, vocabulary.length)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static int zipf(Random random, int size) {
+        return (int) Math.min(size - 1, Math.floor(Math.pow(size, random.nextDouble())) - 1);
+    }
+
+    private static List<Integer> ids(List<EventSearchResult> results) {
+        return results.stream().map(result -> result.getEvent().getId()).toList();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.events.service;
+
+import com.example.events.RedisConfig;
+import com.example.events.exception.TooManyRequestsException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import redis.embedded.RedisServer;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginThrottleServiceTest {
+
+    private static final int port = 6395;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+
+    private LoginThrottleService throttle;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        throttle = new LoginThrottleService(redisTemplate, 100, 100, 100, 100, 900, 3, 900, 5, 60);
+    }
+
+    @Test
+    void drainingANamesBucketFromOneAddressLeavesOtherAddressesAlone() {
+        LoginThrottleService tight = new LoginThrottleService(redisTemplate, 2, 0.001, 100, 100, 900, 100, 900, 1000, 60);
+        tight.checkAllowed("alice", "10.0.0.1");
+        tight.checkAllowed("alice", "10.0.0.1");
+
+        assertThrows(TooManyRequestsException.class, () -> tight.checkAllowed("Alice", "10.0.0.1"));
+        assertDoesNotThrow(() -> tight.checkAllowed("alice", "10.0.0.2"));
+    }
+
+    @Test
+    void failuresLockTheNameOnlyForTheAddressTheyCameFrom() {
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure("alice", "10.0.0.1");
+        }
+
+        assertThrows(TooManyRequestsException.class, () -> throttle.checkAllowed("alice", "10.0.0.1"));
+        assertDoesNotThrow(() -> throttle.checkAllowed("alice", "10.0.0.2"));
+    }
+
+    @Test
+    void caseVariantsOfANameShareOneFailureCount() {
+        throttle.recordFailure("Alice", "10.0.0.1");
+        throttle.recordFailure("alice", "10.0.0.1");
+        throttle.recordFailure(" ALICE ", "10.0.0.1");
+
+        assertEquals(2, throttle.getLockoutCount());
+        assertThrows(TooManyRequestsException.class, () -> throttle.checkAllowed("aLiCe", "10.0.0.1"));
+    }
+
+    @Test
+    void successResetsTheFailureCountForThatAddress() {
+        throttle.recordFailure("alice", "10.0.0.1");
+        throttle.recordFailure("alice", "10.0.0.1");
+        throttle.recordSuccess("Alice", "10.0.0.1");
+        throttle.recordFailure("alice", "10.0.0.1");
+
+        // the address keeps its three failures, only the name's count started over
+        assertEquals(1, throttle.getLockoutCount());
+    }
+
+    @Test
+    void failuresFromManyAddressesSlowTheNameDownWithoutLockingIt() {
+        // no single address gets near its own lockout
+        for (int i = 0; i < 5; i++) {
+            throttle.recordFailure("alice", "10.0.1." + i);
+        }
+        assertEquals(0, throttle.getLockoutCount());
+
+        // the name still gets one attempt per slow-down period, from whichever address asks first
+        assertDoesNotThrow(() -> throttle.checkAllowed("alice", "10.0.0.1"));
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> throttle.checkAllowed("Alice", "10.0.0.2"));
+        assertTrue(e.getRetryAfterSeconds() <= 60);
+        assertEquals(1, throttle.getNameRejectCount());
+        assertDoesNotThrow(() -> throttle.checkAllowed("bob", "10.0.0.2"));
+
+        redisTemplate.delete("login:slow:user:alice");
+        LoginThrottleService otherNode = new LoginThrottleService(redisTemplate, 100, 100, 100, 100, 900, 3, 900, 5, 60);
+        assertDoesNotThrow(() -> otherNode.checkAllowed("alice", "10.0.0.3"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.events.service;
+
+import com.example.events.service.MailTransport.MailMessage;
+import com.example.events.service.MailTransport.SendResult;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MailTransportTest {
+
+    private final Session session = Session.getInstance(new Properties());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void defaultSenderIsAccepted() {
+        assertEquals("tickets@localhost", MailTransport.sender("tickets@localhost").getAddress());
+    }
+
+    @Test
+    void messagesAreWrittenWithAFlattenedSubject() throws Exception {
+        LocalMailTransport transport = new LocalMailTransport(directory.toString(), "tickets@localhost");
+
+        SendResult result = transport.send(List.of(
+                new MailMessage("t1", "ana@x.io", "Your tickets\r\nBcc: victim@x.io", "See you there")));
+
+        assertEquals(Set.of("t1"), result.accepted());
+        try (InputStream in = Files.newInputStream(directory.resolve("t1.eml"))) {
+            MimeMessage mime = new MimeMessage(session, in);
+            assertEquals("Your tickets Bcc: victim@x.io", mime.getSubject());
+            assertArrayEquals(new InternetAddress[]{new InternetAddress("ana@x.io")}, mime.getAllRecipients());
+            assertEquals("tickets@localhost", ((InternetAddress) mime.getFrom()[0]).getAddress());
+        }
+    }
+
+    @Test
+    void recipientsThatAreNotOneAddressAreRejectedWithoutFailingTheBatch() {
+        LocalMailTransport transport = new LocalMailTransport(directory.toString(), "tickets@localhost");
+
+        SendResult result = transport.send(List.of(
+                new MailMessage("t1", "ana@x.io\r\nBcc: victim@x.io", "s", "b"),
+                new MailMessage("t2", "ana@x.io, victim@x.io", "s", "b"),
+                new MailMessage("t3", "ben@x.io", "s", "b")));
+
+        assertEquals(Set.of("t3"), result.accepted());
+        assertEquals(Set.of("t1", "t2"), result.rejected().keySet());
+        assertFalse(Files.exists(directory.resolve("t1.eml")));
+    }
+
+    @Test
+    void recipientsTheServerRefusesAreRejectedAndTheRestOfTheBatchRetried() throws Exception {
+        JavaMailSender sender = mailSender();
+        doAnswer(invocation -> {
+            Object[] sent = invocation.getArguments();
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            failed.put(sent[0], new SendFailedException("550 no such user", null, null, null,
+                    new InternetAddress[]{new InternetAddress("ana@x.io")}));
+            failed.put(sent[1], new SendFailedException("421 try again later"));
+            throw new MailSendException(failed);
+        }).when(sender).send(any(MimeMessage[].class));
+
+        SendResult result = new SmtpMailTransport(sender, "tickets@localhost").send(List.of(
+                new MailMessage("t1", "ana@x.io", "s", "b"),
+                new MailMessage("t2", "ben@x.io", "s", "b"),
+                new MailMessage("t3", "cem@x.io", "s", "b")));
+
+        assertEquals(Set.of("t3"), result.accepted());
+        assertEquals(Set.of("t1"), result.rejected().keySet());
+    }
+
+    @Test
+    void anUnreachableServerFailsTheBatchForRetry() {
+        JavaMailSender sender = mailSender();
+        doThrow(new MailSendException("Couldn't connect to host")).when(sender).send(any(MimeMessage[].class));
+
+        SendResult result = new SmtpMailTransport(sender, "tickets@localhost").send(List.of(
+                new MailMessage("t1", "ana@x.io", "s", "b")));
+
+        assertTrue(result.accepted().isEmpty());
+        assertTrue(result.rejected().isEmpty());
+    }
+
+    private JavaMailSender mailSender() {
+        JavaMailSender sender = mock(JavaMailSender.class);
+        when(sender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage(session));
+        return sender;
+    }
+}
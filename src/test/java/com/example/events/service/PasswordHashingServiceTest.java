@@ -0,0 +1,108 @@
+package com.example.events.service;
+
+import com.example.events.DTO.ErrorResponse;
+import com.example.events.exception.GlobalExceptionHandler;
+import com.example.events.exception.ServiceBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingServiceTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHashingService hashing;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        hashing.shutdown();
+    }
+
+    @Test
+    void timeoutsAreCountedApartFromRejectionsAndFreeTheirQueueSlot() {
+        // the first hash holds the only thread, so the second caller waits in the single queue slot
+        hashing = new PasswordHashingService(blockingEncoder(), 10, 1, 1, 50, 1);
+
+        assertThrows(ServiceBusyException.class, () -> hashing.encode("first"));
+        assertThrows(ServiceBusyException.class, () -> hashing.encode("second"));
+
+        assertEquals(2, hashing.getTimedOutCount());
+        assertEquals(0, hashing.getRejectedCount());
+        assertEquals(0, hashing.getQueueDepth());
+    }
+
+    @Test
+    void aFullQueueIsRejectedAtOnceAndAnsweredWith503AndRetryAfter() throws Exception {
+        hashing = new PasswordHashingService(blockingEncoder(), 10, 1, 1, 5_000, 3);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hashing.encode("running"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> hashing.encode("queued"));
+        while (hashing.getQueueDepth() == 0) {
+            Thread.onSpinWait();
+        }
+
+        ServiceBusyException e = assertThrows(ServiceBusyException.class, () -> hashing.encode("rejected"));
+        assertEquals(3, e.getRetryAfterSeconds());
+        assertEquals(1, hashing.getRejectedCount());
+
+        ResponseEntity<ErrorResponse> response = new GlobalExceptionHandler()
+                .handleServiceBusyException(e, new MockHttpServletRequest("POST", "/api/auth/login"));
+        assertEquals(503, response.getStatusCode().value());
+        assertEquals("3", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        // the callers already admitted are still served once the thread frees up
+        release.countDown();
+        assertEquals("hash:running", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash:queued", queued.get(5, TimeUnit.SECONDS));
+        assertEquals(2, hashing.getCompletedCount());
+        assertEquals(0, hashing.getTimedOutCount());
+    }
+
+    @Test
+    void onlyHashesOfAnotherCostNeedRehashing() {
+        hashing = new PasswordHashingService(5, 1, 1, 5_000, 1);
+        String cost4 = new BCryptPasswordEncoder(4).encode("secret");
+        String cost5 = new BCryptPasswordEncoder(5).encode("secret");
+
+        assertTrue(hashing.needsRehash(cost4));
+        assertFalse(hashing.needsRehash(cost5));
+        assertFalse(hashing.needsRehash(null));
+        assertFalse(hashing.needsRehash("plain-text"));
+        assertFalse(hashing.needsRehash("$2a$xx$not-a-cost"));
+    }
+
+    // stands in for bcrypt: every hash waits until the test lets it finish
+    private PasswordEncoder blockingEncoder() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals(encode(rawPassword));
+            }
+        };
+    }
+}
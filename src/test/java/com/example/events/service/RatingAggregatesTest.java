@@ -0,0 +1,109 @@
+package com.example.events.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RatingAggregatesTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private RedisTemplate<String, String> redisTemplate;
+    private RedisLock redisLock;
+    private RatingAggregates aggregates;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:ratings-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE events (id INTEGER PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE reviews (id SERIAL PRIMARY KEY, user_id UUID NOT NULL, " +
+                "event_id INTEGER NOT NULL REFERENCES events(id), rating INTEGER NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE event_rating_summary (event_id INTEGER PRIMARY KEY REFERENCES events(id), " +
+                "count_1 INTEGER NOT NULL DEFAULT 0, count_2 INTEGER NOT NULL DEFAULT 0, " +
+                "count_3 INTEGER NOT NULL DEFAULT 0, count_4 INTEGER NOT NULL DEFAULT 0, " +
+                "count_5 INTEGER NOT NULL DEFAULT 0)");
+        for (int eventId = 1; eventId <= 4; eventId++) {
+            jdbcTemplate.update("INSERT INTO events (id) VALUES (?)", eventId);
+        }
+
+        // event 1 lost an increment, event 2 kept counts for deleted reviews, event 3 never got a summary row,
+        // event 4 is correct
+        review(1, 5);
+        review(1, 5);
+        review(1, 3);
+        review(3, 2);
+        review(4, 1);
+        jdbcTemplate.update("INSERT INTO event_rating_summary (event_id, count_3, count_5) VALUES (1, 1, 1)");
+        jdbcTemplate.update("INSERT INTO event_rating_summary (event_id, count_4) VALUES (2, 2)");
+        jdbcTemplate.update("INSERT INTO event_rating_summary (event_id, count_1) VALUES (4, 1)");
+
+        redisTemplate = mock(RedisTemplate.class);
+        redisLock = mock(RedisLock.class);
+        aggregates = new RatingAggregates(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                redisTemplate, redisLock, mock(RedisMessageListenerContainer.class), 2);
+        aggregates.load();
+    }
+
+    @Test
+    void verifierRepairsDriftedSummariesAndBroadcastsThem() {
+        when(redisLock.tryAcquire(eq("ratings:verify"), any())).thenReturn("lease");
+
+        aggregates.verify();
+
+        assertArrayEquals(new int[]{0, 0, 1, 0, 2}, stored(1));
+        assertArrayEquals(new int[]{0, 0, 0, 0, 0}, stored(2));
+        assertArrayEquals(new int[]{0, 1, 0, 0, 0}, stored(3));
+        assertArrayEquals(new int[]{1, 0, 0, 0, 0}, stored(4));
+        assertEquals(3, aggregates.getDriftedEventCount());
+
+        assertEquals(3, aggregates.getSummary(1).getCount());
+        assertEquals(13, aggregates.getSummary(1).getSum());
+        assertEquals(0, aggregates.getSummary(2).getCount());
+        assertArrayEquals(new int[]{0, 1, 0, 0, 0}, aggregates.getSummary(3).getHistogram());
+        verify(redisTemplate).convertAndSend("ratings:changed", "1");
+        verify(redisTemplate).convertAndSend("ratings:changed", "2");
+        verify(redisTemplate).convertAndSend("ratings:changed", "3");
+        verify(redisLock).release("ratings:verify", "lease");
+    }
+
+    @Test
+    void verifierLeavesSummariesAloneWhileAnotherNodeHoldsTheLease() {
+        when(redisLock.tryAcquire(eq("ratings:verify"), any())).thenReturn(null);
+
+        aggregates.verify();
+
+        assertArrayEquals(new int[]{0, 0, 1, 0, 1}, stored(1));
+        assertEquals(0, aggregates.getDriftedEventCount());
+        assertEquals(2, aggregates.getSummary(1).getCount());
+    }
+
+    private void review(int eventId, int rating) {
+        jdbcTemplate.update("INSERT INTO reviews (user_id, event_id, rating) VALUES (?, ?, ?)",
+                UUID.randomUUID(), eventId, rating);
+    }
+
+    private int[] stored(int eventId) {
+        return jdbcTemplate.query("SELECT count_1, count_2, count_3, count_4, count_5 FROM event_rating_summary " +
+                        "WHERE event_id = ?", (rs, rowNum) -> new int[]{rs.getInt(1), rs.getInt(2), rs.getInt(3),
+                        rs.getInt(4), rs.getInt(5)}, eventId)
+                .stream().findFirst().orElse(new int[5]);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.events.service;
+
+import com.example.events.RedisConfig;
+import com.example.events.security.JwtUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisTokenBlacklistServiceTest {
+
+    private static final int port = 6390;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+    private static RedisMessageListenerContainer listenerContainer;
+
+    private JwtUtil jwtUtil;
+    private RedisTokenBlacklistService service;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        RedisConfig config = new RedisConfig();
+        redisTemplate = config.redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        listenerContainer = config.redisMessageListenerContainer(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        listenerContainer.destroy();
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "0123456789abcdef0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+        service = new RedisTokenBlacklistService(redisTemplate, jwtUtil, listenerContainer,
+                10_000, 0.01, 1_000, 60);
+    }
+
+    @Test
+    void blacklistedTokensAreSeenThroughFilterAndCache() {
+        String revoked = jwtUtil.generateToken(UUID.randomUUID(), "alice", "user");
+        String active = jwtUtil.generateToken(UUID.randomUUID(), "bob", "user");
+
+        service.rebuildBloomFilter();
+        service.blacklistToken(revoked);
+
+        assertTrue(service.isTokenBlacklisted(revoked));
+        assertFalse(service.isTokenBlacklisted(active));
+        assertEquals(1, service.getBlacklistSize());
+        assertEquals(0, service.getRedisLookupCount());
+    }
+
+    @Test
+    void pruningDropsExpiredIndexEntriesAndClearRemovesEveryKey() {
+        seed(0, 2_500, System.currentTimeMillis() + 3_600_000L);
+        seed(2_500, 3_000, System.currentTimeMillis() - 1_000L);
+
+        assertEquals(2_500, service.getBlacklistSize());
+        assertEquals(3_000, redisTemplate.opsForZSet().zCard("blacklist:index"));
+
+        service.pruneExpiryIndex();
+        service.rebuildBloomFilter();
+
+        assertEquals(2_500, redisTemplate.opsForZSet().zCard("blacklist:index"));
+        assertTrue(service.isTokenBlacklisted("token-0"));
+
+        assertEquals(3_000, service.clearAllBlacklisted());
+        assertEquals(0, service.getBlacklistSize());
+        assertFalse(service.isTokenBlacklisted("token-0"));
+    }
+
+    @Test
+    void removalsReachEveryNode() throws InterruptedException {
+        RedisTokenBlacklistService peer = new RedisTokenBlacklistService(redisTemplate, jwtUtil, listenerContainer,
+                10_000, 0.01, 1_000, 60);
+        String first = jwtUtil.generateToken(UUID.randomUUID(), "alice", "user");
+        String second = jwtUtil.generateToken(UUID.randomUUID(), "bob", "user");
+
+        service.blacklistToken(first);
+        service.blacklistToken(second);
+        assertTrue(eventually(() -> peer.isTokenBlacklisted(first) && peer.isTokenBlacklisted(second)));
+
+        // the peer answers from its revoked cache, so it only sees a removal through the broadcast
+        service.removeFromBlacklist(first);
+        assertTrue(eventually(() -> !peer.isTokenBlacklisted(first)));
+        assertTrue(peer.isTokenBlacklisted(second));
+
+        service.clearAllBlacklisted();
+        assertTrue(eventually(() -> !peer.isTokenBlacklisted(second)));
+        assertFalse(service.isTokenBlacklisted(second));
+    }
+
+    @Test
+    void aClearReachingANodeLateKeepsTokensBlacklistedSince() throws InterruptedException {
+        RedisTokenBlacklistService peer = new RedisTokenBlacklistService(redisTemplate, jwtUtil, listenerContainer,
+                10_000, 0.01, 1_000, 60);
+        peer.rebuildBloomFilter();
+        service.blacklistToken(jwtUtil.generateToken(UUID.randomUUID(), "alice", "user"));
+        service.clearAllBlacklisted();
+        String late = jwtUtil.generateToken(UUID.randomUUID(), "bob", "user");
+        service.blacklistToken(late);
+        assertTrue(eventually(() -> peer.isTokenBlacklisted(late)));
+
+        // the clear's own broadcast arrives only now; once the peer drops its revoked cache it has seen it
+        redisTemplate.convertAndSend("blacklist:restored", "*");
+        assertTrue(eventually(() -> {
+            long localHits = peer.getLocalHitCount();
+            peer.isTokenBlacklisted(late);
+            return peer.getLocalHitCount() == localHits;
+        }));
+
+        assertTrue(peer.isTokenBlacklisted(late));
+        assertFalse(peer.isTokenBlacklisted(jwtUtil.generateToken(UUID.randomUUID(), "carol", "user")));
+    }
+
+    private static boolean eventually(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    // the keys are written directly, so their redis ttl is irrelevant; only the index score marks them expired
+    private void seed(long from, long to, long expiresAt) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (long i = from; i < to; i++) {
+                byte[] token = ("token-" + i).getBytes();
+                connection.stringCommands().setEx(("blacklist:token:token-" + i).getBytes(), 3600, "blacklisted".getBytes());
+                connection.zSetCommands().zAdd("blacklist:index".getBytes(), expiresAt, token);
+            }
+            return null;
+        });
+    }
+}
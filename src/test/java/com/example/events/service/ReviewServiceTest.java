@@ -0,0 +1,129 @@
+package com.example.events.service;
+
+import com.example.events.DTO.ReviewDTO;
+import com.example.events.DTO.ReviewRequest;
+import com.example.events.exception.InvalidReviewException;
+import com.example.events.exception.ReviewNotFoundException;
+import com.example.events.repository.ReviewRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// the review SQL relies on postgres RETURNING, so the statements are stubbed and only the summary deltas are checked
+class ReviewServiceTest {
+
+    private static final int eventId = 7;
+
+    private final UUID userId = UUID.randomUUID();
+    private final ReviewDTO review = ReviewDTO.builder().id(1).eventId(eventId).build();
+    private JdbcTemplate jdbcTemplate;
+    private RatingAggregates ratingAggregates;
+    private HttpServletRequest request;
+    private ReviewService reviewService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        ratingAggregates = mock(RatingAggregates.class);
+        request = mock(HttpServletRequest.class);
+        when(request.getAttribute("userId")).thenReturn(userId.toString());
+        reviewService = new ReviewService(jdbcTemplate, mock(ReviewRepository.class),
+                mock(EventCatalogueService.class), ratingAggregates);
+    }
+
+    @Test
+    void firstReviewAddsItsRating() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT rating"), eq(Integer.class), eq(userId), eq(eventId)))
+                .thenReturn(List.of());
+        when(jdbcTemplate.query(startsWith("INSERT"), any(RowMapper.class), eq(userId), eq(eventId), eq(4), isNull()))
+                .thenReturn(List.of(review));
+
+        assertSame(review, reviewService.saveReview(eventId, new ReviewRequest(4, null), request));
+        verify(ratingAggregates).applyDelta(eventId, 0, 4);
+    }
+
+    @Test
+    void changedRatingMovesBetweenBuckets() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT rating"), eq(Integer.class), eq(userId), eq(eventId)))
+                .thenReturn(List.of(2));
+        stubUpdate(5);
+
+        reviewService.saveReview(eventId, new ReviewRequest(5, "better second time"), request);
+
+        verify(ratingAggregates).applyDelta(eventId, 2, 5);
+    }
+
+    @Test
+    void editingOnlyTheCommentLeavesTheSummaryAlone() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT rating"), eq(Integer.class), eq(userId), eq(eventId)))
+                .thenReturn(List.of(3));
+        stubUpdate(3);
+
+        reviewService.saveReview(eventId, new ReviewRequest(3, "typo fixed"), request);
+
+        verify(ratingAggregates, never()).applyDelta(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void losingTheInsertRaceUpdatesTheConcurrentReview() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT rating"), eq(Integer.class), eq(userId), eq(eventId)))
+                .thenReturn(List.of(), List.of(2));
+        when(jdbcTemplate.query(startsWith("INSERT"), any(RowMapper.class), eq(userId), eq(eventId), eq(4), isNull()))
+                .thenReturn(List.of());
+        stubUpdate(4);
+
+        reviewService.saveReview(eventId, new ReviewRequest(4, null), request);
+
+        verify(ratingAggregates).applyDelta(eventId, 2, 4);
+        verify(ratingAggregates, never()).applyDelta(eventId, 0, 4);
+    }
+
+    @Test
+    void deletingAReviewRemovesItsRating() {
+        when(jdbcTemplate.queryForList(startsWith("DELETE"), eq(Integer.class), eq(userId), eq(eventId)))
+                .thenReturn(List.of(4));
+
+        reviewService.deleteReview(eventId, request);
+
+        verify(ratingAggregates).applyDelta(eventId, 4, 0);
+    }
+
+    @Test
+    void deletingAMissingReviewChangesNothing() {
+        when(jdbcTemplate.queryForList(startsWith("DELETE"), eq(Integer.class), eq(userId), eq(eventId)))
+                .thenReturn(List.of());
+
+        assertThrows(ReviewNotFoundException.class, () -> reviewService.deleteReview(eventId, request));
+        verify(ratingAggregates, never()).applyDelta(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void outOfRangeRatingsAreRejected() {
+        assertThrows(InvalidReviewException.class,
+                () -> reviewService.saveReview(eventId, new ReviewRequest(6, null), request));
+        verify(ratingAggregates, never()).applyDelta(any(), anyInt(), anyInt());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubUpdate(int rating) {
+        when(jdbcTemplate.queryForObject(startsWith("UPDATE"), any(RowMapper.class), eq(rating), any(), eq(userId),
+                eq(eventId))).thenReturn(review);
+    }
+}
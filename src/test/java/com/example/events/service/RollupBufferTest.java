@@ -0,0 +1,59 @@
+package com.example.events.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollupBufferTest {
+
+    @Test
+    void keyRoundTripsEveryPart() {
+        long key = RollupBuffer.key(RollupBuffer.categoryScope, 2, Integer.MAX_VALUE, 29_500_000L);
+
+        assertEquals(RollupBuffer.categoryScope, RollupBuffer.scope(key));
+        assertEquals(2, RollupBuffer.granularity(key));
+        assertEquals(Integer.MAX_VALUE, RollupBuffer.id(key));
+        assertEquals(29_500_000L, RollupBuffer.bucket(key));
+    }
+
+    @Test
+    void accumulatesDeltasAcrossGrowth() {
+        RollupBuffer buffer = new RollupBuffer(4);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long key = RollupBuffer.key(RollupBuffer.eventScope, i % 3, i % 997, 29_000_000L + i % 211);
+            buffer.add(key, new long[]{1, i, 0, 0, 0, 0});
+            expected.merge(key, (long) i, Long::sum);
+        }
+
+        assertEquals(expected.size(), buffer.size());
+        long[] row = new long[RollupBuffer.fields];
+        expected.forEach((key, tickets) -> {
+            assertTrue(buffer.get(key, row));
+            assertEquals(tickets, row[RollupBuffer.tickets]);
+        });
+        assertFalse(buffer.get(RollupBuffer.key(RollupBuffer.categoryScope, 0, 1, 1), row));
+    }
+
+    @Test
+    void addAllMergesRows() {
+        long key = RollupBuffer.key(RollupBuffer.eventScope, 1, 7, 490_000);
+        RollupBuffer first = new RollupBuffer();
+        RollupBuffer second = new RollupBuffer();
+        first.add(key, new long[]{1, 2, 5000, 0, 0, 0});
+        second.add(key, new long[]{0, 0, 0, 0, 2, 5000});
+
+        first.addAll(second);
+
+        long[] row = new long[RollupBuffer.fields];
+        assertTrue(first.get(key, row));
+        assertArrayEquals(new long[]{1, 2, 5000, 0, 2, 5000}, row);
+        assertEquals(1, first.size());
+    }
+}
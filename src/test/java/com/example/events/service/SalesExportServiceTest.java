@@ -0,0 +1,133 @@
+package com.example.events.service;
+
+import com.example.events.exception.ServiceBusyException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class SalesExportServiceTest {
+
+    private static final int tickets = 1_234;
+    private static final int archived = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private DriverManagerDataSource dataSource;
+    private SalesExportService service;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:export-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY, email VARCHAR(255), name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE events (id INTEGER PRIMARY KEY, title VARCHAR(255), organizer VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE tickets (id VARCHAR(50) PRIMARY KEY, user_id UUID NOT NULL, " +
+                "event_id INTEGER NOT NULL, quantity INTEGER NOT NULL, price_per_ticket DECIMAL(10, 2) NOT NULL, " +
+                "total_price DECIMAL(10, 2) NOT NULL, status VARCHAR(20), purchase_date TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE tickets_archive AS SELECT * FROM tickets WHERE 1 = 0");
+
+        UUID plain = UUID.randomUUID();
+        UUID awkward = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users VALUES (?, 'plain@example.com', 'Plain')", plain);
+        jdbcTemplate.update("INSERT INTO users VALUES (?, 'odd@example.com', ?)", awkward, "=HYPERLINK(\"x\"), \"Jr\"");
+        jdbcTemplate.update("INSERT INTO events VALUES (1, 'Rock, live', 'Acme')");
+        jdbcTemplate.update("INSERT INTO events VALUES (2, 'Other', 'Someone else')");
+
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp purchased = Timestamp.valueOf(LocalDateTime.of(2026, 5, 1, 12, 30));
+        for (int i = 0; i < tickets; i++) {
+            rows.add(new Object[]{"t-" + i, i == 0 ? awkward : plain, 1, 2, "10.50", "21.00", "confirmed", purchased});
+        }
+        rows.add(new Object[]{"other", plain, 2, 1, "5.00", "5.00", "confirmed", purchased});
+        jdbcTemplate.batchUpdate("INSERT INTO tickets VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        for (int i = 0; i < archived; i++) {
+            jdbcTemplate.update("INSERT INTO tickets_archive VALUES (?, ?, 1, 2, 10.50, 21.00, 'confirmed', ?)",
+                    "a-" + i, plain, purchased);
+        }
+
+        service = new SalesExportService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                mock(EventCatalogueService.class), objectMapper, 1, 100, 60, 60_000);
+    }
+
+    @Test
+    void csvIsGzippedAndQuoted() throws IOException {
+        List<String> lines = run(service.exportEvent(1, false)).lines().toList();
+
+        assertEquals(tickets + archived + 1, lines.size());
+        assertEquals("ticket_id,event_id,event_title,user_email,user_name,quantity,price_per_ticket,total_price," +
+                "status,purchase_date", lines.get(0));
+        String awkward = lines.stream().filter(line -> line.startsWith("t-0,")).findFirst().orElseThrow();
+        assertEquals("t-0,1,\"Rock, live\",odd@example.com,\"'=HYPERLINK(\"\"x\"\"), \"\"Jr\"\"\",2,10.50,21.00," +
+                "confirmed,2026-05-01T12:30", awkward);
+        assertEquals(archived, lines.stream().filter(line -> line.startsWith("a-")).count());
+        assertEquals(tickets + archived, service.getExportedRowCount());
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws IOException {
+        List<String> lines = run(service.exportOrganizer("Acme", true)).lines().toList();
+
+        assertEquals(tickets + archived, lines.size());
+        for (String line : lines) {
+            JsonNode row = objectMapper.readTree(line);
+            assertEquals(1, row.get("event_id").asInt());
+            assertEquals(21.0, row.get("total_price").asDouble());
+            assertTrue(line.contains("\"total_price\":21.00"));
+        }
+    }
+
+    @Test
+    void concurrentExportsAreCappedUntilOneFinishes() throws IOException {
+        StreamingResponseBody first = service.exportEvent(1, false);
+
+        assertThrows(ServiceBusyException.class, () -> service.exportEvent(1, false));
+        assertEquals(1, service.getActiveExportCount());
+
+        run(first);
+        run(service.exportEvent(2, false));
+        assertEquals(0, service.getActiveExportCount());
+    }
+
+    @Test
+    void permitOfABodyThatNeverStartedIsTakenBack() throws IOException {
+        service = new SalesExportService(new JdbcTemplate(dataSource), new DataSourceTransactionManager(dataSource),
+                mock(EventCatalogueService.class), objectMapper, 1, 100, 60, 0);
+        StreamingResponseBody neverRun = service.exportEvent(1, false);
+
+        StreamingResponseBody next = service.exportEvent(2, false);
+        assertEquals(1, service.getAbandonedCount());
+        assertThrows(ServiceBusyException.class, () -> neverRun.writeTo(new ByteArrayOutputStream()));
+
+        run(next);
+        assertEquals(0, service.getActiveExportCount());
+    }
+
+    private static String run(StreamingResponseBody body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
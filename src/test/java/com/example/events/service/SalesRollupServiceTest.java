@@ -0,0 +1,207 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.SalesBucketDTO;
+import com.example.events.DTO.SalesRebuildResponse;
+import com.example.events.DTO.SalesReportDTO;
+import com.example.events.model.EventCategory;
+import com.example.events.model.SalesGranularity;
+import com.example.events.model.TicketStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SalesRollupServiceTest {
+
+    private static final LocalDateTime saleTime = LocalDateTime.of(2026, 3, 1, 10, 15);
+    private static final LocalDateTime dayStart = saleTime.toLocalDate().atStartOfDay();
+
+    private RollupStore jdbcTemplate;
+    private RedisLock redisLock;
+    private SalesRollupService rollups;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:rollups-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new RollupStore(dataSource);
+        jdbcTemplate.execute("CREATE DOMAIN ticket_status_type AS VARCHAR(20)");
+        jdbcTemplate.execute("CREATE DOMAIN event_category_type AS VARCHAR(20)");
+        jdbcTemplate.execute("CREATE TABLE events (id INTEGER PRIMARY KEY)");
+        for (String table : new String[]{"tickets", "tickets_archive"}) {
+            jdbcTemplate.execute("CREATE TABLE " + table + " (id VARCHAR(50) PRIMARY KEY, event_id INTEGER NOT NULL, " +
+                    "quantity INTEGER NOT NULL, total_price DECIMAL(10, 2) NOT NULL, status ticket_status_type, " +
+                    "purchase_date TIMESTAMP NOT NULL, updated_at TIMESTAMP)");
+        }
+        String counters = "orders BIGINT NOT NULL DEFAULT 0, tickets BIGINT NOT NULL DEFAULT 0, " +
+                "gross_cents BIGINT NOT NULL DEFAULT 0, cancelled_tickets BIGINT NOT NULL DEFAULT 0, " +
+                "refunded_tickets BIGINT NOT NULL DEFAULT 0, refunded_cents BIGINT NOT NULL DEFAULT 0";
+        jdbcTemplate.execute("CREATE TABLE event_sales_rollups (event_id INTEGER NOT NULL, granularity CHAR(1) NOT NULL, " +
+                "bucket_start TIMESTAMP NOT NULL, " + counters + ", PRIMARY KEY (event_id, granularity, bucket_start))");
+        jdbcTemplate.execute("CREATE TABLE category_sales_rollups (category event_category_type NOT NULL, " +
+                "granularity CHAR(1) NOT NULL, bucket_start TIMESTAMP NOT NULL, " + counters + ", " +
+                "PRIMARY KEY (category, granularity, bucket_start))");
+        jdbcTemplate.update("INSERT INTO events (id) VALUES (1), (2)");
+
+        EventCatalogueService catalogue = mock(EventCatalogueService.class);
+        for (int id = 1; id <= 2; id++) {
+            EventDTO event = EventDTO.builder().id(id).category(EventCategory.Music).build();
+            when(catalogue.getEvent(id)).thenReturn(event);
+            when(catalogue.findCachedEvent(id)).thenReturn(event);
+        }
+        redisLock = mock(RedisLock.class);
+        rollups = new SalesRollupService(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                catalogue, redisLock, 2, 7);
+    }
+
+    @Test
+    void aFailedFlushKeepsItsDeltasForTheNextOne() {
+        rollups.record(1, TicketStatus.confirmed, 2, new BigDecimal("70.00"), saleTime);
+        int buckets = rollups.getPendingBucketCount();
+
+        jdbcTemplate.down = true;
+        rollups.flush();
+        assertEquals(buckets, rollups.getPendingBucketCount());
+        assertEquals(0, stored());
+
+        // a sale recorded while the database was away lands in the same buckets
+        rollups.record(1, TicketStatus.confirmed, 1, new BigDecimal("35.00"), saleTime.plusSeconds(20));
+        jdbcTemplate.down = false;
+        rollups.flush();
+
+        assertEquals(0, rollups.getPendingBucketCount());
+        SalesBucketDTO totals = eventDay(1).getTotals();
+        assertEquals(2, totals.getOrders());
+        assertEquals(3, totals.getTickets());
+        assertEquals(new BigDecimal("105.00"), totals.getGrossRevenue());
+    }
+
+    @Test
+    void reportsAddThisNodesUnflushedDeltasToTheStoredBuckets() {
+        rollups.record(1, TicketStatus.confirmed, 2, new BigDecimal("70.00"), saleTime);
+        rollups.flush();
+        // another node's flush went into the same bucket
+        rollups.record(1, TicketStatus.confirmed, 4, new BigDecimal("140.00"), saleTime);
+        rollups.flush();
+
+        rollups.record(1, TicketStatus.confirmed, 1, new BigDecimal("35.00"), saleTime.plusHours(2));
+        rollups.record(1, TicketStatus.refunded, 2, new BigDecimal("70.00"), saleTime.plusHours(2));
+
+        SalesReportDTO hourly = rollups.getEventReport(1, SalesGranularity.hour, dayStart, dayStart.plusDays(1));
+        assertEquals(List.of(saleTime.withMinute(0), saleTime.withMinute(0).plusHours(2)),
+                hourly.getBuckets().stream().map(SalesBucketDTO::getBucketStart).toList());
+        assertEquals(6, hourly.getBuckets().get(0).getTickets());
+        assertEquals(1, hourly.getBuckets().get(1).getTickets());
+        assertEquals(2, hourly.getBuckets().get(1).getRefundedTickets());
+        assertEquals(new BigDecimal("175.00"), hourly.getTotals().getNetRevenue());
+
+        SalesReportDTO category = rollups.getCategoryReport(EventCategory.Music, SalesGranularity.day, dayStart,
+                dayStart.plusDays(1));
+        assertEquals(3, category.getTotals().getOrders());
+        assertEquals(new BigDecimal("245.00"), category.getTotals().getGrossRevenue());
+    }
+
+    @Test
+    void rebuildReplaysLiveAndArchivedTicketsInPlaceOfTheStoredBuckets() {
+        ticket("tickets", 1, 2, "70.00", TicketStatus.confirmed, saleTime, null);
+        ticket("tickets", 1, 1, "35.00", TicketStatus.refunded, saleTime, saleTime.plusHours(3));
+        // an expired hold, or a queued purchase postgres had no stock for
+        ticket("tickets", 1, 4, "140.00", TicketStatus.cancelled, saleTime, saleTime.plusMinutes(10));
+        ticket("tickets", 1, 3, "105.00", TicketStatus.pending, saleTime, null);
+        ticket("tickets_archive", 2, 5, "250.00", TicketStatus.confirmed, saleTime, saleTime);
+        // drifted buckets the rebuild throws away
+        rollups.record(1, TicketStatus.confirmed, 50, new BigDecimal("1750.00"), saleTime);
+        rollups.flush();
+        when(redisLock.tryAcquire(eq("sales:rebuild"), any(Duration.class))).thenReturn("lease");
+
+        SalesRebuildResponse response = rollups.rebuild();
+
+        assertEquals(5, response.getTicketsReplayed());
+        SalesBucketDTO first = eventDay(1).getTotals();
+        assertEquals(2, first.getOrders());
+        assertEquals(3, first.getTickets());
+        assertEquals(new BigDecimal("105.00"), first.getGrossRevenue());
+        assertEquals(4, first.getCancelledTickets());
+        assertEquals(1, first.getRefundedTickets());
+        assertEquals(new BigDecimal("70.00"), first.getNetRevenue());
+        assertEquals(5, eventDay(2).getTotals().getTickets());
+        assertEquals(List.of(saleTime.withMinute(0), saleTime.withMinute(0).plusHours(3)),
+                rollups.getEventReport(1, SalesGranularity.hour, dayStart, dayStart.plusDays(1)).getBuckets().stream()
+                        .filter(bucket -> bucket.getOrders() > 0 || bucket.getRefundedTickets() > 0)
+                        .map(SalesBucketDTO::getBucketStart).toList());
+        assertEquals(8, rollups.getCategoryReport(EventCategory.Music, SalesGranularity.day, dayStart,
+                dayStart.plusDays(1)).getTotals().getTickets());
+        verify(redisLock).release("sales:rebuild", "lease");
+    }
+
+    private SalesReportDTO eventDay(int eventId) {
+        return rollups.getEventReport(eventId, SalesGranularity.day, dayStart, dayStart.plusDays(1));
+    }
+
+    private int stored() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM event_sales_rollups", Integer.class);
+    }
+
+    private void ticket(String table, int eventId, int quantity, String total, TicketStatus status,
+                        LocalDateTime purchased, LocalDateTime updated) {
+        jdbcTemplate.update("INSERT INTO " + table + " (id, event_id, quantity, total_price, status, purchase_date, " +
+                        "updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)", UUID.randomUUID().toString(), eventId, quantity,
+                new BigDecimal(total), status.name(), Timestamp.valueOf(purchased),
+                updated != null ? Timestamp.valueOf(updated) : null);
+    }
+
+    // H2 has no ON CONFLICT ... DO UPDATE, so the flush's upsert is applied here as the add-or-insert it stands for;
+    // it can also stand in for a database that is down
+    private static final class RollupStore extends JdbcTemplate {
+        private volatile boolean down;
+
+        RollupStore(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            if (down) {
+                throw new DataAccessResourceFailureException("Connection refused");
+            }
+            int conflict = sql.indexOf(" ON CONFLICT");
+            if (conflict < 0) {
+                return super.batchUpdate(sql, batchArgs);
+            }
+            String table = sql.contains("event_sales_rollups") ? "event_sales_rollups" : "category_sales_rollups";
+            String scope = table.equals("event_sales_rollups") ? "event_id" : "category";
+            int[] counts = new int[batchArgs.size()];
+            for (int i = 0; i < batchArgs.size(); i++) {
+                Object[] args = batchArgs.get(i);
+                counts[i] = update("UPDATE " + table + " SET orders = orders + ?, tickets = tickets + ?, " +
+                                "gross_cents = gross_cents + ?, cancelled_tickets = cancelled_tickets + ?, " +
+                                "refunded_tickets = refunded_tickets + ?, refunded_cents = refunded_cents + ? " +
+                                "WHERE " + scope + " = ? AND granularity = ? AND bucket_start = ?",
+                        args[3], args[4], args[5], args[6], args[7], args[8], args[0], args[1], args[2]);
+                if (counts[i] == 0) {
+                    counts[i] = update(sql.substring(0, conflict), args);
+                }
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.events.service;
+
+import com.example.events.DTO.TicketHistoryDTO;
+import com.example.events.RedisConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import redis.embedded.RedisServer;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+class TicketArchiveSweeperTest {
+
+    private static final int port = 6397;
+    private static final String ticketColumns = "id, user_id, event_id, quantity, price_per_ticket, total_price, status, " +
+            "purchase_date, hold_expires_at, qr_code_url, email_sent, created_at, updated_at";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+
+    private DataSource dataSource;
+    private MoveStore jdbcTemplate;
+    private RedisLock redisLock;
+    private WaitingRoomService waitingRoomService;
+    private TicketPurchaseBatcher ticketPurchaseBatcher;
+    private TicketReconciliationService ticketReconciliationService;
+    private TicketArchiveSweeper sweeper;
+    private UUID buyer;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:archive-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new MoveStore(dataSource);
+        jdbcTemplate.execute("CREATE DOMAIN ticket_status_type AS VARCHAR(20)");
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY, email VARCHAR(255) NOT NULL, name VARCHAR(255) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE events (id INTEGER PRIMARY KEY, title VARCHAR(255) NOT NULL, date DATE NOT NULL, " +
+                "start_time TIME NOT NULL, end_time TIME NOT NULL, organizer VARCHAR(255), is_finished BOOLEAN DEFAULT FALSE)");
+        String columns = "id VARCHAR(50) PRIMARY KEY, user_id UUID NOT NULL, event_id INTEGER NOT NULL, " +
+                "quantity INTEGER NOT NULL, price_per_ticket DECIMAL(10, 2) NOT NULL, total_price DECIMAL(10, 2) NOT NULL, " +
+                "status ticket_status_type, purchase_date TIMESTAMP NOT NULL, hold_expires_at TIMESTAMP, " +
+                "qr_code_url VARCHAR(255), email_sent BOOLEAN, created_at TIMESTAMP, updated_at TIMESTAMP";
+        jdbcTemplate.execute("CREATE TABLE tickets (" + columns + ")");
+        jdbcTemplate.execute("CREATE TABLE tickets_archive (" + columns + ", archived_at TIMESTAMP NOT NULL)");
+        buyer = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, name) VALUES (?, 'alice@example.com', 'Alice')", buyer);
+
+        redisLock = spy(new RedisLock(redisTemplate));
+        waitingRoomService = mock(WaitingRoomService.class);
+        ticketPurchaseBatcher = mock(TicketPurchaseBatcher.class);
+        ticketReconciliationService = mock(TicketReconciliationService.class);
+        sweeper = new TicketArchiveSweeper(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                redisTemplate, redisLock, waitingRoomService, ticketPurchaseBatcher, ticketReconciliationService,
+                2, 100, 30, 60_000, 100);
+    }
+
+    @Test
+    void pastEventsAreFinishedAndOnlyLongFinishedOnesArchived() {
+        event(1, LocalDate.now().minusDays(60), true);
+        event(2, LocalDate.now().minusDays(40), false);
+        event(3, LocalDate.now().minusDays(1), false);
+        event(4, LocalDate.now().plusDays(1), false);
+        String first = tickets(1, 3).get(0);
+        tickets(2, 2);
+        tickets(3, 2);
+        tickets(4, 1);
+        jdbcTemplate.update("UPDATE tickets SET qr_code_url = '/api/tickets/' || id || '/qr', email_sent = TRUE " +
+                "WHERE id = ?", first);
+        String live = row("tickets", first);
+
+        sweeper.sweep();
+
+        assertEquals(List.of(1, 2, 3), jdbcTemplate.queryForList("SELECT id FROM events WHERE is_finished ORDER BY id",
+                Integer.class));
+        assertEquals(2, sweeper.getFinishedEventCount());
+        assertEquals(5, sweeper.getArchivedTicketCount());
+        assertEquals(List.of(3, 4), jdbcTemplate.queryForList("SELECT DISTINCT event_id FROM tickets ORDER BY event_id",
+                Integer.class));
+        assertEquals(live, row("tickets_archive", first));
+        assertEquals(0, count("SELECT COUNT(*) FROM tickets_archive WHERE archived_at IS NULL"));
+        // a finished pass leaves no cursor behind, and the lease is given back
+        assertNull(redisTemplate.opsForValue().get(TicketArchiveSweeper.cursorKey));
+        assertNotNull(new RedisLock(redisTemplate).tryAcquire(TicketArchiveSweeper.lockName, Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void anInterruptedRunResumesAfterTheLastFullyArchivedEvent() {
+        for (int eventId = 1; eventId <= 3; eventId++) {
+            event(eventId, LocalDate.now().minusDays(60), true);
+            tickets(eventId, 3);
+        }
+        // an on-sale opens while the run is halfway through event 2: one pause after finishing events, two for
+        // event 1, and the fourth after event 2's first chunk
+        AtomicInteger pauses = new AtomicInteger();
+        when(waitingRoomService.getOpenRoomCount()).thenAnswer(invocation -> pauses.incrementAndGet() >= 4 ? 1 : 0);
+
+        sweeper.sweep();
+
+        assertEquals(1, sweeper.getYieldedRunCount());
+        assertEquals(5, count("SELECT COUNT(*) FROM tickets_archive"));
+        assertEquals("1", redisTemplate.opsForValue().get(TicketArchiveSweeper.cursorKey));
+
+        // a ticket that turns up under event 1 again, as one locked by another transaction during its move would,
+        // shows the resumed run starts after the cursor
+        String straggler = tickets(1, 1).get(0);
+        when(waitingRoomService.getOpenRoomCount()).thenReturn(0);
+        sweeper.sweep();
+
+        assertEquals(List.of(straggler), jdbcTemplate.queryForList("SELECT id FROM tickets", String.class));
+        assertEquals(9, count("SELECT COUNT(*) FROM tickets_archive"));
+        assertNull(redisTemplate.opsForValue().get(TicketArchiveSweeper.cursorKey));
+
+        // the next pass starts over and picks it up
+        sweeper.sweep();
+        assertEquals(0, count("SELECT COUNT(*) FROM tickets"));
+        assertEquals(10, sweeper.getArchivedTicketCount());
+    }
+
+    @Test
+    void aRunStopsAsSoonAsAnotherNodeHasTheLease() {
+        event(1, LocalDate.now().minusDays(60), true);
+        tickets(1, 3);
+        RedisLock otherNode = new RedisLock(redisTemplate);
+        String held = otherNode.tryAcquire(TicketArchiveSweeper.lockName, Duration.ofSeconds(60));
+
+        sweeper.sweep();
+        assertEquals(0, count("SELECT COUNT(*) FROM tickets_archive"));
+
+        otherNode.release(TicketArchiveSweeper.lockName, held);
+        // the lease runs out after the first chunk and another node takes it over
+        AtomicInteger extensions = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (extensions.incrementAndGet() == 2) {
+                redisTemplate.delete("lock:" + TicketArchiveSweeper.lockName);
+                otherNode.tryAcquire(TicketArchiveSweeper.lockName, Duration.ofSeconds(60));
+            }
+            return invocation.callRealMethod();
+        }).when(redisLock).extend(anyString(), anyString(), any(Duration.class));
+
+        sweeper.sweep();
+
+        assertEquals(2, count("SELECT COUNT(*) FROM tickets_archive"));
+        assertEquals(0, sweeper.getYieldedRunCount());
+        assertNull(redisTemplate.opsForValue().get(TicketArchiveSweeper.cursorKey));
+        // the release does not take the lease away from its new owner
+        assertNull(new RedisLock(redisTemplate).tryAcquire(TicketArchiveSweeper.lockName, Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void aSweepYieldsWhileAnOnSaleIsInProgress() {
+        event(1, LocalDate.now().minusDays(60), true);
+        tickets(1, 1);
+
+        when(waitingRoomService.getOpenRoomCount()).thenReturn(1);
+        sweeper.sweep();
+        when(waitingRoomService.getOpenRoomCount()).thenReturn(0);
+        when(ticketPurchaseBatcher.getPendingPurchaseCount()).thenReturn(1);
+        sweeper.sweep();
+        when(ticketPurchaseBatcher.getPendingPurchaseCount()).thenReturn(0);
+        when(ticketReconciliationService.getBacklog()).thenReturn(101L);
+        sweeper.sweep();
+
+        assertEquals(3, sweeper.getYieldedRunCount());
+        assertEquals(0, count("SELECT COUNT(*) FROM tickets_archive"));
+
+        when(ticketReconciliationService.getBacklog()).thenReturn(100L);
+        sweeper.sweep();
+        assertEquals(1, count("SELECT COUNT(*) FROM tickets_archive"));
+        assertEquals(3, sweeper.getYieldedRunCount());
+    }
+
+    @Test
+    void archivedTicketsStillShowUpInHistoryAndExports() throws Exception {
+        event(1, LocalDate.now().minusDays(60), true);
+        String ticket = tickets(1, 1).get(0);
+        sweeper.sweep();
+        assertEquals(0, count("SELECT COUNT(*) FROM tickets"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("userId", buyer.toString());
+        assertEquals(List.of(ticket), new TicketHistoryService(jdbcTemplate).getHistory(null, 10, request)
+                .getTickets().stream().map(TicketHistoryDTO::getId).toList());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SalesExportService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                mock(EventCatalogueService.class), new ObjectMapper(), 1, 100, 60, 60_000)
+                .exportEvent(1, false).writeTo(out);
+        List<String> lines;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).startsWith(ticket + ",1,Event 1,alice@example.com,Alice,2,35.00,70.00,confirmed,"));
+    }
+
+    private void event(int id, LocalDate date, boolean finished) {
+        jdbcTemplate.update("INSERT INTO events (id, title, date, start_time, end_time, organizer, is_finished) " +
+                "VALUES (?, ?, ?, TIME '19:00:00', TIME '22:00:00', 'Acme', ?)", id, "Event " + id, Date.valueOf(date), finished);
+    }
+
+    private List<String> tickets(int eventId, int count) {
+        List<String> ids = new ArrayList<>();
+        Timestamp purchased = Timestamp.valueOf(LocalDateTime.now().minusDays(90));
+        for (int i = 0; i < count; i++) {
+            String id = UUID.randomUUID().toString();
+            jdbcTemplate.update("INSERT INTO tickets (id, user_id, event_id, quantity, price_per_ticket, total_price, " +
+                    "status, purchase_date, email_sent, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, 2, 35.00, 70.00, 'confirmed', ?, FALSE, ?, ?)", id, buyer, eventId, purchased,
+                    purchased, purchased);
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private String row(String table, String ticketId) {
+        return jdbcTemplate.queryForMap("SELECT " + ticketColumns + " FROM " + table + " WHERE id = ?", ticketId).toString();
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    // H2 cannot feed a DELETE ... RETURNING into a CTE, so the move runs as INSERT ... SELECT FROM OLD TABLE (DELETE),
+    // H2's form of the same single statement
+    private static final class MoveStore extends JdbcTemplate {
+
+        MoveStore(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (!sql.startsWith("WITH moved AS (")) {
+                return super.update(sql, args);
+            }
+            int returning = sql.indexOf(" RETURNING ");
+            int insert = sql.indexOf(") INSERT ");
+            String delete = sql.substring("WITH moved AS (".length(), returning);
+            String insertSql = sql.substring(insert + 2).replace("FROM moved", "FROM OLD TABLE (" + delete + ")");
+            // the archived_at parameter now comes before the delete's
+            Object[] moved = new Object[args.length];
+            moved[0] = args[args.length - 1];
+            System.arraycopy(args, 0, moved, 1, args.length - 1);
+            return super.update(insertSql, moved);
+        }
+    }
+}
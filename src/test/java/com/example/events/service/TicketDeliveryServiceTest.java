@@ -0,0 +1,241 @@
+package com.example.events.service;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import javax.sql.DataSource;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TicketDeliveryServiceTest {
+
+    private static final long leaseMillis = 60_000;
+    private static final long baseBackoffMillis = 10_000;
+
+    @TempDir
+    Path qrDirectory;
+
+    private OutboxStore jdbcTemplate;
+    private TicketDeliveryService delivery;
+    private UUID buyer;
+    private final List<MailTransport.MailMessage> sent = new ArrayList<>();
+    // set by each test to decide how the mail server answers
+    private Function<List<MailTransport.MailMessage>, MailTransport.SendResult> mailServer = TicketDeliveryServiceTest::acceptAll;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:delivery-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new OutboxStore(dataSource);
+        jdbcTemplate.execute("CREATE DOMAIN ticket_status_type AS VARCHAR(20)");
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY, email VARCHAR(255) NOT NULL, name VARCHAR(255) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE events (id INTEGER PRIMARY KEY, title VARCHAR(255) NOT NULL, date DATE NOT NULL, " +
+                "start_time TIME NOT NULL, location VARCHAR(255) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE tickets (id VARCHAR(50) PRIMARY KEY, user_id UUID NOT NULL REFERENCES users(id), " +
+                "event_id INTEGER NOT NULL REFERENCES events(id), quantity INTEGER NOT NULL, " +
+                "total_price DECIMAL(10, 2) NOT NULL, status ticket_status_type, qr_code_url VARCHAR(500), " +
+                "email_sent BOOLEAN DEFAULT FALSE)");
+        // no foreign key, so an entry can outlive its ticket the way one can while a delete races the claim
+        jdbcTemplate.execute("CREATE TABLE ticket_delivery_outbox (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "ticket_id VARCHAR(50) NOT NULL, attempts INTEGER NOT NULL DEFAULT 0, " +
+                "next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, last_error VARCHAR(500), " +
+                "dead_lettered_at TIMESTAMP, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        buyer = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, name) VALUES (?, 'alice@example.com', 'Alice')", buyer);
+        jdbcTemplate.update("INSERT INTO events (id, title, date, start_time, location) " +
+                "VALUES (1, 'Jazz Night', DATE '2026-11-20', TIME '20:00:00', 'Blue Hall')");
+
+        MailTransport transport = messages -> {
+            sent.addAll(messages);
+            return mailServer.apply(messages);
+        };
+        delivery = new TicketDeliveryService(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                transport, qrDirectory.toString(), 10, 1, 2, leaseMillis, baseBackoffMillis, 600_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        delivery.shutdown();
+    }
+
+    @Test
+    void qrCodesDecodeBackToTheTicketPayload() throws Exception {
+        String payload = "TICKET:7f9c2e1a-5b3d-4c8e-9a10-2b6f4d8e0c11:42:3";
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(TicketDeliveryService.qrPng(payload)));
+
+        assertEquals(300, image.getWidth());
+        assertEquals(payload, new QRCodeReader().decode(
+                new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)))).getText());
+    }
+
+    @Test
+    void aDeliveredTicketGetsItsQrCodeAndMailAndLeavesTheOutbox() {
+        String ticket = ticket("confirmed");
+
+        delivery.poll();
+
+        assertEquals(1, sent.size());
+        assertEquals("alice@example.com", sent.get(0).to());
+        assertTrue(sent.get(0).body().contains("Jazz Night"));
+        assertTrue(Files.exists(qrDirectory.resolve(ticket + ".png")));
+        assertEquals("/api/tickets/" + ticket + "/qr", column(ticket, "qr_code_url"));
+        assertEquals("TRUE", column(ticket, "email_sent"));
+        assertEquals(0, count("SELECT COUNT(*) FROM ticket_delivery_outbox"));
+        assertEquals(1, delivery.getDeliveredCount());
+    }
+
+    @Test
+    void aClaimHoldsItsRowsForTheLeaseWhenTheNodeGoesDownMidBatch() {
+        ticket("confirmed");
+        // the node dies after claiming, before it can record any outcome
+        mailServer = messages -> {
+            throw new IllegalStateException("node stopped");
+        };
+        LocalDateTime claimedAt = LocalDateTime.now();
+
+        delivery.poll();
+
+        assertEquals(1, count("SELECT attempts FROM ticket_delivery_outbox"));
+        assertFalse(nextAttempt().isBefore(claimedAt.plusNanos(leaseMillis * 1_000_000)));
+        // nobody else can claim it before the lease runs out
+        delivery.poll();
+        assertEquals(1, sent.size());
+        assertEquals(1, delivery.getBacklog());
+    }
+
+    @Test
+    void aFailedSendIsRetriedAfterABackoffThenDeadLetteredOnceAttemptsRunOut() {
+        String ticket = ticket("confirmed");
+        mailServer = messages -> new MailTransport.SendResult(Set.of(), Map.of());
+        LocalDateTime failedAt = LocalDateTime.now();
+
+        delivery.poll();
+
+        assertEquals(1, delivery.getRetryCount());
+        assertFalse(nextAttempt().isBefore(failedAt.plusNanos(baseBackoffMillis * 1_000_000)));
+        assertTrue(nextAttempt().isBefore(failedAt.plusNanos(leaseMillis * 1_000_000)));
+        assertEquals("Mail delivery failed for alice@example.com",
+                jdbcTemplate.queryForObject("SELECT last_error FROM ticket_delivery_outbox", String.class));
+        // the QR code is kept, so the retry only has the mail left to send
+        assertNotNull(column(ticket, "qr_code_url"));
+        assertEquals("FALSE", column(ticket, "email_sent"));
+        assertNull(jdbcTemplate.queryForObject("SELECT dead_lettered_at FROM ticket_delivery_outbox", Timestamp.class));
+
+        makeDue();
+        delivery.poll();
+
+        assertEquals(2, sent.size());
+        assertEquals(1, delivery.getExhaustedCount());
+        assertEquals(1, delivery.getDeadLetteredCount());
+        assertEquals(0, delivery.getBacklog());
+        makeDue();
+        delivery.poll();
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void aRejectedRecipientIsDeadLetteredOnTheFirstAttempt() {
+        String ticket = ticket("confirmed");
+        mailServer = messages -> new MailTransport.SendResult(Set.of(), Map.of(ticket, "550 mailbox unavailable"));
+
+        delivery.poll();
+
+        assertEquals(0, delivery.getRetryCount());
+        assertEquals(1, delivery.getDeadLetteredCount());
+        assertEquals("550 mailbox unavailable",
+                jdbcTemplate.queryForObject("SELECT last_error FROM ticket_delivery_outbox", String.class));
+    }
+
+    @Test
+    void entriesForCancelledOrMissingTicketsAreDroppedWithoutSendingAnything() {
+        String cancelled = ticket("cancelled");
+        jdbcTemplate.update("INSERT INTO ticket_delivery_outbox (ticket_id) VALUES (?)", UUID.randomUUID().toString());
+
+        delivery.poll();
+
+        assertTrue(sent.isEmpty());
+        assertFalse(Files.exists(qrDirectory.resolve(cancelled + ".png")));
+        assertNull(column(cancelled, "qr_code_url"));
+        assertEquals(0, count("SELECT COUNT(*) FROM ticket_delivery_outbox"));
+        assertEquals(2, delivery.getDeliveredCount());
+    }
+
+    private String ticket(String status) {
+        String id = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO tickets (id, user_id, event_id, quantity, total_price, status) " +
+                "VALUES (?, ?, 1, 2, 70.00, ?)", id, buyer, status);
+        jdbcTemplate.update(TicketDeliveryService.enqueueSql, id);
+        return id;
+    }
+
+    private static MailTransport.SendResult acceptAll(List<MailTransport.MailMessage> messages) {
+        return new MailTransport.SendResult(
+                Set.copyOf(messages.stream().map(MailTransport.MailMessage::id).toList()), Map.of());
+    }
+
+    private void makeDue() {
+        jdbcTemplate.update("UPDATE ticket_delivery_outbox SET next_attempt_at = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)));
+    }
+
+    private LocalDateTime nextAttempt() {
+        return jdbcTemplate.queryForObject("SELECT next_attempt_at FROM ticket_delivery_outbox", Timestamp.class)
+                .toLocalDateTime();
+    }
+
+    private String column(String ticketId, String column) {
+        return jdbcTemplate.queryForObject("SELECT CAST(" + column + " AS VARCHAR) FROM tickets WHERE id = ?",
+                String.class, ticketId);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    // H2 has no UPDATE ... RETURNING, so the claim reads its rows back through FINAL TABLE, H2's form of the same thing
+    private static final class OutboxStore extends JdbcTemplate {
+
+        OutboxStore(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            int returning = sql.indexOf(" RETURNING ");
+            if (returning < 0) {
+                return super.query(sql, rowMapper, args);
+            }
+            return super.query("SELECT " + sql.substring(returning + " RETURNING ".length()) + " FROM FINAL TABLE (" +
+                    sql.substring(0, returning) + ")", rowMapper, args);
+        }
+    }
+}
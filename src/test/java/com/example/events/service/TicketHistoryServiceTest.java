@@ -0,0 +1,145 @@
+package com.example.events.service;
+
+import com.example.events.DTO.TicketHistoryDTO;
+import com.example.events.DTO.TicketHistoryResponse;
+import com.example.events.exception.InvalidCursorException;
+import com.example.events.exception.UnauthorizedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TicketHistoryServiceTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final LocalDateTime base = LocalDateTime.of(2026, 1, 1, 12, 0);
+    private JdbcTemplate jdbcTemplate;
+    private TicketHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:history-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE events (id INTEGER PRIMARY KEY, title VARCHAR(255), date DATE)");
+        jdbcTemplate.execute("CREATE TABLE tickets (id VARCHAR(50) PRIMARY KEY, user_id UUID NOT NULL, " +
+                "event_id INTEGER NOT NULL, quantity INTEGER NOT NULL, total_price DECIMAL(10, 2) NOT NULL, " +
+                "status VARCHAR(20), purchase_date TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE tickets_archive AS SELECT * FROM tickets WHERE 1 = 0");
+        jdbcTemplate.update("INSERT INTO events VALUES (1, 'Finished festival', DATE '2025-06-01')");
+        jdbcTemplate.update("INSERT INTO events VALUES (2, 'Upcoming concert', DATE '2026-09-01')");
+        service = new TicketHistoryService(jdbcTemplate);
+    }
+
+    @Test
+    void pagesThroughLiveAndArchivedTicketsNewestFirst() {
+        ticket("tickets", "live-a", 2, 50);
+        ticket("tickets", "live-b", 2, 30);
+        ticket("tickets", "live-c", 2, 30);
+        ticket("tickets", "live-d", 2, 5);
+        ticket("tickets_archive", "old-a", 1, 40);
+        ticket("tickets_archive", "old-b", 1, 30);
+        ticket("tickets_archive", "old-c", 1, 10);
+        ticket("tickets_archive", "old-d", 1, 1);
+        jdbcTemplate.update("INSERT INTO tickets VALUES ('someone-else', ?, 2, 1, 10.00, 'confirmed', ?)",
+                UUID.randomUUID(), Timestamp.valueOf(base.plusMinutes(60)));
+
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            TicketHistoryResponse page = service.getHistory(cursor, 3, request());
+            page.getTickets().stream().map(TicketHistoryDTO::getId).forEach(ids::add);
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // ties on purchase_date fall back to id, across both tables
+        assertEquals(List.of("live-a", "old-a", "old-b", "live-c", "live-b", "old-c", "live-d", "old-d"), ids);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void tiesOnPurchaseDateSplitAcrossPagesWithoutSkippingOrRepeating() {
+        for (String id : List.of("t-1", "t-2", "t-3", "t-4", "t-5")) {
+            ticket("tickets", id, 2, 30);
+        }
+
+        TicketHistoryResponse first = service.getHistory(null, 2, request());
+        TicketHistoryResponse second = service.getHistory(first.getNextCursor(), 2, request());
+        TicketHistoryResponse third = service.getHistory(second.getNextCursor(), 2, request());
+
+        assertEquals(List.of("t-5", "t-4"), ids(first));
+        assertEquals(List.of("t-3", "t-2"), ids(second));
+        assertEquals(List.of("t-1"), ids(third));
+        assertNull(third.getNextCursor());
+    }
+
+    @Test
+    void fullLastPageIsFollowedByAnEmptyPage() {
+        ticket("tickets", "live-a", 2, 20);
+        ticket("tickets", "live-b", 2, 10);
+
+        TicketHistoryResponse first = service.getHistory(null, 2, request());
+        assertNotNull(first.getNextCursor());
+
+        TicketHistoryResponse last = service.getHistory(first.getNextCursor(), 2, request());
+        assertTrue(last.getTickets().isEmpty());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void userWithoutTicketsGetsAnEmptyFirstPage() {
+        TicketHistoryResponse page = service.getHistory(null, 20, request());
+
+        assertTrue(page.getTickets().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void rejectsMalformedCursorsAndAnonymousCallers() {
+        assertThrows(InvalidCursorException.class, () -> service.getHistory("not-a-cursor", 20, request()));
+        assertThrows(UnauthorizedException.class, () -> service.getHistory(null, 20, new MockHttpServletRequest()));
+    }
+
+    @Test
+    void archivedTicketsCarryTheirEvent() {
+        ticket("tickets_archive", "old-a", 1, 40);
+
+        TicketHistoryResponse page = service.getHistory(null, 20, request());
+
+        assertEquals(1, page.getTickets().size());
+        TicketHistoryDTO ticket = page.getTickets().get(0);
+        assertEquals("Finished festival", ticket.getEventTitle());
+        assertEquals(base.plusMinutes(40), ticket.getPurchaseDate());
+        assertNull(page.getNextCursor());
+    }
+
+    private void ticket(String table, String id, int eventId, int minutes) {
+        jdbcTemplate.update("INSERT INTO " + table + " VALUES (?, ?, ?, 2, 70.00, 'confirmed', ?)",
+                id, userId, eventId, Timestamp.valueOf(base.plusMinutes(minutes)));
+    }
+
+    private static List<String> ids(TicketHistoryResponse page) {
+        return page.getTickets().stream().map(TicketHistoryDTO::getId).toList();
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("userId", userId.toString());
+        return request;
+    }
+}
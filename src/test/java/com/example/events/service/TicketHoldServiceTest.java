@@ -0,0 +1,171 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.PurchaseRequest;
+import com.example.events.DTO.TicketDTO;
+import com.example.events.exception.HoldExpiredException;
+import com.example.events.model.TicketStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TicketHoldServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private RedisLock redisLock;
+    private TicketReservationService reservations;
+    private SalesRollupService salesRollupService;
+    private UUID buyer;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:hold-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE DOMAIN ticket_status_type AS VARCHAR(20)");
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE events (id INTEGER PRIMARY KEY, available_tickets INTEGER NOT NULL " +
+                "CHECK (available_tickets >= 0))");
+        jdbcTemplate.execute("CREATE TABLE tickets (id VARCHAR(50) PRIMARY KEY, user_id UUID NOT NULL REFERENCES users(id), " +
+                "event_id INTEGER NOT NULL REFERENCES events(id), quantity INTEGER NOT NULL, " +
+                "price_per_ticket DECIMAL(10, 2) NOT NULL, total_price DECIMAL(10, 2) NOT NULL, " +
+                "status ticket_status_type, purchase_date TIMESTAMP, hold_expires_at TIMESTAMP, email_sent BOOLEAN)");
+        jdbcTemplate.execute("CREATE TABLE ticket_delivery_outbox (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "ticket_id VARCHAR(50) NOT NULL REFERENCES tickets(id))");
+        jdbcTemplate.update("INSERT INTO events (id, available_tickets) VALUES (1, 10)");
+        buyer = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (?)", buyer);
+
+        redisLock = mock(RedisLock.class);
+        reservations = mock(TicketReservationService.class);
+        when(reservations.checkPurchasable(eq(1), anyInt()))
+                .thenReturn(EventDTO.builder().id(1).price(new BigDecimal("35.00")).build());
+        when(reservations.acquire(eq(1), anyInt())).thenReturn(true);
+        salesRollupService = mock(SalesRollupService.class);
+    }
+
+    @Test
+    void aHeldTicketTakesStockUntilItIsConfirmed() {
+        TicketHoldService holds = service(600);
+
+        TicketDTO held = holds.hold(purchase(3), authenticated(buyer));
+        assertEquals(TicketStatus.pending, held.getStatus());
+        assertEquals(7, available());
+        assertEquals("pending", status(held.getId()));
+        assertEquals(1, holds.getOpenHoldCount());
+
+        TicketDTO ticket = holds.confirm(held.getId(), authenticated(buyer));
+        assertEquals(TicketStatus.confirmed, ticket.getStatus());
+        assertEquals(new BigDecimal("105.00"), ticket.getTotalPrice());
+        assertEquals("confirmed", status(held.getId()));
+        assertEquals(1, count("SELECT COUNT(*) FROM ticket_delivery_outbox"));
+        assertEquals(0, holds.getOpenHoldCount());
+        assertEquals(7, available());
+        verify(salesRollupService).record(eq(1), eq(TicketStatus.confirmed), eq(3), any(), any());
+    }
+
+    @Test
+    void onlyTheBuyerCanConfirmTheirHold() {
+        TicketHoldService holds = service(600);
+        TicketDTO held = holds.hold(purchase(2), authenticated(buyer));
+
+        assertThrows(HoldExpiredException.class, () -> holds.confirm(held.getId(), authenticated(UUID.randomUUID())));
+        assertEquals("pending", status(held.getId()));
+    }
+
+    @Test
+    void anExpiredHoldGivesItsTicketsBackAndCannotBeConfirmed() throws Exception {
+        TicketHoldService holds = service(0);
+        TicketDTO held = holds.hold(purchase(4), authenticated(buyer));
+        assertEquals(6, available());
+
+        TimeUnit.MILLISECONDS.sleep(30);
+        holds.expireDue();
+
+        assertEquals("cancelled", status(held.getId()));
+        assertEquals(10, available());
+        assertEquals(4, holds.getExpiredTicketCount());
+        assertEquals(0, holds.getOpenHoldCount());
+        verify(reservations).release(1, 4);
+        assertThrows(HoldExpiredException.class, () -> holds.confirm(held.getId(), authenticated(buyer)));
+        assertEquals(0, count("SELECT COUNT(*) FROM ticket_delivery_outbox"));
+    }
+
+    @Test
+    void orphanedHoldsAreExpiredOnlyByTheNodeHoldingTheSweepLease() {
+        // a hold left behind by a node that went away, so no wheel will ever fire for it
+        String orphan = UUID.randomUUID().toString();
+        LocalDateTime expiredAt = LocalDateTime.now().minusMinutes(5);
+        jdbcTemplate.update("UPDATE events SET available_tickets = 8 WHERE id = 1");
+        jdbcTemplate.update("INSERT INTO tickets (id, user_id, event_id, quantity, price_per_ticket, total_price, status, " +
+                "purchase_date, hold_expires_at, email_sent) VALUES (?, ?, 1, 2, 35.00, 70.00, 'pending', ?, ?, FALSE)",
+                orphan, buyer, Timestamp.valueOf(expiredAt.minusMinutes(10)), Timestamp.valueOf(expiredAt));
+        TicketHoldService holds = service(600);
+
+        when(redisLock.tryAcquire(eq("tickets:hold-sweep"), any(Duration.class))).thenReturn(null);
+        holds.sweepOrphans();
+        assertEquals("pending", status(orphan));
+
+        when(redisLock.tryAcquire(eq("tickets:hold-sweep"), any(Duration.class))).thenReturn("lease");
+        holds.sweepOrphans();
+        assertEquals("cancelled", status(orphan));
+        assertEquals(10, available());
+        assertEquals(1, holds.getSweptHoldCount());
+        verify(redisLock).release("tickets:hold-sweep", "lease");
+        verify(redisLock, never()).extend(any(), any(), any());
+    }
+
+    private TicketHoldService service(long holdSeconds) {
+        return new TicketHoldService(jdbcTemplate, transactionTemplate, redisLock, reservations,
+                mock(WaitingRoomService.class), mock(AvailabilityStreamService.class), salesRollupService,
+                holdSeconds, 10, 100);
+    }
+
+    private static PurchaseRequest purchase(int quantity) {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setEventId(1);
+        request.setQuantity(quantity);
+        return request;
+    }
+
+    private static MockHttpServletRequest authenticated(UUID userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("userId", userId.toString());
+        return request;
+    }
+
+    private int available() {
+        return count("SELECT available_tickets FROM events WHERE id = 1");
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    private String status(String ticketId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM tickets WHERE id = ?", String.class, ticketId);
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.DTO.TicketDTO;
+import com.example.events.exception.ServiceBusyException;
+import com.example.events.exception.SoldOutException;
+import com.example.events.exception.UserNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TicketPurchaseBatcherTest {
+
+    private static final int tickets = 200;
+    private static final int buyers = 300;
+    private static final int threads = 16;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private TicketPurchaseBatcher batcher;
+    private EventDTO event;
+    private List<UUID> users;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:purchase-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE DOMAIN ticket_status_type AS VARCHAR(20)");
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE events (id INTEGER PRIMARY KEY, available_tickets INTEGER NOT NULL " +
+                "CHECK (available_tickets >= 0))");
+        jdbcTemplate.execute("CREATE TABLE tickets (id VARCHAR(50) PRIMARY KEY, user_id UUID NOT NULL REFERENCES users(id), " +
+                "event_id INTEGER NOT NULL REFERENCES events(id), quantity INTEGER NOT NULL, " +
+                "price_per_ticket DECIMAL(10, 2) NOT NULL, total_price DECIMAL(10, 2) NOT NULL, " +
+                "status ticket_status_type, purchase_date TIMESTAMP, email_sent BOOLEAN)");
+        jdbcTemplate.execute("CREATE TABLE ticket_delivery_outbox (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "ticket_id VARCHAR(50) NOT NULL REFERENCES tickets(id))");
+        jdbcTemplate.update("INSERT INTO events (id, available_tickets) VALUES (1, ?)", tickets);
+
+        users = new ArrayList<>(buyers);
+        for (int i = 0; i < buyers; i++) {
+            users.add(UUID.randomUUID());
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id) VALUES (?)",
+                users.stream().map(id -> new Object[]{id}).toList());
+
+        event = EventDTO.builder().id(1).price(new BigDecimal("35.00")).build();
+        batcher = new TicketPurchaseBatcher(jdbcTemplate, transactionTemplate, 64, 2000, 4, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void batchedPurchasesNeverOversellAndRejectUnknownUsers() throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        run(i -> {
+            try {
+                batcher.purchase(users.get(i), event, 1 + i % 2);
+                sold.addAndGet(1 + i % 2);
+            } catch (SoldOutException ignored) {
+            }
+        });
+
+        assertEquals(tickets, sold.get());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT available_tickets FROM events WHERE id = 1", Integer.class));
+        assertEquals(tickets, jdbcTemplate.queryForObject("SELECT SUM(quantity) FROM tickets", Integer.class));
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tickets", Integer.class),
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ticket_delivery_outbox", Integer.class));
+    }
+
+    @Test
+    void unknownBuyersDoNotTakeStockFromBuyersBehindThem() throws Exception {
+        jdbcTemplate.update("UPDATE events SET available_tickets = 2 WHERE id = 1");
+        TicketPurchaseBatcher slow = new TicketPurchaseBatcher(jdbcTemplate, transactionTemplate, 64, 100_000, 1, 10_000);
+        try {
+            CompletableFuture<TicketDTO> unknown = slow.submit(UUID.randomUUID(), event, 2);
+            CompletableFuture<TicketDTO> known = slow.submit(users.get(0), event, 2);
+
+            assertEquals(2, known.get(5, TimeUnit.SECONDS).getQuantity());
+            ExecutionException error = assertThrows(ExecutionException.class, () -> unknown.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(UserNotFoundException.class, error.getCause());
+            assertEquals(1, slow.getBatchCount());
+        } finally {
+            slow.shutdown();
+        }
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT available_tickets FROM events WHERE id = 1", Integer.class));
+    }
+
+    @Test
+    void purchasesCountAsPendingUntilTheirBatchIsDrained() throws Exception {
+        TicketPurchaseBatcher slow = new TicketPurchaseBatcher(jdbcTemplate, transactionTemplate, 64, 300_000, 1, 5_000);
+        try {
+            CompletableFuture<TicketDTO> first = slow.submit(users.get(0), event, 1);
+            CompletableFuture<TicketDTO> second = slow.submit(users.get(1), event, 1);
+            // two purchases behind one scheduled flush
+            assertEquals(2, slow.getPendingPurchaseCount());
+
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            assertEquals(0, slow.getPendingPurchaseCount());
+        } finally {
+            slow.shutdown();
+        }
+    }
+
+    @Test
+    void timedOutPurchasesAreWithdrawnBeforeTheyCommit() throws Exception {
+        TicketPurchaseBatcher slow = new TicketPurchaseBatcher(jdbcTemplate, transactionTemplate, 64, 300_000, 1, 20);
+        try {
+            assertThrows(ServiceBusyException.class, () -> slow.purchase(users.get(0), event, 1));
+            assertEquals(0, slow.getPendingPurchaseCount());
+            TimeUnit.MILLISECONDS.sleep(600);
+
+            assertEquals(1, slow.getWithdrawnCount());
+            assertEquals(0, slow.getBatchCount());
+        } finally {
+            slow.shutdown();
+        }
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tickets", Integer.class));
+        assertEquals(tickets, jdbcTemplate.queryForObject("SELECT available_tickets FROM events WHERE id = 1", Integer.class));
+    }
+
+    @Test
+    void aCallerWaitingOnACommitThatStallsIsReleasedAfterABoundedWait() throws Exception {
+        // the batch is drained right away but its transaction cannot begin until the test lets it
+        CountDownLatch begin = new CountDownLatch(1);
+        PlatformTransactionManager manager = transactionTemplate.getTransactionManager();
+        PlatformTransactionManager stalled = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                try {
+                    begin.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return manager.getTransaction(definition);
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+                manager.commit(status);
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+                manager.rollback(status);
+            }
+        };
+        TicketPurchaseBatcher slow = new TicketPurchaseBatcher(jdbcTemplate, new TransactionTemplate(stalled),
+                64, 1000, 1, 100);
+        try {
+            long start = System.nanoTime();
+            ServiceBusyException e = assertThrows(ServiceBusyException.class,
+                    () -> slow.purchase(users.get(0), event, 1));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2_000);
+            assertTrue(e.getMessage().contains("check your tickets"));
+            assertEquals(0, slow.getWithdrawnCount());
+
+            // the purchase was already in its batch, so it still goes through once the transaction runs
+            begin.countDown();
+            for (int i = 0; i < 100 && slow.getBatchCount() == 0; i++) {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+            assertEquals(1, slow.getBatchCount());
+        } finally {
+            begin.countDown();
+            slow.shutdown();
+        }
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tickets", Integer.class));
+    }
+
+    private void run(Buyer buyer) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(buyers);
+        for (int i = 0; i < buyers; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                buyer.buy(index);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+    }
+
+    private interface Buyer {
+        void buy(int index);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.RedisConfig;
+import com.example.events.model.TicketStatus;
+import com.example.events.repository.EventRepository;
+import com.example.events.service.TicketReservationService.ReservationHold;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import redis.embedded.RedisServer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TicketReconciliationServiceTest {
+
+    private static final int port = 6396;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+
+    private JdbcTemplate jdbcTemplate;
+    private EventRepository eventRepository;
+    private TicketReservationService reservations;
+    private AvailabilityStreamService availabilityStreamService;
+    private SalesRollupService salesRollupService;
+    private TicketReconciliationService reconciler;
+    private UUID buyer;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:reconcile-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE DOMAIN ticket_status_type AS VARCHAR(20)");
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE events (id INTEGER PRIMARY KEY, available_tickets INTEGER NOT NULL " +
+                "CHECK (available_tickets >= 0))");
+        jdbcTemplate.execute("CREATE TABLE tickets (id VARCHAR(50) PRIMARY KEY, user_id UUID NOT NULL REFERENCES users(id), " +
+                "event_id INTEGER NOT NULL REFERENCES events(id), quantity INTEGER NOT NULL, " +
+                "price_per_ticket DECIMAL(10, 2) NOT NULL, total_price DECIMAL(10, 2) NOT NULL, " +
+                "status ticket_status_type, purchase_date TIMESTAMP, email_sent BOOLEAN)");
+        jdbcTemplate.execute("CREATE TABLE ticket_delivery_outbox (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "ticket_id VARCHAR(50) NOT NULL REFERENCES tickets(id))");
+        jdbcTemplate.update("INSERT INTO events (id, available_tickets) VALUES (1, 10)");
+        buyer = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (?)", buyer);
+
+        EventCatalogueService catalogue = mock(EventCatalogueService.class);
+        when(catalogue.getEvent(1)).thenReturn(EventDTO.builder()
+                .id(1)
+                .date(LocalDate.now().plusDays(30))
+                .startTime(LocalTime.of(7, 0))
+                .price(new BigDecimal("35.00"))
+                .build());
+        eventRepository = mock(EventRepository.class);
+        when(eventRepository.findAvailableTicketsById(1)).thenAnswer(invocation -> Optional.of(available()));
+        reservations = new TicketReservationService(redisTemplate, new RedisLock(redisTemplate), catalogue, eventRepository, null, null,
+                mock(AvailabilityStreamService.class), mock(SalesRollupService.class), 4, "redis");
+        availabilityStreamService = mock(AvailabilityStreamService.class);
+        salesRollupService = mock(SalesRollupService.class);
+        reconciler = new TicketReconciliationService(redisTemplate, new RedisLock(redisTemplate), jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), availabilityStreamService,
+                salesRollupService, 100);
+    }
+
+    @Test
+    void purchasesStayPendingUntilReconciled() {
+        String first = reservations.reserve(buyer, 1, 2).getId();
+        String second = reservations.reserve(buyer, 1, 3).getId();
+        assertEquals(TicketStatus.pending, reservations.reserve(buyer, 1, 1).getStatus());
+
+        reconciler.reconcile();
+
+        verify(availabilityStreamService, never()).changed(1);
+        assertEquals(4, available());
+        assertEquals("confirmed", status(first));
+        assertEquals("confirmed", status(second));
+        assertEquals(3, count("SELECT COUNT(*) FROM ticket_delivery_outbox"));
+        assertEquals(0, reconciler.getBacklog());
+        assertFalse(redisTemplate.opsForHash().hasKey(TicketReservationService.pendingQuantities, "1"));
+        assertEquals(4, reservations.getAvailableTickets(1));
+    }
+
+    @Test
+    void replayedHoldsDoNotTakeStockTwice() {
+        reservations.reserve(buyer, 1, 2);
+        String hold = redisTemplate.opsForList().index(TicketReservationService.reservationQueue, 0);
+        reconciler.reconcile();
+
+        // a node whose lease ran out before it acknowledged leaves the same hold at the head of the queue
+        redisTemplate.opsForList().leftPush(TicketReservationService.reservationQueue, hold);
+        redisTemplate.opsForHash().increment(TicketReservationService.pendingQuantities, "1", 2);
+        reconciler.reconcile();
+
+        assertEquals(8, available());
+        assertEquals(1, count("SELECT COUNT(*) FROM tickets"));
+        assertEquals(1, count("SELECT COUNT(*) FROM ticket_delivery_outbox"));
+        assertEquals(0, reconciler.getDeadLetteredCount());
+    }
+
+    @Test
+    void holdsForMissingBuyersAreParkedAndGiveTheirTicketsBack() {
+        reservations.reserve(UUID.randomUUID(), 1, 3);
+        String kept = reservations.reserve(buyer, 1, 1).getId();
+        assertEquals(6, reservations.getAvailableTickets(1));
+
+        reconciler.reconcile();
+
+        assertEquals(1, count("SELECT COUNT(*) FROM tickets"));
+        assertEquals("confirmed", status(kept));
+        assertEquals(9, available());
+        assertEquals(9, reservations.getAvailableTickets(1));
+        verify(availabilityStreamService).changed(1);
+        assertEquals(1, reconciler.getDeadLetteredCount());
+        assertEquals(3, ReservationHold.decode(
+                redisTemplate.opsForList().index(TicketReconciliationService.deadLetterQueue, 0)).quantity());
+    }
+
+    @Test
+    void holdsPostgresHasNoStockForAreCancelledAndTheCounterReseeds() {
+        String sold = reservations.reserve(buyer, 1, 4).getId();
+        String oversold = reservations.reserve(buyer, 1, 4).getId();
+        // another writer took stock behind redis's back
+        jdbcTemplate.update("UPDATE events SET available_tickets = 5 WHERE id = 1");
+
+        reconciler.reconcile();
+
+        assertEquals("confirmed", status(sold));
+        assertEquals("cancelled", status(oversold));
+        assertEquals(1, available());
+        assertEquals(1, count("SELECT COUNT(*) FROM ticket_delivery_outbox"));
+        assertEquals(List.of(oversold), redisTemplate.opsForList().range(TicketReconciliationService.deadLetterQueue, 0, -1)
+                .stream().map(ReservationHold::decode).map(ReservationHold::ticketId).toList());
+        assertEquals(1, reservations.getAvailableTickets(1));
+        verify(availabilityStreamService).changed(1);
+        verify(salesRollupService).record(eq(1), eq(TicketStatus.confirmed), eq(4), any(), any());
+        verify(salesRollupService).record(eq(1), eq(TicketStatus.cancelled), eq(4), eq(BigDecimal.ZERO), any());
+    }
+
+    @Test
+    void holdsForDeletedEventsAreParked() {
+        String hold = ReservationHold.encode(UUID.randomUUID().toString(), 2, buyer, 1, new BigDecimal("35.00"),
+                LocalDateTime.now());
+        redisTemplate.opsForList().rightPush(TicketReservationService.reservationQueue, hold);
+        redisTemplate.opsForHash().increment(TicketReservationService.pendingQuantities, "2", 1);
+
+        reconciler.reconcile();
+
+        assertEquals(0, count("SELECT COUNT(*) FROM tickets"));
+        assertEquals(1, reconciler.getDeadLetteredCount());
+        assertEquals(0, reconciler.getBacklog());
+        assertFalse(redisTemplate.opsForHash().hasKey(TicketReservationService.pendingQuantities, "2"));
+    }
+
+    private int available() {
+        return count("SELECT available_tickets FROM events WHERE id = 1");
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    private String status(String ticketId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM tickets WHERE id = ?", String.class, ticketId);
+    }
+}
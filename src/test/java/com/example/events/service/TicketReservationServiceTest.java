@@ -0,0 +1,162 @@
+package com.example.events.service;
+
+import com.example.events.DTO.EventDTO;
+import com.example.events.RedisConfig;
+import com.example.events.exception.SoldOutException;
+import com.example.events.repository.EventRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TicketReservationServiceTest {
+
+    private static final int port = 6391;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+
+    private EventRepository eventRepository;
+    private RedisLock redisLock;
+    private TicketReservationService service;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        EventCatalogueService catalogue = mock(EventCatalogueService.class);
+        when(catalogue.getEvent(1)).thenReturn(EventDTO.builder()
+                .id(1)
+                .title("Marathon City Run")
+                .date(LocalDate.now().plusDays(30))
+                .startTime(LocalTime.of(7, 0))
+                .price(new BigDecimal("35.00"))
+                .build());
+        eventRepository = mock(EventRepository.class);
+        redisLock = new RedisLock(redisTemplate);
+        service = new TicketReservationService(redisTemplate, redisLock, catalogue, eventRepository, null, null,
+                mock(AvailabilityStreamService.class), mock(SalesRollupService.class), 4, "redis");
+    }
+
+    @Test
+    void parallelBuyersNeverOversell() throws Exception {
+        int tickets = 1_000;
+        int buyers = 5_000;
+        when(eventRepository.findAvailableTicketsById(1)).thenReturn(Optional.of(tickets));
+
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(buyers);
+        for (int i = 0; i < buyers; i++) {
+            int quantity = 1 + i % 3;
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    service.reserve(UUID.randomUUID(), 1, quantity);
+                    sold.addAndGet(quantity);
+                } catch (SoldOutException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        long queued = redisTemplate.opsForList().range(TicketReservationService.reservationQueue, 0, -1).stream()
+                .map(TicketReservationService.ReservationHold::decode)
+                .mapToLong(TicketReservationService.ReservationHold::quantity)
+                .sum();
+        long remaining = service.getAvailableTickets(1);
+
+        // how close the buyers get to an exact sell-out depends on the order they arrive in, but every ticket sold
+        // is queued and pending exactly once, and a buyer is only turned away once fewer tickets are left than they
+        // asked for
+        assertTrue(sold.get() <= tickets);
+        assertEquals(tickets, sold.get() + remaining);
+        assertEquals(sold.get(), queued);
+        assertEquals(String.valueOf(sold.get()),
+                redisTemplate.opsForHash().get(TicketReservationService.pendingQuantities, "1"));
+        assertTrue(rejected.get() > 0);
+        assertTrue(remaining < 3);
+        assertEquals(sold.get(), service.getReservedCount());
+        assertEquals(rejected.get(), service.getSoldOutCount());
+    }
+
+    @Test
+    void aSeedWaitsUntilTheReconcilerLetsGoOfItsLease() throws Exception {
+        when(eventRepository.findAvailableTicketsById(1)).thenReturn(Optional.of(100));
+        String lease = redisLock.tryAcquire(TicketReconciliationService.lockName, Duration.ofSeconds(30));
+
+        // the reconciler is between committing some holds and dropping them from the pending hash
+        CompletableFuture<Long> available = CompletableFuture.supplyAsync(() -> service.getAvailableTickets(1));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertFalse(available.isDone());
+        assertFalse(redisTemplate.hasKey(TicketReservationService.inventoryPrefix + "1"));
+
+        redisLock.release(TicketReconciliationService.lockName, lease);
+        assertEquals(100, available.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void seedSubtractsHoldsNotYetReconciled() {
+        when(eventRepository.findAvailableTicketsById(1)).thenReturn(Optional.of(100));
+        redisTemplate.opsForHash().put(TicketReservationService.pendingQuantities, "1", "20");
+
+        assertEquals(80, service.getAvailableTickets(1));
+        service.reserve(UUID.randomUUID(), 1, 1);
+        assertEquals(79, service.getAvailableTickets(1));
+    }
+}
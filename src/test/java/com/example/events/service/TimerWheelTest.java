@@ -0,0 +1,69 @@
+package com.example.events.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    @Test
+    void firesEachKeyOnceNoEarlierThanItsDeadline() {
+        long start = 1_700_000_000_000L;
+        TimerWheel wheel = new TimerWheel(1000, start);
+        Random random = new Random(42);
+        int keys = 100_000;
+        long[] deadlines = new long[keys];
+        for (int i = 0; i < keys; i++) {
+            // spread over all levels, up to about ten days out
+            deadlines[i] = start + (long) (Math.pow(random.nextDouble(), 3) * 864_000_000L);
+            wheel.schedule("hold-" + i, deadlines[i]);
+        }
+        for (int i = 0; i < keys; i += 10) {
+            wheel.cancel("hold-" + i);
+        }
+
+        Set<String> fired = new HashSet<>();
+        long now = start;
+        while (wheel.size() > 0) {
+            now += 60_000;
+            for (String key : wheel.advance(now)) {
+                int index = Integer.parseInt(key.substring(5));
+                assertTrue(deadlines[index] <= now, key + " fired early");
+                assertTrue(deadlines[index] > now - 61_000, key + " fired late");
+                assertTrue(fired.add(key), key + " fired twice");
+            }
+        }
+        assertEquals(keys - keys / 10, fired.size());
+    }
+
+    @Test
+    void holdsSharingATickExpireTogether() {
+        long start = 1_700_000_000_000L;
+        TimerWheel wheel = new TimerWheel(1000, start);
+        int holds = 60_000;
+        for (int i = 0; i < holds; i++) {
+            wheel.schedule(Integer.toString(i), start + 600_000 + (i % 600) * 1000L);
+        }
+
+        List<String> expired = new ArrayList<>();
+        for (long now = start; now < start + 600_000; now += 1000) {
+            expired.addAll(wheel.advance(now));
+        }
+        assertTrue(expired.isEmpty());
+        for (long now = start + 600_000; now < start + 1_200_000; now += 1000) {
+            List<String> due = wheel.advance(now);
+            assertEquals(holds / 600, due.size());
+            expired.addAll(due);
+        }
+
+        assertEquals(holds, new HashSet<>(expired).size());
+        assertEquals(0, wheel.size());
+    }
+}
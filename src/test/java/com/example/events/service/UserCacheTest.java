@@ -0,0 +1,88 @@
+package com.example.events.service;
+
+import com.example.events.DTO.UserDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class UserCacheTest {
+
+    private static final String channel = "cache:user:invalidate";
+
+    private RedisTemplate<String, String> redisTemplate;
+    private UserCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        cache = new UserCache(redisTemplate, mock(RedisMessageListenerContainer.class), 100, 300, 30);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void aReadInsideTheWritingTransactionIsEvictedAgainOnCommit() {
+        UUID id = UUID.randomUUID();
+        cache.getById(id, key -> Optional.of(user(id, "old")));
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.evict(id, "old", "new");
+        // a concurrent reader still sees the uncommitted row and caches it again
+        cache.getById(id, key -> Optional.of(user(id, "old")));
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals("new", cache.getById(id, key -> Optional.of(user(id, "new"))).orElseThrow().getName());
+        verify(redisTemplate).convertAndSend(channel, "id:" + id);
+        verify(redisTemplate).convertAndSend(channel, "name:old");
+        verify(redisTemplate).convertAndSend(channel, "name:new");
+    }
+
+    @Test
+    void missesAreCachedUntilAPeerEvictsThem() {
+        UUID id = UUID.randomUUID();
+        assertTrue(cache.getByName("alice", name -> Optional.empty()).isEmpty());
+        assertTrue(cache.getByName("alice", name -> Optional.of(user(id, name))).isEmpty());
+
+        cache.onMessage(new DefaultMessage(channel.getBytes(StandardCharsets.UTF_8),
+                "name:alice".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(id, cache.getByName("alice", name -> Optional.of(user(id, name))).orElseThrow().getId());
+    }
+
+    @Test
+    void evictionOutsideATransactionIsBroadcastAtOnce() {
+        UUID id = UUID.randomUUID();
+
+        cache.evict(id);
+
+        verify(redisTemplate).convertAndSend(channel, "id:" + id);
+    }
+
+    private static UserDTO user(UUID id, String name) {
+        return UserDTO.builder().id(id).name(name).build();
+    }
+}
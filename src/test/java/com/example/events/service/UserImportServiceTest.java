@@ -0,0 +1,114 @@
+package com.example.events.service;
+
+import com.example.events.DTO.BulkImportError;
+import com.example.events.DTO.BulkImportResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class UserImportServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private UserImportService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:import-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE DOMAIN user_role_type AS VARCHAR(20)");
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY, email VARCHAR(255) UNIQUE NOT NULL, " +
+                "password VARCHAR(255) NOT NULL, name VARCHAR(255) UNIQUE NOT NULL, role user_role_type, " +
+                "created_at TIMESTAMP, updated_at TIMESTAMP)");
+
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        service = service(jdbcTemplate);
+    }
+
+    @Test
+    void importsCsvAndReportsConflictsPerRow() throws Exception {
+        jdbcTemplate.update("INSERT INTO users (id, email, password, name, role) VALUES (RANDOM_UUID(), 'taken@x.io', 'p', 'taken', 'user')");
+        String csv = """
+                email,name,password,role
+                a@x.io,alice,secret,user
+                b@x.io,"bob, jr",secret,admin
+                c@x.io,alice,secret,
+                t@x.io,taken,secret,
+                d@x.io,,secret,
+                """;
+
+        BulkImportResponse response = service.importUsers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), false);
+
+        assertEquals(2, response.getImported());
+        assertEquals(3, response.getRejected());
+        assertEquals(List.of(3L, 5L, 4L), response.getErrors().stream().map(BulkImportError::getRow).toList());
+        assertEquals("admin", jdbcTemplate.queryForObject("SELECT role FROM users WHERE name = 'bob, jr'", String.class));
+    }
+
+    @Test
+    void conflictsAreFoundWhenTheDriverReportsNoRowCounts() throws Exception {
+        // what pgjdbc returns with reWriteBatchedInserts=true
+        JdbcTemplate rewriting = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                int[] counts = super.batchUpdate(sql, batchArgs);
+                Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+                return counts;
+            }
+        };
+        jdbcTemplate.update("INSERT INTO users (id, email, password, name, role) VALUES (RANDOM_UUID(), 'taken@x.io', 'p', 'taken', 'user')");
+        String csv = """
+                email,name,password,role
+                a@x.io,alice,secret,user
+                t@x.io,taken,secret,
+                b@x.io,bob,secret,
+                """;
+
+        BulkImportResponse response = service(rewriting).importUsers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), false);
+
+        assertEquals(2, response.getImported());
+        assertEquals(1, response.getRejected());
+        assertEquals(List.of(2L), response.getErrors().stream().map(BulkImportError::getRow).toList());
+    }
+
+    @Test
+    void importsNdjsonInBatches() throws Exception {
+        // two full batches and a partial one
+        int rows = 1_250;
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            body.append("{\"email\":\"user").append(i).append("@x.io\",\"name\":\"user").append(i)
+                    .append("\",\"password\":\"secret").append(i).append("\"}\n");
+        }
+
+        BulkImportResponse response = service.importUsers(
+                new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)), true);
+
+        assertEquals(rows, response.getImported());
+        assertEquals(rows, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+        assertTrue(response.getRowsPerSecond() > 0);
+    }
+
+    private UserImportService service(JdbcTemplate jdbcTemplate) {
+        PasswordHashingService hashing = new PasswordHashingService(4, 1, 16, 5000, 1);
+        return new UserImportService(jdbcTemplate, transactionTemplate, hashing, mock(UserCache.class),
+                new ObjectMapper(), 500);
+    }
+}
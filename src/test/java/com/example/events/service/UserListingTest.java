@@ -0,0 +1,228 @@
+package com.example.events.service;
+
+import com.example.events.DTO.UserDTO;
+import com.example.events.DTO.UserPageResponse;
+import com.example.events.exception.InvalidCursorException;
+import com.example.events.model.User;
+import com.example.events.model.UserRole;
+import com.example.events.repository.UserRepository;
+import com.example.events.security.JwtUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.jpa.boot.spi.TypeContributorList;
+import org.hibernate.type.SqlTypes;
+import org.hibernate.type.descriptor.jdbc.spi.JdbcTypeRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+// runs the keyset and streaming queries through Hibernate against H2, since their ordering is the point
+class UserListingTest {
+
+    private static final LocalDateTime signupTime = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private static LocalContainerEntityManagerFactoryBean factory;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static ObjectMapper objectMapper;
+    private static UserService userService;
+
+    @BeforeAll
+    static void startHibernate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:users-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY, email VARCHAR(255) NOT NULL, " +
+                "password VARCHAR(255) NOT NULL, name VARCHAR(255) UNIQUE NOT NULL, role VARCHAR(20), " +
+                "created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP NOT NULL)");
+
+        factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setManagedTypes(PersistenceManagedTypes.of(User.class.getName()));
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        // H2 has no named enum types, so the role column that is a postgres enum in production is plain text here
+        TypeContributorList roleAsText = () -> List.of((contributions, serviceRegistry) -> {
+            JdbcTypeRegistry registry = contributions.getTypeConfiguration().getJdbcTypeRegistry();
+            registry.addDescriptor(SqlTypes.NAMED_ENUM, registry.getDescriptor(SqlTypes.VARCHAR));
+        });
+        factory.setJpaPropertyMap(Map.of("hibernate.type_contributors", roleAsText));
+        factory.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factory.getObject();
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        UserRepository userRepository = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory))
+                .getRepository(UserRepository.class);
+
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        userService = new UserService(userRepository, mock(JwtUtil.class), mock(UserTokenRevocationService.class),
+                mock(PasswordHashingService.class), mock(LoginThrottleService.class), mock(UserCache.class),
+                objectMapper);
+    }
+
+    @AfterAll
+    static void stopHibernate() {
+        factory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE TABLE users");
+    }
+
+    @Test
+    void pagesWalkUsersSharingASignupTimeWithoutSkippingOrRepeatingAny() {
+        // several users per created_at, so only the id can tell the cursor where the previous page stopped
+        for (int i = 0; i < 11; i++) {
+            insert("user" + i, i % 2 == 0 ? UserRole.user : UserRole.admin, signupTime.plusSeconds(i / 4));
+        }
+        List<UUID> expected = keysetOrder();
+
+        List<UUID> walked = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            UserPageResponse page = page(null, cursor, 3);
+            page.getUsers().forEach(user -> walked.add(user.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(expected, walked);
+        assertEquals(4, pages);
+    }
+
+    @Test
+    void aLastPageThatFillsTheLimitIsFollowedByAnEmptyOne() {
+        for (int i = 0; i < 4; i++) {
+            insert("user" + i, UserRole.user, signupTime);
+        }
+
+        UserPageResponse first = page(null, null, 2);
+        UserPageResponse second = page(null, first.getNextCursor(), 2);
+        UserPageResponse third = page(null, second.getNextCursor(), 2);
+
+        assertEquals(2, second.getUsers().size());
+        assertTrue(third.getUsers().isEmpty());
+        assertNull(third.getNextCursor());
+    }
+
+    @Test
+    void anEmptyTableOrRoleGivesAnEmptyPageWithoutACursor() {
+        UserPageResponse empty = page(null, null, 10);
+        assertTrue(empty.getUsers().isEmpty());
+        assertNull(empty.getNextCursor());
+
+        insert("alice", UserRole.user, signupTime);
+        UserPageResponse admins = page(UserRole.admin, null, 10);
+        assertTrue(admins.getUsers().isEmpty());
+        assertNull(admins.getNextCursor());
+    }
+
+    @Test
+    void theRoleFilterHoldsAcrossPages() {
+        for (int i = 0; i < 6; i++) {
+            insert("user" + i, i < 4 ? UserRole.admin : UserRole.user, signupTime);
+        }
+
+        UserPageResponse first = page(UserRole.admin, null, 3);
+        UserPageResponse second = page(UserRole.admin, first.getNextCursor(), 3);
+
+        assertEquals(3, first.getUsers().size());
+        assertEquals(1, second.getUsers().size());
+        assertNull(second.getNextCursor());
+        assertTrue(second.getUsers().stream().allMatch(user -> user.getRole() == UserRole.admin));
+    }
+
+    @Test
+    void aMalformedCursorIsRejected() {
+        assertThrows(InvalidCursorException.class, () -> page(null, "not-a-cursor", 10));
+    }
+
+    @Test
+    void theExportStreamsEveryUserInKeysetOrderWithoutPasswords() throws Exception {
+        for (int i = 0; i < 600; i++) {
+            insert("user" + i, UserRole.user, signupTime.plusSeconds(i / 50));
+        }
+        List<UUID> expected = keysetOrder();
+
+        String ndjson = export(null, true);
+        String[] lines = ndjson.split("\n");
+        assertTrue(ndjson.endsWith("\n"));
+        assertEquals(expected.size(), lines.length);
+        List<UUID> exported = new ArrayList<>();
+        for (String line : lines) {
+            JsonNode user = objectMapper.readTree(line);
+            assertTrue(user.path("password").isMissingNode());
+            exported.add(UUID.fromString(user.get("id").asText()));
+        }
+        assertEquals(expected, exported);
+
+        JsonNode array = objectMapper.readTree(export(null, false));
+        assertEquals(expected.size(), array.size());
+    }
+
+    @Test
+    void anEmptyExportIsAnEmptyArrayOrNothingAtAll() throws Exception {
+        insert("alice", UserRole.user, signupTime);
+
+        assertEquals("", export(UserRole.admin, true));
+        assertEquals(0, objectMapper.readTree(export(UserRole.admin, false)).size());
+        assertEquals(1, export(UserRole.user, true).split("\n").length);
+    }
+
+    private UserPageResponse page(UserRole role, String cursor, int limit) {
+        return transactionTemplate.execute(status -> userService.getUsersPage(role, cursor, limit));
+    }
+
+    private String export(UserRole role, boolean ndjson) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                userService.exportUsers(role, ndjson, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private void insert(String name, UserRole role, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO users (id, email, password, name, role, created_at, updated_at) " +
+                        "VALUES (?, ?, 'hash', ?, ?, ?, ?)", UUID.randomUUID(), name + "@example.com", name, role.name(),
+                Timestamp.valueOf(createdAt), Timestamp.valueOf(createdAt));
+    }
+
+    // the database's own uuid ordering, which is not the one UUID.compareTo uses
+    private List<UUID> keysetOrder() {
+        return jdbcTemplate.queryForList("SELECT id FROM users ORDER BY created_at, id", UUID.class);
+    }
+}
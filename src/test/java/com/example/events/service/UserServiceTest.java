@@ -0,0 +1,107 @@
+package com.example.events.service;
+
+import com.example.events.DTO.SignupRequest;
+import com.example.events.DTO.UserDTO;
+import com.example.events.exception.UserExistsException;
+import com.example.events.model.UserRole;
+import com.example.events.repository.UserRepository;
+import com.example.events.security.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceTest {
+
+    private UserRepository userRepository;
+    private UserCache userCache;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userCache = mock(UserCache.class);
+        PasswordHashingService hashing = mock(PasswordHashingService.class);
+        when(hashing.encode(any())).thenReturn("hash");
+        userService = new UserService(userRepository, mock(JwtUtil.class), mock(UserTokenRevocationService.class),
+                hashing, mock(LoginThrottleService.class), userCache, new ObjectMapper());
+    }
+
+    @Test
+    void duplicateEmailIsReportedFromTheViolatedConstraint() {
+        when(userRepository.saveAndFlush(any())).thenThrow(duplicate("users_email_key"));
+
+        UserExistsException e = assertThrows(UserExistsException.class, () -> userService.signUp(request()));
+
+        assertEquals("User with email 'alice@example.com' already exists", e.getMessage());
+        verify(userCache, never()).evict(any(), any(String[].class));
+    }
+
+    @Test
+    void duplicateNameIsReportedFromTheViolatedConstraint() {
+        when(userRepository.saveAndFlush(any())).thenThrow(duplicate("users_name_key"));
+
+        UserExistsException e = assertThrows(UserExistsException.class, () -> userService.signUp(request()));
+
+        assertEquals("User with name 'alice' already exists", e.getMessage());
+    }
+
+    @Test
+    void deletingEvictsTheCurrentNameRatherThanTheOneInTheToken() {
+        UUID id = UUID.randomUUID();
+        cached(id, "alice-renamed");
+        when(userRepository.deleteUserById(id)).thenReturn(1);
+
+        userService.deleteUser(authenticated(id, "alice"));
+
+        verify(userCache).evict(id, "alice-renamed");
+        verify(userRepository, never()).findUserDtoById(any());
+    }
+
+    @Test
+    void changingThePasswordEvictsTheCurrentName() {
+        UUID id = UUID.randomUUID();
+        cached(id, "alice-renamed");
+        when(userRepository.updatePassword(eq(id), eq("hash"), any())).thenReturn(1);
+
+        userService.changePassword("new-secret", authenticated(id, "alice"));
+
+        verify(userCache).evict(id, "alice-renamed");
+        verify(userRepository, never()).findUserDtoById(any());
+    }
+
+    private void cached(UUID id, String name) {
+        when(userCache.getById(eq(id), any())).thenReturn(Optional.of(UserDTO.builder().id(id).name(name).build()));
+    }
+
+    private static MockHttpServletRequest authenticated(UUID id, String name) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("userId", id.toString());
+        request.setAttribute("userName", name);
+        return request;
+    }
+
+    private static DataIntegrityViolationException duplicate(String constraint) {
+        return new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", new SQLException("duplicate key"), constraint));
+    }
+
+    private static SignupRequest request() {
+        return new SignupRequest("alice@example.com", "alice", "secret", UserRole.user);
+    }
+}
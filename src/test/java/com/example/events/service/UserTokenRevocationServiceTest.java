@@ -0,0 +1,129 @@
+package com.example.events.service;
+
+import com.example.events.RedisConfig;
+import com.example.events.security.JwtPrincipal;
+import com.example.events.security.JwtUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserTokenRevocationServiceTest {
+
+    private static final int port = 6394;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+    private static RedisMessageListenerContainer listenerContainer;
+
+    private UserTokenRevocationService nodeA;
+    private UserTokenRevocationService nodeB;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        RedisConfig config = new RedisConfig();
+        redisTemplate = config.redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        listenerContainer = config.redisMessageListenerContainer(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        listenerContainer.destroy();
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        nodeA = new UserTokenRevocationService(redisTemplate, listenerContainer, 3_600_000L, 1_000, 300);
+        nodeB = new UserTokenRevocationService(redisTemplate, listenerContainer, 3_600_000L, 1_000, 300);
+    }
+
+    @Test
+    void onlyTokensIssuedUpToTheRevocationAreRevoked() {
+        UUID user = UUID.randomUUID();
+
+        nodeA.revokeAllTokens(user);
+
+        long notBefore = Long.parseLong(redisTemplate.opsForValue().get("revocation:user:" + user));
+        assertTrue(nodeA.isRevoked(principal(user, notBefore)));
+        assertTrue(nodeA.isRevoked(principal(user, notBefore - 60_000)));
+        assertFalse(nodeA.isRevoked(principal(user, notBefore + 1)));
+        assertFalse(nodeA.isRevoked(principal(UUID.randomUUID(), notBefore)));
+    }
+
+    @Test
+    void aLoginInTheSameSecondAsTheRevocationIsAccepted() throws Exception {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+        UUID user = UUID.randomUUID();
+        String before = jwtUtil.generateToken(user, "ana", "user");
+        TimeUnit.MILLISECONDS.sleep(2);
+
+        nodeA.revokeAllTokens(user);
+        TimeUnit.MILLISECONDS.sleep(2);
+        String after = jwtUtil.generateToken(user, "ana", "user");
+
+        assertTrue(nodeA.isRevoked(jwtUtil.parseToken(before)));
+        assertFalse(nodeA.isRevoked(jwtUtil.parseToken(after)));
+    }
+
+    @Test
+    void revocationReachesPeersThatAlreadyCachedTheUser() throws Exception {
+        UUID user = UUID.randomUUID();
+        long issuedAt = System.currentTimeMillis() - 1_000;
+        assertFalse(nodeB.isRevoked(principal(user, issuedAt)));
+
+        nodeA.revokeAllTokens(user);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!nodeB.isRevoked(principal(user, issuedAt)) && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertTrue(nodeB.isRevoked(principal(user, issuedAt)));
+    }
+
+    @Test
+    void nodesThatMissedTheMessageLoadTheRevocationFromRedis() {
+        UUID user = UUID.randomUUID();
+        nodeA.revokeAllTokens(user);
+
+        UserTokenRevocationService late = new UserTokenRevocationService(redisTemplate, listenerContainer,
+                3_600_000L, 1_000, 300);
+
+        assertTrue(late.isRevoked(principal(user, System.currentTimeMillis() - 1_000)));
+    }
+
+    private static JwtPrincipal principal(UUID userId, long issuedAt) {
+        return new JwtPrincipal("user", userId.toString(), "user", new Date(issuedAt),
+                new Date(issuedAt + 3_600_000L), UUID.randomUUID().toString());
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.events.service;
+
+import com.example.events.DTO.WaitingRoomStatus;
+import com.example.events.RedisConfig;
+import com.example.events.exception.AdmissionRequiredException;
+import com.example.events.exception.ServiceBusyException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import redis.embedded.RedisServer;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WaitingRoomServiceTest {
+
+    private static final int port = 6393;
+    private static final int eventId = 42;
+    private static final String secret = "waiting-room-secret-0123456789abcdef";
+    private static final String jwtSecret = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+    private static RedisMessageListenerContainer listenerContainer;
+
+    // two nodes sharing one redis; only the first one ever ticks unless a test says otherwise
+    private WaitingRoomService nodeA;
+    private WaitingRoomService nodeB;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        RedisConfig config = new RedisConfig();
+        redisTemplate = config.redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        listenerContainer = config.redisMessageListenerContainer(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        listenerContainer.destroy();
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        nodeA = new WaitingRoomService(redisTemplate, listenerContainer, secret, jwtSecret, 120);
+        nodeB = new WaitingRoomService(redisTemplate, listenerContainer, secret, jwtSecret, 120);
+    }
+
+    @Test
+    void secretMustBeSeparateFromTheJwtSecret() {
+        assertThrows(IllegalStateException.class, () -> new WaitingRoomService(redisTemplate, listenerContainer, jwtSecret, jwtSecret, 120));
+        assertThrows(IllegalStateException.class, () -> new WaitingRoomService(redisTemplate, listenerContainer, "short", jwtSecret, 120));
+    }
+
+    @Test
+    void roomOpenedOnAnotherNodeIsEnforcedBeforeTheNextTick() {
+        nodeA.open(eventId, 1);
+
+        assertThrows(AdmissionRequiredException.class, () -> nodeB.checkAdmitted(eventId, UUID.randomUUID(), null));
+        assertDoesNotThrow(() -> nodeB.checkAdmitted(eventId + 1, UUID.randomUUID(), null));
+        assertEquals(1, nodeB.getRejectedPurchaseCount());
+    }
+
+    @Test
+    void eventsWithoutARoomAreLookedUpOncePerTick() {
+        for (int i = 0; i < 5; i++) {
+            nodeB.checkAdmitted(eventId, UUID.randomUUID(), null);
+        }
+        assertEquals(1, nodeB.getSnapshotMissCount());
+
+        nodeB.tick();
+        nodeB.checkAdmitted(eventId, UUID.randomUUID(), null);
+        assertEquals(2, nodeB.getSnapshotMissCount());
+    }
+
+    @Test
+    void roomOpenedAfterAPeerCachedItsAbsenceIsEnforced() throws Exception {
+        nodeB.checkAdmitted(eventId, UUID.randomUUID(), null);
+
+        nodeA.open(eventId, 1);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                nodeB.checkAdmitted(eventId, UUID.randomUUID(), null);
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (AdmissionRequiredException expected) {
+                return;
+            }
+        }
+        fail("Room opened on another node was never enforced");
+    }
+
+    @Test
+    void nodeWithoutTheRoomInItsSnapshotDoesNotAdmitQueuedUsers() {
+        nodeA.open(eventId, 1);
+        WaitingRoomStatus first = nodeA.join(eventId, request(UUID.randomUUID()));
+        WaitingRoomStatus second = nodeA.join(eventId, request(UUID.randomUUID()));
+
+        WaitingRoomStatus polled = nodeB.getStatus(second.getQueueToken());
+
+        assertEquals(first.getPosition() + 1, polled.getPosition());
+        assertNull(polled.getAdmissionToken());
+        assertEquals(1, nodeB.getSnapshotMissCount());
+    }
+
+    @Test
+    void admissionsSignedByOneNodeAreHonouredByAnother() {
+        nodeA.open(eventId, 1);
+        UUID user = UUID.randomUUID();
+        WaitingRoomStatus joined = nodeA.join(eventId, request(user));
+        redisTemplate.opsForHash().put("waitingroom:room:" + eventId, "admitted", Long.toString(joined.getPosition()));
+
+        WaitingRoomStatus polled = nodeB.getStatus(joined.getQueueToken());
+
+        assertNotNull(polled.getAdmissionToken());
+        assertDoesNotThrow(() -> nodeB.checkAdmitted(eventId, user, polled.getAdmissionToken()));
+        assertThrows(AdmissionRequiredException.class,
+                () -> nodeB.checkAdmitted(eventId, UUID.randomUUID(), polled.getAdmissionToken()));
+    }
+
+    @Test
+    void closedRoomsStopGatingPurchases() {
+        nodeA.open(eventId, 1);
+        nodeB.tick();
+        nodeA.close(eventId);
+        nodeB.tick();
+
+        assertDoesNotThrow(() -> nodeB.checkAdmitted(eventId, UUID.randomUUID(), null));
+        assertEquals(0, nodeB.getOpenRoomCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void gateFailsClosedWhenRedisCannotBeReached() {
+        RedisTemplate<String, String> unreachable = mock(RedisTemplate.class);
+        when(unreachable.opsForHash()).thenThrow(new RedisConnectionFailureException("connection refused"));
+        WaitingRoomService node = new WaitingRoomService(unreachable, mock(RedisMessageListenerContainer.class), secret, jwtSecret, 120);
+
+        assertThrows(ServiceBusyException.class, () -> node.checkAdmitted(eventId, UUID.randomUUID(), null));
+    }
+
+    private static MockHttpServletRequest request(UUID userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("userId", userId.toString());
+        return request;
+    }
+}